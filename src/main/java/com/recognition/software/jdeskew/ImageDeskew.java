@@ -4,6 +4,16 @@
 package com.recognition.software.jdeskew;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 public class ImageDeskew {
 
@@ -26,8 +36,12 @@ public class ImageDeskew {
     private BufferedImage cImage;
     // the range of angles to search for lines
     private double        cAlphaStart = -20;
+    private double        cAlphaEnd   = 20;
     private double        cAlphaStep  = 0.2;
     private int           cSteps      = 40 * 5;
+    // the angle indices searched, cAlphaFirst to cAlphaLast - 1
+    private int           cAlphaFirst;
+    private int           cAlphaLast;
     // pre-calculation of sin and cos
     private double[]      cSinA;
     private double[]      cCosA;
@@ -35,20 +49,91 @@ public class ImageDeskew {
     private double        cDMin;
     private double        cDStep      = 1.0;
     private int           cDCount;
-    // count of points that fit in a line
+    // count of points that fit in a line, indexed by
+    // (alpha - cAlphaFirst) * cDCount + dIndex
     private int[]         cHMatrix;
+    // number of threads for the Hough transformation
+    private int           cThreads    = 1;
+    // executor to run the threads on, or null for a pool of their own
+    private ExecutorService cExecutor;
+    // estimate the angle on a downsampled image before the full search
+    private boolean       cMultiResolution;
+
+    // longest side of the downsampled image, and the angular step of the
+    // search on it, in the multi-resolution mode
+    private static final int    COARSE_SIZE = 1000;
+    private static final double COARSE_STEP = 1.0;
 
     // constructor
     public ImageDeskew(BufferedImage image) {
         this.cImage = image;
     }
 
+    // set the number of threads to share the Hough transformation; the
+    // default is 1, so that no thread pool is created. With more than one,
+    // a pool of that size is created and shut down on each call to
+    // getSkewAngle, unless an executor is given with setExecutor
+    public void setThreads(int threads) {
+        this.cThreads = Math.max(1, threads);
+    }
+
+    // set the executor to run the threads of the Hough transformation on,
+    // so that repeated calls share one pool; the work is still split into
+    // the number of parts set with setThreads, and the executor is not shut
+    // down. The default, null, creates a pool for each call
+    public void setExecutor(ExecutorService executor) {
+        this.cExecutor = executor;
+    }
+
+    // set the range of angles to search, in degrees; the default is -20 to
+    // 20
+    public void setAngleRange(double minAngle, double maxAngle) {
+        if (!(minAngle < maxAngle)) {
+            throw new IllegalArgumentException("Invalid angle range: " + minAngle + " to " + maxAngle);
+        }
+        this.cAlphaStart = minAngle;
+        this.cAlphaEnd = maxAngle;
+    }
+
+    // set the angular step of the search, in degrees; the default is 0.2
+    public void setPrecision(double step) {
+        if (!(step > 0)) {
+            throw new IllegalArgumentException("Invalid precision: " + step);
+        }
+        this.cAlphaStep = step;
+    }
+
+    // enable the multi-resolution mode: the angle is first estimated with a
+    // coarse step on a downsampled copy of the image, then searched at full
+    // resolution only in a window around the estimate; the result is
+    // within one step of the exhaustive search unless the image has strong
+    // lines at other angles
+    public void setMultiResolution(boolean multiResolution) {
+        this.cMultiResolution = multiResolution;
+    }
+
     // calculate the skew angle of the image cImage
     public double getSkewAngle() {
         ImageDeskew.HoughLine[] hl;
         double sum = 0.0;
         int count = 0;
 
+        this.cSteps = Math.max(2, (int) Math.round((this.cAlphaEnd - this.cAlphaStart) / this.cAlphaStep));
+        this.cAlphaFirst = 0;
+        this.cAlphaLast = this.cSteps - 1;
+
+        if (this.cMultiResolution) {
+            double coarseStep = Math.max(this.cAlphaStep, COARSE_STEP);
+            if (coarseStep > this.cAlphaStep) {
+                // search the angles of the regular grid near the estimate
+                double coarseAngle = getCoarseSkewAngle(coarseStep);
+                int first = (int) Math.floor((coarseAngle - 2 * coarseStep - this.cAlphaStart) / this.cAlphaStep);
+                int last = (int) Math.ceil((coarseAngle + 2 * coarseStep - this.cAlphaStart) / this.cAlphaStep) + 1;
+                this.cAlphaFirst = Math.max(0, Math.min(first, this.cSteps - 2));
+                this.cAlphaLast = Math.min(this.cSteps - 1, Math.max(last, this.cAlphaFirst + 1));
+            }
+        }
+
         // perform Hough Transformation
         calc();
         // top 20 of the detected lines in the image
@@ -76,12 +161,24 @@ public class ImageDeskew {
 
         ImageDeskew.HoughLine tmp;
 
-        for (int i = 0; i < (this.cHMatrix.length - 1); i++) {
-            if (this.cHMatrix[i] > hl[count - 1].count) {
-                hl[count - 1].count = this.cHMatrix[i];
-                hl[count - 1].index = i;
+        // the matrix is scanned by angle; ties are ranked by the index of
+        // the line as if scanned by distance, i.e. dIndex * cSteps + alpha
+        for (int alpha = this.cAlphaFirst; alpha < this.cAlphaLast; alpha++) {
+            int offset = (alpha - this.cAlphaFirst) * this.cDCount;
+            for (int dIndex = 0; dIndex < this.cDCount; dIndex++) {
+                int value = this.cHMatrix[offset + dIndex];
+                if (value < hl[count - 1].count || value == 0) {
+                    continue;
+                }
+                int index = dIndex * this.cSteps + alpha;
+                if (value == hl[count - 1].count && index > hl[count - 1].index) {
+                    continue;
+                }
+                hl[count - 1].count = value;
+                hl[count - 1].index = index;
                 int j = count - 1;
-                while ((j > 0) && (hl[j].count > hl[j - 1].count)) {
+                while ((j > 0) && (hl[j].count > hl[j - 1].count
+                        || (hl[j].count == hl[j - 1].count && hl[j].index < hl[j - 1].index))) {
                     tmp = hl[j];
                     hl[j] = hl[j - 1];
                     hl[j - 1] = tmp;
@@ -106,37 +203,141 @@ public class ImageDeskew {
 
     // Hough Transformation
     private void calc() {
-        int hMin = (int) ((this.cImage.getHeight()) / 4.0);
-        int hMax = (int) ((this.cImage.getHeight()) * 3.0 / 4.0);
+        final int hMin = (int) ((this.cImage.getHeight()) / 4.0);
+        final int hMax = (int) ((this.cImage.getHeight()) * 3.0 / 4.0);
         init();
 
-        for (int y = hMin; y < hMax; y++) {
-            for (int x = 1; x < (this.cImage.getWidth() - 2); x++) {
-                // only lower edges are considered
-                if (ImageUtil.isBlack(this.cImage, x, y)) {
-                    if (!ImageUtil.isBlack(this.cImage, x, y + 1)) {
-                        calc(x, y);
+        int alphaCount = this.cAlphaLast - this.cAlphaFirst;
+        int threads = Math.min(this.cThreads, alphaCount);
+        if (threads <= 1 || hMax - hMin < threads) {
+            int[] points = getEdgePoints(hMin, hMax);
+            calc(this.cAlphaFirst, this.cAlphaLast, points);
+            return;
+        }
+
+        ExecutorService executor = this.cExecutor;
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "ImageDeskew");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
+        try {
+            // collect the edge points of horizontal bands
+            List<Future<int[]>> bands = new ArrayList<Future<int[]>>();
+            for (int i = 0; i < threads; i++) {
+                final int yStart = hMin + (hMax - hMin) * i / threads;
+                final int yEnd = hMin + (hMax - hMin) * (i + 1) / threads;
+                bands.add(executor.submit(new Callable<int[]>() {
+
+                    @Override
+                    public int[] call() {
+                        return getEdgePoints(yStart, yEnd);
+                    }
+                }));
+            }
+
+            int length = 0;
+            int[][] bandPoints = new int[threads][];
+            for (int i = 0; i < threads; i++) {
+                bandPoints[i] = bands.get(i).get();
+                length += bandPoints[i].length;
+            }
+
+            final int[] points = new int[length];
+            length = 0;
+            for (int[] band : bandPoints) {
+                System.arraycopy(band, 0, points, length, band.length);
+                length += band.length;
+            }
+
+            // accumulate disjoint angle ranges, each owning its rows of the
+            // matrix, so that no merging is needed
+            List<Future<?>> ranges = new ArrayList<Future<?>>();
+            for (int i = 0; i < threads; i++) {
+                final int alphaStart = this.cAlphaFirst + alphaCount * i / threads;
+                final int alphaEnd = this.cAlphaFirst + alphaCount * (i + 1) / threads;
+                ranges.add(executor.submit(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        calc(alphaStart, alphaEnd, points);
+                    }
+                }));
+            }
+
+            for (Future<?> range : ranges) {
+                range.get();
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ie);
+        } catch (ExecutionException ee) {
+            throw new RuntimeException(ee.getCause());
+        } finally {
+            if (executor != this.cExecutor) {
+                executor.shutdown();
+            }
+        }
+    }
+
+    // collect the lower edge points of rows yStart to yEnd - 1 as x, y pairs
+    private int[] getEdgePoints(int yStart, int yEnd) {
+        int width = this.cImage.getWidth();
+        int stride = ImageUtil.getBitmapStride(width);
+        // black pixels of the rows and of the row below the last one
+        int yLast = Math.min(yEnd + 1, this.cImage.getHeight());
+        byte[] bitmap = ImageUtil.getBlackBitmap(this.cImage, yStart, Math.max(yStart, yLast));
+
+        int[] points = new int[4096];
+        int length = 0;
+
+        for (int y = yStart; y < yEnd && y + 1 < yLast; y++) {
+            int offset = (y - yStart) * stride;
+            for (int i = 0; i < stride; i++) {
+                // only lower edges are considered: black pixels above white
+                int edges = bitmap[offset + i] & ~bitmap[offset + stride + i] & 0xff;
+                while (edges != 0) {
+                    int bit = Integer.numberOfLeadingZeros(edges) - 24;
+                    edges &= ~(0x80 >> bit);
+                    int x = (i << 3) + bit;
+                    if (x >= 1 && x < width - 2) {
+                        if (length == points.length) {
+                            points = Arrays.copyOf(points, length * 2);
+                        }
+                        points[length++] = x;
+                        points[length++] = y;
                     }
                 }
             }
         }
 
+        return Arrays.copyOf(points, length);
     }
 
-    // calculate all lines through the point (x,y)
-    private void calc(int x, int y) {
+    // calculate the lines at angle indices alphaStart to alphaEnd - 1
+    // through all points
+    private void calc(int alphaStart, int alphaEnd, int[] points) {
         double d;
         int dIndex;
-        int index;
-
-        for (int alpha = 0; alpha < (this.cSteps - 1); alpha++) {
-            d = y * this.cCosA[alpha] - x * this.cSinA[alpha];
-            dIndex = (int) (d - this.cDMin);
-            index = dIndex * this.cSteps + alpha;
-            try {
-                this.cHMatrix[index] += 1;
-            } catch (Exception ex) {
-                System.out.println(ex.toString());
+
+        for (int alpha = alphaStart; alpha < alphaEnd; alpha++) {
+            double sinA = this.cSinA[alpha];
+            double cosA = this.cCosA[alpha];
+            int offset = (alpha - this.cAlphaFirst) * this.cDCount;
+
+            for (int i = 0; i < points.length; i += 2) {
+                d = points[i + 1] * cosA - points[i] * sinA;
+                dIndex = (int) (d - this.cDMin);
+                if (dIndex >= 0 && dIndex < this.cDCount) {
+                    this.cHMatrix[offset + dIndex] += 1;
+                }
             }
         }
     }
@@ -158,8 +359,62 @@ public class ImageDeskew {
         // range of d
         this.cDMin = -this.cImage.getWidth();
         this.cDCount = (int) (2.0 * ((this.cImage.getWidth() + this.cImage.getHeight())) / this.cDStep);
-        this.cHMatrix = new int[this.cDCount * this.cSteps];
+        this.cHMatrix = new int[this.cDCount * (this.cAlphaLast - this.cAlphaFirst)];
+
+    }
+
+    // estimate the skew angle on a downsampled copy of the image, with the
+    // given angular step
+    private double getCoarseSkewAngle(double step) {
+        int factor = Math.max(1, Math.max(this.cImage.getWidth(), this.cImage.getHeight()) / COARSE_SIZE);
+        ImageDeskew coarse = new ImageDeskew(downsample(factor));
+        coarse.setThreads(this.cThreads);
+        coarse.setAngleRange(this.cAlphaStart, this.cAlphaEnd);
+        coarse.setPrecision(step);
+        return coarse.getSkewAngle();
+    }
+
+    // create a bit-packed copy of the image reduced by factor, sampling the
+    // middle row of each block; a pixel is black if any pixel of its block
+    // in that row is black. Only the rows read by the Hough transformation
+    // are filled in, the others are white
+    private BufferedImage downsample(int factor) {
+        int width = this.cImage.getWidth();
+        int height = this.cImage.getHeight();
+        int coarseWidth = (width + factor - 1) / factor;
+        int coarseHeight = (height + factor - 1) / factor;
+
+        BufferedImage bi = new BufferedImage(coarseWidth, coarseHeight, BufferedImage.TYPE_BYTE_BINARY);
+        byte[] data = ((DataBufferByte) bi.getRaster().getDataBuffer()).getData();
+        int stride = (coarseWidth + 7) / 8;
+        Arrays.fill(data, (byte) 0xff);
+
+        int hMin = (int) (coarseHeight / 4.0);
+        int hMax = (int) (coarseHeight * 3.0 / 4.0);
+
+        // black pixels of the rows from the first to the last sampled one
+        int hLast = Math.min(hMax, coarseHeight - 1);
+        int yFirst = Math.min(height - 1, hMin * factor + factor / 2);
+        int yLast = Math.min(height - 1, hLast * factor + factor / 2);
+        byte[] black = ImageUtil.getBlackBitmap(this.cImage, yFirst, Math.max(yFirst, yLast + 1));
+        int blackStride = ImageUtil.getBitmapStride(width);
+
+        for (int cy = hMin; cy <= hLast; cy++) {
+            int offset = cy * stride;
+            int y = Math.min(height - 1, cy * factor + factor / 2);
+            int blackOffset = (y - yFirst) * blackStride;
+            for (int i = 0; i < blackStride; i++) {
+                int bits = black[blackOffset + i] & 0xff;
+                while (bits != 0) {
+                    int bit = Integer.numberOfLeadingZeros(bits) - 24;
+                    bits &= ~(0x80 >> bit);
+                    int cx = ((i << 3) + bit) / factor;
+                    data[offset + (cx >> 3)] &= ~(0x80 >> (cx & 7));
+                }
+            }
+        }
 
+        return bi;
     }
 
     public double getAlpha(int index) {
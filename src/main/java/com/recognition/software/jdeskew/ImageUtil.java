@@ -8,6 +8,16 @@ package com.recognition.software.jdeskew;
 // import java.awt.RenderingHints;
 // import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.IndexColorModel;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
 import java.awt.image.WritableRaster;
 // import java.io.File;
 // import java.io.IOException;
@@ -15,6 +25,15 @@ import java.awt.image.WritableRaster;
 
 public class ImageUtil {
 
+    // luminance of the gray values, by the floating-point formula
+    private static final int[] GRAY_LUMINANCE = new int[256];
+
+    static {
+        for (int v = 0; v < 256; v++) {
+            GRAY_LUMINANCE[v] = (int) ((v * 0.299) + (v * 0.587) + (v * 0.114));
+        }
+    }
+
     // public static BufferedImage readImageFile(File imageFile) throws IOException {
     // return ImageIO.read(imageFile);
     // }
@@ -59,6 +78,304 @@ public class ImageUtil {
         return luminance < luminanceCutOff;
     }
 
+    // get the luminance of each pixel of the image, row by row, as the integer
+    // part of the value compared by isBlack(image, x, y, luminanceCutOff)
+    public static byte[] getLuminance(BufferedImage image) {
+        return getLuminance(image, 0, image.getHeight());
+    }
+
+    // get the luminance of each pixel of rows yStart to yEnd - 1, row by row
+    public static byte[] getLuminance(BufferedImage image, int yStart, int yEnd) {
+        checkRows(image, yStart, yEnd);
+        int width = image.getWidth();
+        byte[] luminance = new byte[width * (yEnd - yStart)];
+        RowReader reader = new RowReader(image);
+        int[] row = new int[width];
+
+        for (int y = yStart; y < yEnd; y++) {
+            reader.getLuminance(y, row);
+            int offset = (y - yStart) * width;
+            for (int x = 0; x < width; x++) {
+                luminance[offset + x] = (byte) row[x];
+            }
+        }
+
+        return luminance;
+    }
+
+    // get the black pixels of the image as a bitmap, with the same result as
+    // isBlack(image, x, y) for each pixel; see getBlackBitmap(image, yStart,
+    // yEnd, luminanceCutOff) for the layout
+    public static byte[] getBlackBitmap(BufferedImage image) {
+        return getBlackBitmap(image, 0, image.getHeight());
+    }
+
+    // get the black pixels of rows yStart to yEnd - 1 as a bitmap, with the
+    // same result as isBlack(image, x, y) for each pixel
+    public static byte[] getBlackBitmap(BufferedImage image, int yStart, int yEnd) {
+        if (image.getType() != BufferedImage.TYPE_BYTE_BINARY) {
+            return getBlackBitmap(image, yStart, yEnd, 140);
+        }
+
+        checkRows(image, yStart, yEnd);
+        int stride = getBitmapStride(image.getWidth());
+        byte[] bitmap = new byte[stride * (yEnd - yStart)];
+        RowReader reader = new RowReader(image);
+        for (int y = yStart; y < yEnd; y++) {
+            reader.getZeroSamples(y, bitmap, (y - yStart) * stride);
+        }
+        return bitmap;
+    }
+
+    // get the black pixels of rows yStart to yEnd - 1 as a bitmap, with the
+    // same result as isBlack(image, x, y, luminanceCutOff) for each pixel.
+    // Each row takes getBitmapStride(width) bytes, and each byte holds 8
+    // pixels, the leftmost in the most significant bit; a set bit is black,
+    // and the unused bits at the end of a row are clear
+    public static byte[] getBlackBitmap(BufferedImage image, int yStart, int yEnd, int luminanceCutOff) {
+        checkRows(image, yStart, yEnd);
+        int width = image.getWidth();
+        int stride = getBitmapStride(width);
+        byte[] bitmap = new byte[stride * (yEnd - yStart)];
+        RowReader reader = new RowReader(image);
+        int[] row = new int[width];
+        // the luminance ranges from 0 to 255
+        int cutOff = Math.max(0, Math.min(256, luminanceCutOff));
+
+        for (int y = yStart; y < yEnd; y++) {
+            reader.getLuminance(y, row);
+            pack(row, width, cutOff, bitmap, (y - yStart) * stride);
+        }
+
+        return bitmap;
+    }
+
+    // number of bytes per row of a bitmap of the given width
+    public static int getBitmapStride(int width) {
+        return (width + 7) / 8;
+    }
+
+    // set the bits of the values below cutOff, which are all from 0 to 256,
+    // in a row of the bitmap
+    private static void pack(int[] row, int width, int cutOff, byte[] bitmap, int offset) {
+        int bits = 0;
+        for (int x = 0; x < width; x++) {
+            bits = (bits << 1) | ((row[x] - cutOff) >>> 31);
+            if ((x & 7) == 7) {
+                bitmap[offset + (x >> 3)] = (byte) bits;
+                bits = 0;
+            }
+        }
+        if ((width & 7) != 0) {
+            bitmap[offset + (width >> 3)] = (byte) (bits << (8 - (width & 7)));
+        }
+    }
+
+    private static void checkRows(BufferedImage image, int yStart, int yEnd) {
+        if (yStart < 0 || yEnd > image.getHeight() || yStart > yEnd) {
+            throw new IllegalArgumentException("Invalid rows: " + yStart + " to " + yEnd);
+        }
+    }
+
+    // integer part of (r * 0.299) + (g * 0.587) + (b * 0.114), in integer
+    // arithmetic; an exact integer is taken from the floating-point formula,
+    // which may fall just below it
+    private static int getLuminance(int r, int g, int b) {
+        if (r == g && g == b) {
+            // gray values are exact integers, so the common case is looked up
+            return GRAY_LUMINANCE[r];
+        }
+        int sum = r * 299 + g * 587 + b * 114;
+        int luminance = sum / 1000;
+        if (luminance * 1000 != sum) {
+            return luminance;
+        }
+        return (int) ((r * 0.299) + (g * 0.587) + (b * 0.114));
+    }
+
+    private static int getLuminance(int rgb) {
+        return getLuminance((rgb >> 16) & 0xff, (rgb >> 8) & 0xff, rgb & 0xff);
+    }
+
+    // reads the rows of an image, directly from the raster data for the
+    // common image types, and through getRGB otherwise
+    private static class RowReader {
+
+        private static final int GENERIC  = 0;
+        // bit-packed samples of an indexed image
+        private static final int PACKED   = 1;
+        // byte samples of a gray or indexed image
+        private static final int BYTE     = 2;
+        // interleaved byte RGB samples
+        private static final int BYTE_RGB = 3;
+        // int RGB pixels
+        private static final int INT_RGB  = 4;
+
+        private final BufferedImage image;
+        private final WritableRaster raster;
+        private final int width;
+        private int layout = GENERIC;
+        private byte[] byteData;
+        private int[] intData;
+        private int offset;
+        private int scanlineStride;
+        private int pixelStride;
+        private int bitOffset;
+        private int[] bandOffsets;
+        // luminance of each sample value of PACKED and BYTE layouts
+        private int[] table;
+        private int[] buffer;
+
+        RowReader(BufferedImage image) {
+            this.image = image;
+            this.raster = image.getRaster();
+            this.width = image.getWidth();
+
+            SampleModel sm = raster.getSampleModel();
+            DataBuffer db = raster.getDataBuffer();
+            ColorModel cm = image.getColorModel();
+            int type = image.getType();
+
+            if (db.getNumBanks() != 1) {
+                return;
+            }
+            // the child raster of a sub-image starts at this pixel of the
+            // data of its parent
+            int dx = -raster.getSampleModelTranslateX();
+            int dy = -raster.getSampleModelTranslateY();
+
+            if (sm instanceof MultiPixelPackedSampleModel && db instanceof DataBufferByte
+                    && cm instanceof IndexColorModel) {
+                MultiPixelPackedSampleModel mppsm = (MultiPixelPackedSampleModel) sm;
+                this.layout = PACKED;
+                this.byteData = ((DataBufferByte) db).getData();
+                this.scanlineStride = mppsm.getScanlineStride();
+                this.pixelStride = mppsm.getPixelBitStride();
+                this.offset = db.getOffset() + dy * this.scanlineStride;
+                this.bitOffset = mppsm.getDataBitOffset() + dx * this.pixelStride;
+                this.table = getLuminanceTable(cm, 1 << this.pixelStride);
+            } else if (sm instanceof ComponentSampleModel && db instanceof DataBufferByte) {
+                ComponentSampleModel csm = (ComponentSampleModel) sm;
+                if ((type == BufferedImage.TYPE_BYTE_GRAY || type == BufferedImage.TYPE_BYTE_INDEXED)
+                        && sm.getNumBands() == 1) {
+                    this.layout = BYTE;
+                    this.table = getLuminanceTable(cm, 256);
+                } else if ((type == BufferedImage.TYPE_3BYTE_BGR || type == BufferedImage.TYPE_4BYTE_ABGR)
+                        && cm instanceof ComponentColorModel) {
+                    // band order is R, G, B (, A)
+                    this.layout = BYTE_RGB;
+                } else {
+                    return;
+                }
+                this.byteData = ((DataBufferByte) db).getData();
+                this.scanlineStride = csm.getScanlineStride();
+                this.pixelStride = csm.getPixelStride();
+                this.offset = db.getOffset() + dy * this.scanlineStride + dx * this.pixelStride;
+                this.bandOffsets = csm.getBandOffsets();
+            } else if ((type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB)
+                    && sm instanceof SinglePixelPackedSampleModel && db instanceof DataBufferInt) {
+                // the pixel value is the RGB value
+                this.layout = INT_RGB;
+                this.intData = ((DataBufferInt) db).getData();
+                this.scanlineStride = ((SinglePixelPackedSampleModel) sm).getScanlineStride();
+                this.offset = db.getOffset() + dy * this.scanlineStride + dx;
+            }
+        }
+
+        private static int[] getLuminanceTable(ColorModel cm, int size) {
+            int[] table = new int[size];
+            for (int v = 0; v < size; v++) {
+                table[v] = ImageUtil.getLuminance(cm.getRGB(v));
+            }
+            return table;
+        }
+
+        // get the luminance of the pixels of row y
+        void getLuminance(int y, int[] row) {
+            switch (this.layout) {
+                case PACKED: {
+                    int bits = this.pixelStride;
+                    int mask = (1 << bits) - 1;
+                    int base = this.offset + y * this.scanlineStride;
+                    int bit = this.bitOffset;
+                    for (int x = 0; x < this.width; x++, bit += bits) {
+                        row[x] = this.table[(this.byteData[base + (bit >> 3)] >> (8 - bits - (bit & 7))) & mask];
+                    }
+                    break;
+                }
+                case BYTE: {
+                    int p = this.offset + y * this.scanlineStride + this.bandOffsets[0];
+                    for (int x = 0; x < this.width; x++, p += this.pixelStride) {
+                        row[x] = this.table[this.byteData[p] & 0xff];
+                    }
+                    break;
+                }
+                case BYTE_RGB: {
+                    int p = this.offset + y * this.scanlineStride;
+                    int rOff = this.bandOffsets[0];
+                    int gOff = this.bandOffsets[1];
+                    int bOff = this.bandOffsets[2];
+                    for (int x = 0; x < this.width; x++, p += this.pixelStride) {
+                        row[x] = ImageUtil.getLuminance(this.byteData[p + rOff] & 0xff,
+                                this.byteData[p + gOff] & 0xff, this.byteData[p + bOff] & 0xff);
+                    }
+                    break;
+                }
+                case INT_RGB: {
+                    int p = this.offset + y * this.scanlineStride;
+                    for (int x = 0; x < this.width; x++) {
+                        row[x] = ImageUtil.getLuminance(this.intData[p + x]);
+                    }
+                    break;
+                }
+                default: {
+                    // convert the row to RGB at once
+                    this.image.getRGB(0, y, this.width, 1, row, 0, this.width);
+                    for (int x = 0; x < this.width; x++) {
+                        row[x] = ImageUtil.getLuminance(row[x]);
+                    }
+                }
+            }
+        }
+
+        // set the bits of the zero samples of row y in the bitmap
+        void getZeroSamples(int y, byte[] bitmap, int bitmapOffset) {
+            int stride = getBitmapStride(this.width);
+
+            if (this.layout == PACKED && this.pixelStride == 1 && (this.bitOffset & 7) == 0) {
+                // 1 bit per pixel: the bitmap is the inverse of the data
+                int p = this.offset + y * this.scanlineStride + (this.bitOffset >> 3);
+                for (int i = 0; i < stride; i++) {
+                    bitmap[bitmapOffset + i] = (byte) ~this.byteData[p + i];
+                }
+                if ((this.width & 7) != 0) {
+                    bitmap[bitmapOffset + stride - 1] &= (byte) (0xff00 >> (this.width & 7));
+                }
+                return;
+            }
+
+            if (this.buffer == null) {
+                this.buffer = new int[this.width];
+            }
+            int[] samples = this.buffer;
+
+            if (this.layout == PACKED) {
+                int bits = this.pixelStride;
+                int mask = (1 << bits) - 1;
+                int base = this.offset + y * this.scanlineStride;
+                int bit = this.bitOffset;
+                for (int x = 0; x < this.width; x++, bit += bits) {
+                    samples[x] = (this.byteData[base + (bit >> 3)] >> (8 - bits - (bit & 7))) & mask;
+                }
+            } else {
+                this.raster.getSamples(0, y, this.width, 1, 0, samples);
+            }
+
+            // the samples are not negative, so zero is below 1
+            pack(samples, this.width, 1, bitmap, bitmapOffset);
+        }
+    }
+
     // public static BufferedImage rotate(BufferedImage image, double angle, int cx, int cy) {
     // int width = image.getWidth(null);
     // int height = image.getHeight(null);
@@ -0,0 +1,374 @@
+/**
+ * Copyright @ 2014 Quan Nguyen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.sourceforge.tess4j;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A disk tier for {@link OCRCache}, keeping recognized page texts across restarts and sharing them among the
+ * processes of a machine. Texts are appended to a segment file and found through a memory-mapped hash index.
+ * Lookups take a shared file lock and stores an exclusive one, so any number of instances, in one or several
+ * processes, may use the same directory. When the segment file outgrows its size limit or the index fills up, the
+ * most recently stored texts are compacted in place, keeping half of each limit.
+ */
+public class DiskOCRCache implements Closeable {
+
+    private static final int                 MAGIC          = 0x4f435243; // "OCRC"
+    private static final int                 VERSION        = 1;
+    private static final int                 HEADER_SIZE    = 32;
+    private static final int                 SLOT_SIZE      = 24;
+    private static final int                 DATA_START     = 8;
+    // index header fields
+    private static final int                 SLOT_COUNT     = 8;
+    private static final int                 ENTRY_COUNT    = 12;
+    private static final int                 DIRTY          = 16;
+
+    /**
+     * Locks serializing the instances of this process on a directory, as file locks are held per process.
+     */
+    private static final Map<String, Object> processLocks   = new HashMap<String, Object>();
+
+    private final long                       maxBytes;
+    private final Object                     processLock;
+    private final RandomAccessFile           indexFile;
+    private final RandomAccessFile           dataFile;
+    private final FileChannel                indexChannel;
+    private final FileChannel                dataChannel;
+    private final MappedByteBuffer           index;
+    private final int                        slotCount;
+    private long                             hitCount;
+    private long                             missCount;
+
+    /**
+     * Opens the cache in a directory, creating it if needed. The index capacity of an existing cache is kept.
+     *
+     * @param directory the directory of the cache files
+     * @param maxEntries the largest number of entries
+     * @param maxBytes the largest size of the segment file, in bytes
+     * @throws IOException
+     */
+    public DiskOCRCache(File directory, int maxEntries, long maxBytes) throws IOException {
+        this.maxBytes = maxBytes;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create cache directory " + directory);
+        }
+        String path = directory.getCanonicalPath();
+        synchronized (processLocks) {
+            Object lock = processLocks.get(path);
+            if (lock == null) {
+                lock = new Object();
+                processLocks.put(path, lock);
+            }
+            processLock = lock;
+        }
+
+        indexFile = new RandomAccessFile(new File(directory, "ocrcache.idx"), "rw");
+        dataFile = new RandomAccessFile(new File(directory, "ocrcache.dat"), "rw");
+        indexChannel = indexFile.getChannel();
+        dataChannel = dataFile.getChannel();
+
+        synchronized (processLock) {
+            FileLock fileLock = indexChannel.lock();
+            try {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                indexChannel.read(header, 0);
+                int slots;
+                if (header.getInt(0) == MAGIC && header.getInt(4) == VERSION) {
+                    slots = header.getInt(SLOT_COUNT);
+                } else {
+                    // a new cache; the index is kept at most half full
+                    slots = Math.max(16, maxEntries * 2);
+                    indexChannel.truncate(0);
+                    indexChannel.write(ByteBuffer.allocate(HEADER_SIZE + slots * SLOT_SIZE), 0);
+                    header.clear();
+                    header.putInt(0, MAGIC).putInt(4, VERSION).putInt(SLOT_COUNT, slots);
+                    indexChannel.write(header, 0);
+                    dataChannel.truncate(0);
+                    dataChannel.write((ByteBuffer) ByteBuffer.allocate(DATA_START).putInt(MAGIC).putInt(VERSION)
+                            .flip(), 0);
+                }
+                slotCount = slots;
+                index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) slots * SLOT_SIZE);
+                if (index.getInt(DIRTY) != 0) {
+                    // interrupted compaction
+                    reset();
+                }
+            } finally {
+                fileLock.release();
+            }
+        }
+    }
+
+    /**
+     * Looks up the text of a page.
+     *
+     * @param key the fingerprint of the page
+     * @return the cached text, or <code>null</code> if none
+     * @throws IOException
+     */
+    public String get(String key) throws IOException {
+        long hash = hash(key);
+        synchronized (processLock) {
+            FileLock fileLock = indexChannel.lock(0, Long.MAX_VALUE, true);
+            try {
+                for (int i = 0, slot = firstSlot(hash); i < slotCount; i++, slot = (slot + 1) % slotCount) {
+                    int pos = HEADER_SIZE + slot * SLOT_SIZE;
+                    long offset = index.getLong(pos + 8);
+                    if (offset == 0) {
+                        break;
+                    }
+                    if (index.getLong(pos) == hash) {
+                        String[] record = readRecord(offset, index.getInt(pos + 16));
+                        if (record != null && record[0].equals(key)) {
+                            hitCount++;
+                            return record[1];
+                        }
+                    }
+                }
+                missCount++;
+                return null;
+            } finally {
+                fileLock.release();
+            }
+        }
+    }
+
+    /**
+     * Stores the text of a page, compacting the cache if it exceeds its limits.
+     *
+     * @param key the fingerprint of the page
+     * @param text the recognized text
+     * @throws IOException
+     */
+    public void put(String key, String text) throws IOException {
+        byte[] keyBytes = key.getBytes("UTF-8");
+        byte[] textBytes = text.getBytes("UTF-8");
+        ByteBuffer record = ByteBuffer.allocate(8 + keyBytes.length + textBytes.length);
+        record.putInt(keyBytes.length).putInt(textBytes.length).put(keyBytes).put(textBytes).flip();
+        long hash = hash(key);
+
+        synchronized (processLock) {
+            FileLock fileLock = indexChannel.lock();
+            try {
+                long offset = dataChannel.size();
+                writeFully(record, offset);
+                int free = -1;
+                for (int i = 0, slot = firstSlot(hash); i < slotCount; i++, slot = (slot + 1) % slotCount) {
+                    int pos = HEADER_SIZE + slot * SLOT_SIZE;
+                    long slotOffset = index.getLong(pos + 8);
+                    if (slotOffset == 0) {
+                        free = pos;
+                        break;
+                    }
+                    if (index.getLong(pos) == hash) {
+                        String[] old = readRecord(slotOffset, index.getInt(pos + 16));
+                        if (old != null && old[0].equals(key)) {
+                            // replaced; the old record is dropped at the next compaction
+                            index.putLong(pos + 8, offset).putInt(pos + 16, record.limit());
+                            return;
+                        }
+                    }
+                }
+                if (free >= 0) {
+                    index.putLong(free, hash).putLong(free + 8, offset).putInt(free + 16, record.limit());
+                    index.putInt(ENTRY_COUNT, index.getInt(ENTRY_COUNT) + 1);
+                }
+                if (free < 0 || dataChannel.size() > maxBytes || index.getInt(ENTRY_COUNT) > slotCount / 2) {
+                    compact();
+                }
+            } finally {
+                fileLock.release();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of entries.
+     *
+     * @return the entry count
+     */
+    public int size() {
+        synchronized (processLock) {
+            return index.getInt(ENTRY_COUNT);
+        }
+    }
+
+    /**
+     * Gets the size of the segment file, including the texts replaced since the last compaction.
+     *
+     * @return the size in bytes
+     * @throws IOException
+     */
+    public long getByteSize() throws IOException {
+        return dataChannel.size();
+    }
+
+    /**
+     * Gets the number of lookups of this instance that found a text.
+     *
+     * @return the hit count
+     */
+    public long getHitCount() {
+        synchronized (processLock) {
+            return hitCount;
+        }
+    }
+
+    /**
+     * Gets the number of lookups of this instance that found no text.
+     *
+     * @return the miss count
+     */
+    public long getMissCount() {
+        synchronized (processLock) {
+            return missCount;
+        }
+    }
+
+    /**
+     * Closes the cache files.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        index.force();
+        indexFile.close();
+        dataFile.close();
+    }
+
+    /**
+     * Keeps the most recently stored texts within half of each limit, moving them to the start of the segment file,
+     * and rebuilds the index. Records only move towards the start, so they are copied in place in offset order.
+     */
+    private void compact() throws IOException {
+        index.putInt(DIRTY, 1);
+        List<long[]> live = new ArrayList<long[]>();
+        for (int slot = 0; slot < slotCount; slot++) {
+            int pos = HEADER_SIZE + slot * SLOT_SIZE;
+            long offset = index.getLong(pos + 8);
+            if (offset != 0) {
+                live.add(new long[] { offset, index.getInt(pos + 16), index.getLong(pos) });
+            }
+        }
+        Collections.sort(live, new Comparator<long[]>() {
+            @Override
+            public int compare(long[] a, long[] b) {
+                return a[0] < b[0] ? 1 : a[0] > b[0] ? -1 : 0;
+            }
+        });
+
+        // the newest records within half of the limits, in offset order
+        long bytes = DATA_START;
+        int count = 0;
+        while (count < live.size() && count < slotCount / 4 && bytes + live.get(count)[1] <= maxBytes / 2) {
+            bytes += live.get(count)[1];
+            count++;
+        }
+        List<long[]> kept = live.subList(0, count);
+        Collections.reverse(kept);
+
+        for (int pos = HEADER_SIZE; pos < HEADER_SIZE + slotCount * SLOT_SIZE; pos += 8) {
+            index.putLong(pos, 0);
+        }
+        long offset = DATA_START;
+        for (long[] entry : kept) {
+            ByteBuffer record = ByteBuffer.allocate((int) entry[1]);
+            readFully(record, entry[0]);
+            record.flip();
+            writeFully(record, offset);
+            int slot = firstSlot(entry[2]);
+            while (index.getLong(HEADER_SIZE + slot * SLOT_SIZE + 8) != 0) {
+                slot = (slot + 1) % slotCount;
+            }
+            int pos = HEADER_SIZE + slot * SLOT_SIZE;
+            index.putLong(pos, entry[2]).putLong(pos + 8, offset).putInt(pos + 16, (int) entry[1]);
+            offset += entry[1];
+        }
+        dataChannel.truncate(offset);
+        index.putInt(ENTRY_COUNT, count);
+        index.putInt(DIRTY, 0);
+    }
+
+    /**
+     * Empties the cache.
+     */
+    private void reset() throws IOException {
+        for (int pos = HEADER_SIZE; pos < HEADER_SIZE + slotCount * SLOT_SIZE; pos += 8) {
+            index.putLong(pos, 0);
+        }
+        dataChannel.truncate(DATA_START);
+        index.putInt(ENTRY_COUNT, 0);
+        index.putInt(DIRTY, 0);
+    }
+
+    /**
+     * Reads the key and text of a record, or <code>null</code> if the record is damaged.
+     */
+    private String[] readRecord(long offset, int length) throws IOException {
+        if (length < 8 || offset + length > dataChannel.size()) {
+            return null;
+        }
+        ByteBuffer record = ByteBuffer.allocate(length);
+        readFully(record, offset);
+        int keyLength = record.getInt(0);
+        int textLength = record.getInt(4);
+        if (keyLength < 0 || textLength < 0 || 8L + keyLength + textLength != length) {
+            return null;
+        }
+        return new String[] { new String(record.array(), 8, keyLength, "UTF-8"),
+                new String(record.array(), 8 + keyLength, textLength, "UTF-8") };
+    }
+
+    private void readFully(ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            if (dataChannel.read(buf, position + buf.position()) < 0) {
+                throw new IOException("Unexpected end of cache file");
+            }
+        }
+    }
+
+    private void writeFully(ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            dataChannel.write(buf, position + buf.position());
+        }
+    }
+
+    private int firstSlot(long hash) {
+        return (int) ((hash >>> 1) % slotCount);
+    }
+
+    /**
+     * 64-bit FNV-1a hash of a key.
+     */
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+}
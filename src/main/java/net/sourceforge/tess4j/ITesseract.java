@@ -15,7 +15,10 @@ package net.sourceforge.tess4j;
 import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.OutputStream;
+import java.io.Writer;
 import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.util.List;
 
 import javax.imageio.IIOImage;
@@ -76,6 +79,72 @@ public interface ITesseract {
      */
     String doOCR(BufferedImage bi, Rectangle rect) throws TesseractException;
 
+    /**
+     * Performs OCR operation and returns the recognized elements of each page with their bounding boxes and
+     * confidences.
+     * 
+     * @param imageFile an image file
+     * @param pageIteratorLevel the level of the elements, one of the <code>TessPageIteratorLevel</code> constants
+     * @return the result of each page
+     * @throws TesseractException
+     */
+    List<OCRResult> recognize(File imageFile, int pageIteratorLevel) throws TesseractException;
+
+    /**
+     * Performs OCR operation and returns the recognized elements with their bounding boxes and confidences.
+     * 
+     * @param bi a buffered image
+     * @param pageIteratorLevel the level of the elements, one of the <code>TessPageIteratorLevel</code> constants
+     * @return the result
+     * @throws TesseractException
+     */
+    OCRResult recognize(BufferedImage bi, int pageIteratorLevel) throws TesseractException;
+
+    /**
+     * Performs OCR operation and returns the recognized elements of each page with their bounding boxes and
+     * confidences.
+     * 
+     * @param imageList a list of <code>IIOImage</code> objects
+     * @param pageIteratorLevel the level of the elements, one of the <code>TessPageIteratorLevel</code> constants
+     * @return the result of each page
+     * @throws TesseractException
+     */
+    List<OCRResult> recognize(List<IIOImage> imageList, int pageIteratorLevel) throws TesseractException;
+
+    /**
+     * Performs OCR operation, passing each recognized element to the listener as soon as it is available.
+     * 
+     * @param imageList a list of <code>IIOImage</code> objects
+     * @param pageIteratorLevel the level of the elements, one of the <code>TessPageIteratorLevel</code> constants
+     * @param listener the listener receiving the elements of each page
+     * @throws TesseractException
+     */
+    void recognize(List<IIOImage> imageList, int pageIteratorLevel, OCRResultListener listener)
+            throws TesseractException;
+
+    /**
+     * Performs layout analysis only, finding the blocks of an image and their types without recognizing their text.
+     * The block rectangles refer to the image as passed, which is not deskewed or turned upright.
+     * 
+     * @param bi a buffered image
+     * @return the blocks of the image, in reading order
+     * @throws TesseractException
+     */
+    List<LayoutBlock> analyzeLayout(BufferedImage bi) throws TesseractException;
+
+    /**
+     * Performs OCR operation on several regions of an image, setting the image once for all of them. The regions
+     * refer to the image as passed, which is not deskewed or turned upright.
+     * 
+     * @param bi a buffered image
+     * @param regions the regions of the image to be recognized, which may be {@link OCRRegion} objects with settings
+     * of their own. A region of zero dimension indicates the whole image.
+     * @return the recognized text of each region, in the order of the regions
+     * @throws TesseractException If the buffered image &/ regions are null or not compatible with the types of images
+     * allowed by the class implementing this interface.
+     */
+    List<String> doOCRRegions(BufferedImage bi, List<? extends Rectangle> regions) throws TesseractException;
+
     /**
      * Performs OCR operation.
      * 
@@ -88,6 +157,53 @@ public interface ITesseract {
      */
     String doOCR(List<IIOImage> imageList, Rectangle rect) throws TesseractException;
 
+    /**
+     * Performs OCR operation, passing the text of each page to the listener as soon as the page is recognized.
+     * 
+     * @param imageList a list of <code>IIOImage</code> objects
+     * @param rect the bounding rectangle defines the region of the image to be recognized. A rectangle of zero
+     * dimension or <code>null</code> indicates the whole image.
+     * @param listener the listener receiving the text of each page
+     * @throws TesseractException
+     */
+    void doOCR(List<IIOImage> imageList, Rectangle rect, OCRResultListener listener) throws TesseractException;
+
+    /**
+     * Performs OCR operation, writing the text of each page, enclosed in the hOCR header and footer in hOCR mode, to
+     * the writer as soon as the page is recognized.
+     * 
+     * @param imageList a list of <code>IIOImage</code> objects
+     * @param rect the bounding rectangle defines the region of the image to be recognized. A rectangle of zero
+     * dimension or <code>null</code> indicates the whole image.
+     * @param writer the writer receiving the text
+     * @throws TesseractException
+     */
+    void doOCR(List<IIOImage> imageList, Rectangle rect, Writer writer) throws TesseractException;
+
+    /**
+     * Performs OCR operation, writing the text of each page in UTF-8, enclosed in the hOCR header and footer in hOCR
+     * mode, to the output stream as soon as the page is recognized.
+     * 
+     * @param imageList a list of <code>IIOImage</code> objects
+     * @param rect the bounding rectangle defines the region of the image to be recognized. A rectangle of zero
+     * dimension or <code>null</code> indicates the whole image.
+     * @param out the output stream receiving the text
+     * @throws TesseractException
+     */
+    void doOCR(List<IIOImage> imageList, Rectangle rect, OutputStream out) throws TesseractException;
+
+    /**
+     * Performs OCR operation, writing the UTF-8 text of each page, enclosed in the hOCR header and footer in hOCR mode,
+     * to the channel as soon as the page is recognized, without decoding it into strings.
+     * 
+     * @param imageList a list of <code>IIOImage</code> objects
+     * @param rect the bounding rectangle defines the region of the image to be recognized. A rectangle of zero
+     * dimension or <code>null</code> indicates the whole image.
+     * @param channel the channel receiving the UTF-8 text
+     * @throws TesseractException
+     */
+    void doOCR(List<IIOImage> imageList, Rectangle rect, WritableByteChannel channel) throws TesseractException;
+
     /**
      * Performs OCR operation. Use <code>SetImage</code>, (optionally) <code>SetRectangle</code>, and one or more of the
      * <code>Get*Text</code> functions.
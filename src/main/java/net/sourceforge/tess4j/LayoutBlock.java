@@ -0,0 +1,61 @@
+/**
+ * Copyright @ 2014 Quan Nguyen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.sourceforge.tess4j;
+
+import java.awt.Rectangle;
+import net.sourceforge.tess4j.util.Utils;
+
+/**
+ * A block of a page found by layout analysis, with its bounding box and its type, one of the
+ * <code>TessPolyBlockType</code> constants such as flowing text, table or image.
+ */
+public class LayoutBlock {
+
+    private final int blockType;
+    private final int left;
+    private final int top;
+    private final int right;
+    private final int bottom;
+
+    LayoutBlock(int blockType, int left, int top, int right, int bottom) {
+        this.blockType = blockType;
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+    }
+
+    /**
+     * Gets the type of the block.
+     *
+     * @return one of the <code>TessPolyBlockType</code> constants
+     */
+    public int getBlockType() {
+        return blockType;
+    }
+
+    /**
+     * Gets the bounding box in image coordinates.
+     *
+     * @return a new rectangle enclosing the block
+     */
+    public Rectangle getBoundingBox() {
+        return new Rectangle(left, top, right - left, bottom - top);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %d %d %d %d", Utils.getConstantName(blockType, TessAPI.TessPolyBlockType.class), left,
+                top, right, bottom);
+    }
+}
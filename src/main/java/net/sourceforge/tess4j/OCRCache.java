@@ -0,0 +1,223 @@
+/**
+ * Copyright @ 2014 Quan Nguyen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.sourceforge.tess4j;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A cache of recognized page texts, keyed by a fingerprint of the page image and of the settings affecting the output
+ * (see {@link net.sourceforge.tess4j.util.Utils#fingerprint}). The least recently used entries are evicted when the
+ * cache exceeds its entry count or its byte size, the latter approximated by the characters of keys and texts. A
+ * cache may be shared by several OCR instances, and backed by a {@link DiskOCRCache} to keep texts across restarts
+ * and share them among processes.
+ */
+public class OCRCache {
+
+    private final int                           maxEntries;
+    private final long                          maxBytes;
+    private final LinkedHashMap<String, String> entries = new LinkedHashMap<String, String>(16, 0.75f, true);
+    private long                                byteSize;
+    private long                                hitCount;
+    private long                                missCount;
+    private long                                evictionCount;
+    private long                                diskHitCount;
+    private DiskOCRCache                        diskCache;
+
+    private final static Logger                 logger  = Logger.getLogger(OCRCache.class.getName());
+
+    /**
+     * Creates a cache.
+     *
+     * @param maxEntries the largest number of entries
+     * @param maxBytes the largest total size of the entries, in bytes
+     */
+    public OCRCache(int maxEntries, long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Sets the disk tier of the cache. Texts missing from memory are looked up on disk, and stored texts are written to
+     * both. Disk errors are logged and treated as misses.
+     *
+     * @param diskCache the disk cache, or <code>null</code> for none
+     */
+    public synchronized void setDiskCache(DiskOCRCache diskCache) {
+        this.diskCache = diskCache;
+    }
+
+    /**
+     * Looks up the text of a page, in memory then on disk, counting a hit or a miss.
+     *
+     * @param key the fingerprint of the page
+     * @return the cached text, or <code>null</code> if none
+     */
+    public String get(String key) {
+        DiskOCRCache disk;
+        synchronized (this) {
+            String text = entries.get(key);
+            if (text != null) {
+                hitCount++;
+                return text;
+            }
+            disk = diskCache;
+        }
+
+        String text = null;
+        if (disk != null) {
+            try {
+                text = disk.get(key);
+            } catch (IOException ioe) {
+                logger.log(Level.SEVERE, ioe.getMessage(), ioe);
+            }
+        }
+
+        synchronized (this) {
+            if (text == null) {
+                missCount++;
+            } else {
+                hitCount++;
+                diskHitCount++;
+                putEntry(key, text);
+            }
+        }
+        return text;
+    }
+
+    /**
+     * Stores the text of a page, evicting the least recently used entries as needed. A text larger than the cache
+     * itself is not kept in memory.
+     *
+     * @param key the fingerprint of the page
+     * @param text the recognized text
+     */
+    public void put(String key, String text) {
+        DiskOCRCache disk;
+        synchronized (this) {
+            putEntry(key, text);
+            disk = diskCache;
+        }
+
+        if (disk != null) {
+            try {
+                disk.put(key, text);
+            } catch (IOException ioe) {
+                logger.log(Level.SEVERE, ioe.getMessage(), ioe);
+            }
+        }
+    }
+
+    private void putEntry(String key, String text) {
+        String old = entries.put(key, text);
+        if (old != null) {
+            byteSize -= getSize(key, old);
+        }
+        byteSize += getSize(key, text);
+
+        Iterator<Map.Entry<String, String>> it = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || byteSize > maxBytes) && it.hasNext()) {
+            Map.Entry<String, String> eldest = it.next();
+            byteSize -= getSize(eldest.getKey(), eldest.getValue());
+            it.remove();
+            evictionCount++;
+        }
+    }
+
+    /**
+     * Removes all the entries. The counters are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        byteSize = 0;
+    }
+
+    /**
+     * Gets the number of entries.
+     *
+     * @return the entry count
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the approximate total size of the entries.
+     *
+     * @return the size in bytes
+     */
+    public synchronized long getByteSize() {
+        return byteSize;
+    }
+
+    /**
+     * Gets the number of lookups that found a text.
+     *
+     * @return the hit count
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Gets the number of lookups that found no text.
+     *
+     * @return the miss count
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Gets the share of lookups that found a text.
+     *
+     * @return the hit rate, from 0 to 1
+     */
+    public synchronized double getHitRate() {
+        long lookups = hitCount + missCount;
+        return lookups == 0 ? 0 : (double) hitCount / lookups;
+    }
+
+    /**
+     * Gets the number of lookups that found a text on disk only.
+     *
+     * @return the disk hit count
+     */
+    public synchronized long getDiskHitCount() {
+        return diskHitCount;
+    }
+
+    /**
+     * Gets the number of entries evicted to keep the cache within its limits.
+     *
+     * @return the eviction count
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    private static long getSize(String key, String text) {
+        return 2L * (key.length() + text.length());
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("Entries: %d, bytes: %d, hits: %d (from disk: %d), misses: %d, hit rate: %.2f, "
+                + "evictions: %d", entries.size(), byteSize, hitCount, diskHitCount, missCount, getHitRate(),
+                evictionCount);
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright @ 2014 Quan Nguyen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.sourceforge.tess4j;
+
+import java.awt.Rectangle;
+
+/**
+ * A region of an image to be recognized, such as a form field, with optional recognition settings of its own. Settings
+ * left unset fall back to those of the OCR instance.
+ */
+public class OCRRegion extends Rectangle {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Page segmentation mode value meaning that of the OCR instance.
+     */
+    public static final int   DEFAULT_PAGE_SEG_MODE = -1;
+
+    private int               pageSegMode      = DEFAULT_PAGE_SEG_MODE;
+    private String            whitelist;
+
+    /**
+     * Creates a region.
+     *
+     * @param x the X coordinate of the upper-left corner of the region
+     * @param y the Y coordinate of the upper-left corner of the region
+     * @param width the width of the region
+     * @param height the height of the region
+     */
+    public OCRRegion(int x, int y, int width, int height) {
+        super(x, y, width, height);
+    }
+
+    /**
+     * Creates a region with its own page segmentation mode and character whitelist.
+     *
+     * @param rect the bounds of the region
+     * @param pageSegMode the page segmentation mode, or {@link #DEFAULT_PAGE_SEG_MODE}
+     * @param whitelist the characters to recognize, or <code>null</code> for those of the OCR instance
+     */
+    public OCRRegion(Rectangle rect, int pageSegMode, String whitelist) {
+        super(rect);
+        this.pageSegMode = pageSegMode;
+        this.whitelist = whitelist;
+    }
+
+    /**
+     * Gets the page segmentation mode of the region.
+     *
+     * @return the page segmentation mode, or {@link #DEFAULT_PAGE_SEG_MODE}
+     */
+    public int getPageSegMode() {
+        return pageSegMode;
+    }
+
+    /**
+     * Sets the page segmentation mode of the region, such as <code>PSM_SINGLE_LINE</code> for a one-line field.
+     *
+     * @param pageSegMode the page segmentation mode, or {@link #DEFAULT_PAGE_SEG_MODE}
+     */
+    public void setPageSegMode(int pageSegMode) {
+        this.pageSegMode = pageSegMode;
+    }
+
+    /**
+     * Gets the character whitelist of the region.
+     *
+     * @return the characters to recognize, or <code>null</code> for those of the OCR instance
+     */
+    public String getWhitelist() {
+        return whitelist;
+    }
+
+    /**
+     * Restricts recognition in the region to the given characters, as <code>tessedit_char_whitelist</code> does, such
+     * as <code>"0123456789"</code> for a numeric field.
+     *
+     * @param whitelist the characters to recognize, or <code>null</code> for those of the OCR instance
+     */
+    public void setWhitelist(String whitelist) {
+        this.whitelist = whitelist;
+    }
+}
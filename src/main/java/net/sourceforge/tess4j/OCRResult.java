@@ -0,0 +1,84 @@
+/**
+ * Copyright @ 2014 Quan Nguyen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.sourceforge.tess4j;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The structured result of recognizing a page: its elements at one iterator level, in reading order, with their
+ * bounding boxes and confidences.
+ */
+public class OCRResult {
+
+    private final int        pageIteratorLevel;
+    private final List<Word> words;
+    private final int        meanConfidence;
+    private final int        orientation;
+    private final boolean    blank;
+
+    OCRResult(int pageIteratorLevel, List<Word> words, int meanConfidence, int orientation, boolean blank) {
+        this.pageIteratorLevel = pageIteratorLevel;
+        this.words = Collections.unmodifiableList(words);
+        this.meanConfidence = meanConfidence;
+        this.orientation = orientation;
+        this.blank = blank;
+    }
+
+    /**
+     * Gets the level of the elements, one of the <code>TessPageIteratorLevel</code> constants.
+     *
+     * @return the page iterator level
+     */
+    public int getPageIteratorLevel() {
+        return pageIteratorLevel;
+    }
+
+    /**
+     * Gets the recognized elements of the page.
+     *
+     * @return the elements, in reading order
+     */
+    public List<Word> getWords() {
+        return words;
+    }
+
+    /**
+     * Gets the mean confidence of the words of the page.
+     *
+     * @return the mean confidence, from 0 to 100
+     */
+    public int getMeanConfidence() {
+        return meanConfidence;
+    }
+
+    /**
+     * Gets the orientation of the page as found by orientation detection, before the page was rotated upright for
+     * recognition.
+     *
+     * @return one of the <code>TessOrientation</code> constants; <code>ORIENTATION_PAGE_UP</code> when detection is
+     * disabled
+     */
+    public int getOrientation() {
+        return orientation;
+    }
+
+    /**
+     * Tells whether the page was found blank by blank page detection and skipped, in which case it has no elements.
+     *
+     * @return <code>true</code> if the page is blank
+     */
+    public boolean isBlank() {
+        return blank;
+    }
+}
@@ -0,0 +1,28 @@
+/**
+ * Copyright @ 2014 Quan Nguyen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.sourceforge.tess4j;
+
+/**
+ * An <code>OCRResultListener</code> with empty methods, to be extended by listeners interested in only some of the
+ * results.
+ */
+public abstract class OCRResultAdapter implements OCRResultListener {
+
+    @Override
+    public void wordRecognized(int pageIndex, Word word) {
+    }
+
+    @Override
+    public void pageRecognized(int pageIndex, String text) {
+    }
+}
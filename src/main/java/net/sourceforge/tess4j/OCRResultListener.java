@@ -0,0 +1,37 @@
+/**
+ * Copyright @ 2014 Quan Nguyen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.sourceforge.tess4j;
+
+/**
+ * Receives recognition results as soon as they are available, page by page or element by element, so that a long
+ * document need not be held in memory as one string.
+ */
+public interface OCRResultListener {
+
+    /**
+     * Invoked for each recognized element of a page when results are requested at an iterator level.
+     *
+     * @param pageIndex the index of the page in the document, counting from 0
+     * @param word the recognized element
+     */
+    void wordRecognized(int pageIndex, Word word);
+
+    /**
+     * Invoked when a page has been recognized. Pages that cannot be read are skipped.
+     *
+     * @param pageIndex the index of the page in the document, counting from 0
+     * @param text the recognized text, or in hOCR mode the <code>ocr_page</code> element of the page; <code>null</code>
+     * when the page was delivered element by element
+     */
+    void pageRecognized(int pageIndex, String text);
+}
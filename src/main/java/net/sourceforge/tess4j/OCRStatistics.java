@@ -0,0 +1,128 @@
+/**
+ * Copyright @ 2014 Quan Nguyen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.sourceforge.tess4j;
+
+/**
+ * Page counts of an OCR run, reporting how many pages went through the engine and how many were satisfied otherwise.
+ */
+public class OCRStatistics {
+
+    private int pageCount;
+    private int recognizedPageCount;
+    private int textLayerPageCount;
+    private int rotatedPageCount;
+    private int cachedPageCount;
+    private int duplicatePageCount;
+    private int blankPageCount;
+
+    /**
+     * Gets the total number of pages processed.
+     *
+     * @return the page count
+     */
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    /**
+     * Gets the number of pages passed to the OCR engine for recognition.
+     *
+     * @return the recognized page count
+     */
+    public int getRecognizedPageCount() {
+        return recognizedPageCount;
+    }
+
+    /**
+     * Gets the number of PDF pages whose text was taken from the document's text layer, skipping rasterization and
+     * recognition.
+     *
+     * @return the text layer page count
+     */
+    public int getTextLayerPageCount() {
+        return textLayerPageCount;
+    }
+
+    /**
+     * Gets the number of pages found upside down or sideways by orientation detection and rotated before recognition.
+     *
+     * @return the rotated page count
+     */
+    public int getRotatedPageCount() {
+        return rotatedPageCount;
+    }
+
+    /**
+     * Gets the number of pages whose text was found in the result cache, skipping recognition.
+     *
+     * @return the cached page count
+     */
+    public int getCachedPageCount() {
+        return cachedPageCount;
+    }
+
+    /**
+     * Gets the number of pages identical to an earlier page of the same batch, whose text was reused without
+     * recognition.
+     *
+     * @return the duplicate page count
+     */
+    public int getDuplicatePageCount() {
+        return duplicatePageCount;
+    }
+
+    /**
+     * Gets the number of pages found blank by blank page detection, whose recognition was skipped.
+     *
+     * @return the blank page count
+     */
+    public int getBlankPageCount() {
+        return blankPageCount;
+    }
+
+    void addRecognizedPage() {
+        pageCount++;
+        recognizedPageCount++;
+    }
+
+    void addTextLayerPage() {
+        pageCount++;
+        textLayerPageCount++;
+    }
+
+    void addCachedPage() {
+        pageCount++;
+        cachedPageCount++;
+    }
+
+    void addDuplicatePage() {
+        pageCount++;
+        duplicatePageCount++;
+    }
+
+    void addBlankPage() {
+        pageCount++;
+        blankPageCount++;
+    }
+
+    void addRotatedPage() {
+        rotatedPageCount++;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Pages: %d, recognized: %d, from text layer: %d, from cache: %d, duplicates: %d, "
+                + "blank: %d, rotated: %d", pageCount, recognizedPageCount, textLayerPageCount, cachedPageCount,
+                duplicatePageCount, blankPageCount, rotatedPageCount);
+    }
+}
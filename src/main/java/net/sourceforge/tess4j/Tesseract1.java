@@ -15,12 +15,21 @@
  */
 package net.sourceforge.tess4j;
 
+import net.sourceforge.tess4j.util.Utils;
+import net.sourceforge.vietocr.ImageHelper;
 import net.sourceforge.vietocr.ImageIOHelper;
+import net.sourceforge.vietocr.ImagePipeline;
+import net.sourceforge.vietocr.PdfRenderProfile;
+import net.sourceforge.vietocr.PdfUtilities;
+import com.recognition.software.jdeskew.ImageDeskew;
 import com.sun.jna.Pointer;
 import java.awt.Rectangle;
 import java.awt.image.*;
 import java.io.*;
 import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.util.*;
 import java.util.logging.*;
 import javax.imageio.IIOImage;
@@ -43,12 +52,28 @@ public class Tesseract1 extends TessAPI1 implements ITesseract {
     private String              datapath      = "./";
     private int                 psm           = TessAPI1.TessPageSegMode.PSM_AUTO;
     private boolean             hocr;
+    private boolean             pdfTextLayerEnabled;
+    private int                 pdfTextLayerMinCharacters = PdfUtilities.DEFAULT_MIN_TEXT_LAYER_CHARACTERS;
     private int                 pageNum;
     private int                 ocrEngineMode = TessAPI1.TessOcrEngineMode.OEM_DEFAULT;
     private final Properties    prop          = new Properties();
+    private PdfRenderProfile    pdfRenderProfile = new PdfRenderProfile();
+    private boolean             deskew;
+    private double              deskewThreshold = 0.05d;
+    private int                 binarization  = ImageHelper.BINARIZATION_NONE;
+    private boolean             autoRotate;
+    private int                 orientation   = TessAPI1.TessOrientation.ORIENTATION_PAGE_UP;
+    private ImagePipeline       imagePipeline;
+    private OCRCache            cache;
+    private boolean             pageDeduplication;
+    private double              blankPageThreshold;
+    private OCRStatistics       statistics    = new OCRStatistics();
+    private Rectangle           imageBounds;
 
     private TessBaseAPI         handle;
 
+    private final static String WHITELIST_VARIABLE = "tessedit_char_whitelist";
+
     private final static Logger logger        = Logger.getLogger(Tesseract1.class.getName());
 
     /**
@@ -104,6 +129,150 @@ public class Tesseract1 extends TessAPI1 implements ITesseract {
         prop.setProperty("tessedit_create_hocr", hocr ? "1" : "0");
     }
 
+    /**
+     * Enables use of the text layer of PDF documents. Pages that already carry extractable text, such as born-digital
+     * or previously OCRed pages, are returned as is; only image-only pages are rendered and recognized. The text layer
+     * is not used for hOCR output or when a bounding rectangle is specified.
+     * 
+     * @param enabled to enable or disable use of the PDF text layer
+     */
+    public void setPdfTextLayerEnabled(boolean enabled) {
+        this.pdfTextLayerEnabled = enabled;
+    }
+
+    /**
+     * Sets the smallest number of letters and digits of the text of a PDF page for its text layer to be used. Pages
+     * with less text, such as scans stamped with a page or Bates number, are rendered and recognized. The default is
+     * {@value net.sourceforge.vietocr.PdfUtilities#DEFAULT_MIN_TEXT_LAYER_CHARACTERS}.
+     * 
+     * @param minCharacters the smallest number of letters and digits of a text layer
+     */
+    public void setPdfTextLayerMinCharacters(int minCharacters) {
+        this.pdfTextLayerMinCharacters = minCharacters;
+    }
+
+    /**
+     * Sets the Ghostscript settings for rendering PDF pages that are not decoded from embedded images.
+     * 
+     * @param profile the rendering settings
+     */
+    public void setPdfRenderProfile(PdfRenderProfile profile) {
+        this.pdfRenderProfile = profile;
+    }
+
+    /**
+     * Enables skew correction. The skew angle of each page image is measured, and if it exceeds the threshold, the
+     * pixel data passed to the engine are rotated in place to straighten the page. Images passed as raw pixel data, and
+     * the images of region recognition and layout analysis, whose coordinates refer to the image as passed, are not
+     * corrected.
+     * 
+     * @param deskew to enable or disable skew correction
+     */
+    public void setDeskew(boolean deskew) {
+        this.deskew = deskew;
+    }
+
+    /**
+     * Enables orientation detection. Each page image is first analyzed for its orientation, and an upside-down or
+     * sideways page is rotated by the matching multiple of 90 degrees before it is recognized, once. Rotated pages are
+     * counted in the statistics. Only whole pages are rotated: images with a bounding rectangle, images passed as raw
+     * pixel data, and the images of region recognition and layout analysis, whose coordinates refer to the image as
+     * passed, are not. Requires the <code>osd</code> language data.
+     * 
+     * @param autoRotate to enable or disable orientation detection
+     */
+    public void setAutoRotate(boolean autoRotate) {
+        this.autoRotate = autoRotate;
+    }
+
+    /**
+     * Sets the smallest skew angle that is corrected. The default is 0.05 degree.
+     * 
+     * @param threshold the threshold angle in degrees
+     */
+    public void setDeskewThreshold(double threshold) {
+        this.deskewThreshold = threshold;
+    }
+
+    /**
+     * Sets the method by which page images are binarized before they are passed to the engine. Binary images are
+     * passed at 1 bit per pixel, which is less data to transfer and leaves the engine no thresholding to do. Images
+     * that already are binary, and images passed as raw pixel data, are not binarized.
+     * 
+     * @param method {@link ImageHelper#BINARIZATION_NONE}, the default, {@link ImageHelper#BINARIZATION_OTSU} or
+     * {@link ImageHelper#BINARIZATION_SAUVOLA}
+     */
+    public void setBinarization(int method) {
+        if (method < ImageHelper.BINARIZATION_NONE || method > ImageHelper.BINARIZATION_SAUVOLA) {
+            throw new IllegalArgumentException("Unknown binarization method: " + method);
+        }
+        this.binarization = method;
+    }
+
+    /**
+     * Sets a cache of recognized page texts. Before a page image is recognized, its text is looked up by a fingerprint
+     * of its pixel data combined with every setting affecting the output; on a hit, recognition is skipped. Pages with
+     * a preprocessing pipeline are matched by the stages of the pipeline. The cache applies to the text returned by
+     * the <code>doOCR</code> methods for files, buffered images and image lists, and to the text passed to a listener,
+     * writer or output stream, including the rendered pages of a PDF document read with its text layer. It does not
+     * apply to hOCR output, which is numbered by page, to the text written to a <code>WritableByteChannel</code>,
+     * which is passed on as the engine returns it, to the structured results of <code>recognize</code>, to region
+     * recognition, or to raw pixel data.
+     * 
+     * @param cache the cache, or <code>null</code> for none
+     */
+    public void setCache(OCRCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Enables duplicate page detection within each batch of images, or each PDF document read with its text layer.
+     * Each page image is fingerprinted by its pixel data; a page identical to an earlier one, such as a repeated cover
+     * sheet or separator, gets the text of that page without being recognized again. Duplicates are counted in the
+     * statistics. Detection applies to the same paths as the cache; see {@link #setCache(OCRCache)}.
+     * 
+     * @param pageDeduplication to enable or disable duplicate page detection
+     */
+    public void setPageDeduplication(boolean pageDeduplication) {
+        this.pageDeduplication = pageDeduplication;
+    }
+
+    /**
+     * Enables blank page detection. Before a page image is passed to the engine, the share of it covered by marks is
+     * estimated on a coarse grid, leaving out specks and borders; below the threshold, the page is taken as blank and
+     * yields empty text without being recognized. Blank pages, such as separator sheets and empty backs of duplex
+     * scans, are counted in the statistics and flagged in structured results. Only whole buffered images are checked;
+     * hOCR output, which is numbered by page, is not affected.
+     * 
+     * @param blankPageThreshold the ink density below which a page is blank, such as 0.0001 for a page that may hold a
+     * single short line of text; 0 to disable blank page detection
+     * @see ImageHelper#getInkDensity(BufferedImage)
+     */
+    public void setBlankPageThreshold(double blankPageThreshold) {
+        this.blankPageThreshold = blankPageThreshold;
+    }
+
+    /**
+     * Sets the preprocessing stages applied to page images, which are then written by the pipeline straight into the
+     * pixel data passed to the engine. When set, the pipeline replaces the binarization and skew correction settings;
+     * add the corresponding stages to it instead. Recognition rectangles refer to the processed image. Images passed
+     * as raw pixel data are not processed.
+     * 
+     * @param pipeline the preprocessing stages, or <code>null</code> for none
+     */
+    public void setImagePipeline(ImagePipeline pipeline) {
+        this.imagePipeline = pipeline;
+    }
+
+    /**
+     * Gets the page counts of the last OCR operation.
+     * 
+     * @return statistics of the last run
+     */
+    public OCRStatistics getStatistics() {
+        return statistics;
+    }
+
     /**
      * Set the value of Tesseract's internal parameter.
      * 
@@ -148,7 +317,11 @@ public class Tesseract1 extends TessAPI1 implements ITesseract {
     @Override
     public String doOCR(File imageFile, Rectangle rect) throws TesseractException {
         try {
-            return doOCR(ImageIOHelper.getIIOImageList(imageFile), rect);
+            if (pdfTextLayerEnabled && !hocr && (rect == null || rect.isEmpty())
+                    && imageFile.getName().toLowerCase().endsWith(".pdf")) {
+                return doPdfOCR(imageFile);
+            }
+            return doOCR(ImageIOHelper.getIIOImageList(imageFile, 0, 0, pdfRenderProfile), rect);
         } catch (Exception e) {
             logger.log(Level.SEVERE, e.getMessage(), e);
             throw new TesseractException(e);
@@ -186,6 +359,68 @@ public class Tesseract1 extends TessAPI1 implements ITesseract {
         }
     }
 
+    /**
+     * Performs OCR operation on several regions of an image, such as the fields of a form. The image is converted and
+     * passed to the engine once; each region is then selected and recognized in turn, with its own page segmentation
+     * mode and character whitelist if it is an {@link OCRRegion}. The regions refer to the image as passed, which is
+     * neither deskewed nor turned upright; with an image pipeline set, they refer to the processed image.
+     * 
+     * @param bi a buffered image
+     * @param regions the regions of the image to be recognized. A region of zero dimension indicates the whole image.
+     * @return the recognized text of each region, in the order of the regions
+     * @throws TesseractException
+     */
+    @Override
+    public List<String> doOCRRegions(BufferedImage bi, List<? extends Rectangle> regions) throws TesseractException {
+        init();
+        setTessVariables();
+
+        try {
+            pageNum++;
+            // the regions refer to the image as passed, which is neither deskewed nor turned upright
+            setImageData(bi, null, false);
+            List<String> texts = new ArrayList<String>(regions.size());
+            String defaultWhitelist = prop.getProperty(WHITELIST_VARIABLE, "");
+            int currentMode = psm;
+            String currentWhitelist = defaultWhitelist;
+
+            for (Rectangle region : regions) {
+                int mode = psm;
+                String whitelist = defaultWhitelist;
+                if (region instanceof OCRRegion) {
+                    OCRRegion ocrRegion = (OCRRegion) region;
+                    if (ocrRegion.getPageSegMode() != OCRRegion.DEFAULT_PAGE_SEG_MODE) {
+                        mode = ocrRegion.getPageSegMode();
+                    }
+                    if (ocrRegion.getWhitelist() != null) {
+                        whitelist = ocrRegion.getWhitelist();
+                    }
+                }
+                // settings are only passed when they change from one region to the next
+                if (mode != currentMode) {
+                    TessBaseAPISetPageSegMode(handle, mode);
+                    currentMode = mode;
+                }
+                if (!whitelist.equals(currentWhitelist)) {
+                    TessBaseAPISetVariable(handle, WHITELIST_VARIABLE, whitelist);
+                    currentWhitelist = whitelist;
+                }
+
+                Rectangle rect = region.isEmpty() ? imageBounds : region;
+                TessBaseAPISetRectangle(handle, rect.x, rect.y, rect.width, rect.height);
+                texts.add(getOCRText());
+            }
+
+            statistics.addRecognizedPage();
+            return texts;
+        } catch (IOException ioe) {
+            logger.log(Level.SEVERE, ioe.getMessage(), ioe);
+            throw new TesseractException(ioe);
+        } finally {
+            dispose();
+        }
+    }
+
     /**
      * Performs OCR operation.
      * 
@@ -197,26 +432,428 @@ public class Tesseract1 extends TessAPI1 implements ITesseract {
      */
     @Override
     public String doOCR(List<IIOImage> imageList, Rectangle rect) throws TesseractException {
+        final StringBuilder sb = new StringBuilder();
+        if (hocr) {
+            sb.append(htmlBeginTag);
+        }
+
+        doOCR(imageList, rect, new OCRResultAdapter() {
+            @Override
+            public void pageRecognized(int pageIndex, String text) {
+                sb.append(text);
+            }
+        });
+
+        if (hocr) {
+            sb.append(htmlEndTag);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Performs OCR operation, passing the text of each page to the listener as soon as the page is recognized. In hOCR
+     * mode, each page is an <code>ocr_page</code> element and the enclosing HTML document is left to the listener.
+     * 
+     * @param imageList a list of <code>IIOImage</code> objects
+     * @param rect the bounding rectangle defines the region of the image to be recognized. A rectangle of zero
+     * dimension or <code>null</code> indicates the whole image.
+     * @param listener the listener receiving the text of each page
+     * @throws TesseractException
+     */
+    @Override
+    public void doOCR(List<IIOImage> imageList, Rectangle rect, OCRResultListener listener) throws TesseractException {
         init();
         setTessVariables();
 
         try {
-            StringBuilder sb = new StringBuilder();
+            // texts of the pages of this batch, by fingerprint
+            Map<String, String> batchTexts = pageDeduplication && !hocr ? new HashMap<String, String>() : null;
+            recognizePages(imageList, rect, batchTexts, listener);
+        } finally {
+            dispose();
+        }
+    }
+
+    /**
+     * Recognizes page images with the engine initialized, passing the text of each page to the listener. Blank pages
+     * are skipped, and the texts of pages are looked up in the cache and among the earlier pages of the batch.
+     * 
+     * @param imageList a list of <code>IIOImage</code> objects
+     * @param rect the bounding rectangle defines the region of the image to be recognized. A rectangle of zero
+     * dimension or <code>null</code> indicates the whole image.
+     * @param batchTexts the texts of the pages of the batch by fingerprint, or <code>null</code> for no duplicate page
+     * detection
+     * @param listener the listener receiving the text of each page
+     */
+    private void recognizePages(List<IIOImage> imageList, Rectangle rect, Map<String, String> batchTexts,
+            OCRResultListener listener) {
+        for (int i = 0; i < imageList.size(); i++) {
+            IIOImage oimage = imageList.get(i);
+            pageNum++;
+            if (!hocr && isBlankPage(oimage.getRenderedImage(), rect)) {
+                statistics.addBlankPage();
+                listener.pageRecognized(i, "");
+                continue;
+            }
+            try {
+                String key = null;
+                if ((cache != null || batchTexts != null) && !hocr) {
+                    key = Utils.fingerprint(oimage.getRenderedImage(), getCacheSettings(oimage, rect));
+                    String text = batchTexts != null ? batchTexts.get(key) : null;
+                    if (text != null) {
+                        statistics.addDuplicatePage();
+                        listener.pageRecognized(i, text);
+                        continue;
+                    }
+                    text = cache != null ? cache.get(key) : null;
+                    if (text != null) {
+                        statistics.addCachedPage();
+                        if (batchTexts != null) {
+                            batchTexts.put(key, text);
+                        }
+                        listener.pageRecognized(i, text);
+                        continue;
+                    }
+                }
+
+                setImage(oimage.getRenderedImage(), rect);
+                setSourceResolution(oimage);
+                String text = getOCRText();
+                statistics.addRecognizedPage();
+                if (key != null) {
+                    if (cache != null) {
+                        cache.put(key, text);
+                    }
+                    if (batchTexts != null) {
+                        batchTexts.put(key, text);
+                    }
+                }
+                listener.pageRecognized(i, text);
+            } catch (IOException ioe) {
+                // skip the problematic image
+                logger.log(Level.SEVERE, ioe.getMessage(), ioe);
+            }
+        }
+    }
+
+    /**
+     * Performs OCR operation, writing the text of each page to the writer as soon as the page is recognized. In hOCR
+     * mode, the document header is written first and the footer last, so that memory use is bounded by a single page
+     * however long the document. The writer is flushed but not closed.
+     * 
+     * @param imageList a list of <code>IIOImage</code> objects
+     * @param rect the bounding rectangle defines the region of the image to be recognized. A rectangle of zero
+     * dimension or <code>null</code> indicates the whole image.
+     * @param writer the writer receiving the text
+     * @throws TesseractException
+     */
+    @Override
+    public void doOCR(List<IIOImage> imageList, Rectangle rect, final Writer writer) throws TesseractException {
+        try {
+            if (hocr) {
+                writer.write(htmlBeginTag);
+            }
+
+            doOCR(imageList, rect, new OCRResultAdapter() {
+                @Override
+                public void pageRecognized(int pageIndex, String text) {
+                    try {
+                        writer.write(text);
+                    } catch (IOException ioe) {
+                        // stop the run; unwrapped below
+                        throw new RuntimeException(ioe);
+                    }
+                }
+            });
+
+            if (hocr) {
+                writer.write(htmlEndTag);
+            }
+            writer.flush();
+        } catch (IOException ioe) {
+            logger.log(Level.SEVERE, ioe.getMessage(), ioe);
+            throw new TesseractException(ioe);
+        } catch (RuntimeException re) {
+            if (!(re.getCause() instanceof IOException)) {
+                throw re;
+            }
+            logger.log(Level.SEVERE, re.getCause().getMessage(), re.getCause());
+            throw new TesseractException(re.getCause());
+        }
+    }
+
+    /**
+     * Performs OCR operation, writing the text of each page to the output stream in UTF-8 as soon as the page is
+     * recognized; see {@link #doOCR(List, Rectangle, Writer)}. The stream is flushed but not closed.
+     * 
+     * @param imageList a list of <code>IIOImage</code> objects
+     * @param rect the bounding rectangle defines the region of the image to be recognized. A rectangle of zero
+     * dimension or <code>null</code> indicates the whole image.
+     * @param out the output stream receiving the text
+     * @throws TesseractException
+     */
+    @Override
+    public void doOCR(List<IIOImage> imageList, Rectangle rect, OutputStream out) throws TesseractException {
+        try {
+            doOCR(imageList, rect, new BufferedWriter(new OutputStreamWriter(out, "UTF-8")));
+        } catch (UnsupportedEncodingException uee) {
+            throw new TesseractException(uee);
+        }
+    }
+
+    /**
+     * Performs OCR operation, writing the text of each page to the channel as soon as the page is recognized. The
+     * UTF-8 bytes returned by the engine are written as they are, without decoding into strings and encoding again.
+     * In hOCR mode, the document header is written first and the footer last. The channel is not closed.
+     * 
+     * @param imageList a list of <code>IIOImage</code> objects
+     * @param rect the bounding rectangle defines the region of the image to be recognized. A rectangle of zero
+     * dimension or <code>null</code> indicates the whole image.
+     * @param channel the channel receiving the UTF-8 text
+     * @throws TesseractException
+     */
+    @Override
+    public void doOCR(List<IIOImage> imageList, Rectangle rect, WritableByteChannel channel)
+            throws TesseractException {
+        init();
+        setTessVariables();
+
+        try {
+            if (hocr) {
+                writeFully(channel, ByteBuffer.wrap(htmlBeginTag.getBytes("UTF-8")));
+            }
 
             for (IIOImage oimage : imageList) {
                 pageNum++;
+                if (!hocr && isBlankPage(oimage.getRenderedImage(), rect)) {
+                    statistics.addBlankPage();
+                    continue;
+                }
                 try {
                     setImage(oimage.getRenderedImage(), rect);
-                    sb.append(getOCRText());
+                    setSourceResolution(oimage);
                 } catch (IOException ioe) {
                     // skip the problematic image
                     logger.log(Level.SEVERE, ioe.getMessage(), ioe);
+                    continue;
                 }
+                writeOCRText(channel);
+                statistics.addRecognizedPage();
             }
 
             if (hocr) {
-                sb.insert(0, htmlBeginTag).append(htmlEndTag);
+                writeFully(channel, ByteBuffer.wrap(htmlEndTag.getBytes("UTF-8")));
             }
+        } catch (IOException ioe) {
+            logger.log(Level.SEVERE, ioe.getMessage(), ioe);
+            throw new TesseractException(ioe);
+        } finally {
+            dispose();
+        }
+    }
+
+    /**
+     * Performs OCR operation and returns the recognized elements with their bounding boxes and confidences, sparing
+     * the caller from parsing hOCR output.
+     * 
+     * @param imageFile an image file
+     * @param pageIteratorLevel the level of the elements, one of the <code>TessPageIteratorLevel</code> constants
+     * @return the result of each page
+     * @throws TesseractException
+     */
+    @Override
+    public List<OCRResult> recognize(File imageFile, int pageIteratorLevel) throws TesseractException {
+        try {
+            return recognize(ImageIOHelper.getIIOImageList(imageFile, 0, 0, pdfRenderProfile), pageIteratorLevel);
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, e.getMessage(), e);
+            throw new TesseractException(e);
+        }
+    }
+
+    /**
+     * Performs OCR operation and returns the recognized elements with their bounding boxes and confidences.
+     * 
+     * @param bi a buffered image
+     * @param pageIteratorLevel the level of the elements, one of the <code>TessPageIteratorLevel</code> constants
+     * @return the result
+     * @throws TesseractException
+     */
+    @Override
+    public OCRResult recognize(BufferedImage bi, int pageIteratorLevel) throws TesseractException {
+        try {
+            return recognize(ImageIOHelper.getIIOImageList(bi), pageIteratorLevel).get(0);
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, e.getMessage(), e);
+            throw new TesseractException(e);
+        }
+    }
+
+    /**
+     * Performs OCR operation and returns the recognized elements with their bounding boxes and confidences. A page
+     * that cannot be read yields an empty result, so that results and pages stay aligned.
+     * 
+     * @param imageList a list of <code>IIOImage</code> objects
+     * @param pageIteratorLevel the level of the elements, one of the <code>TessPageIteratorLevel</code> constants
+     * @return the result of each page
+     * @throws TesseractException
+     */
+    @Override
+    public List<OCRResult> recognize(List<IIOImage> imageList, int pageIteratorLevel) throws TesseractException {
+        init();
+        setTessVariables();
+
+        try {
+            List<OCRResult> results = new ArrayList<OCRResult>(imageList.size());
+
+            for (IIOImage oimage : imageList) {
+                pageNum++;
+                if (isBlankPage(oimage.getRenderedImage(), null)) {
+                    statistics.addBlankPage();
+                    results.add(new OCRResult(pageIteratorLevel, new ArrayList<Word>(0), 0,
+                            TessAPI1.TessOrientation.ORIENTATION_PAGE_UP, true));
+                    continue;
+                }
+                try {
+                    setImage(oimage.getRenderedImage(), null);
+                    setSourceResolution(oimage);
+                    results.add(getOCRResult(pageIteratorLevel));
+                    statistics.addRecognizedPage();
+                } catch (IOException ioe) {
+                    // keep the place of the problematic image
+                    logger.log(Level.SEVERE, ioe.getMessage(), ioe);
+                    results.add(new OCRResult(pageIteratorLevel, new ArrayList<Word>(0), 0,
+                            TessAPI1.TessOrientation.ORIENTATION_PAGE_UP, false));
+                }
+            }
+
+            return results;
+        } finally {
+            dispose();
+        }
+    }
+
+    /**
+     * Performs OCR operation, passing each recognized element to the listener as the result iterator reaches it. The
+     * end of each page is signaled by <code>pageRecognized</code> with <code>null</code> text.
+     * 
+     * @param imageList a list of <code>IIOImage</code> objects
+     * @param pageIteratorLevel the level of the elements, one of the <code>TessPageIteratorLevel</code> constants
+     * @param listener the listener receiving the elements of each page
+     * @throws TesseractException
+     */
+    @Override
+    public void recognize(List<IIOImage> imageList, int pageIteratorLevel, OCRResultListener listener)
+            throws TesseractException {
+        init();
+        setTessVariables();
+
+        try {
+            for (int i = 0; i < imageList.size(); i++) {
+                IIOImage oimage = imageList.get(i);
+                pageNum++;
+                if (isBlankPage(oimage.getRenderedImage(), null)) {
+                    statistics.addBlankPage();
+                    listener.pageRecognized(i, null);
+                    continue;
+                }
+                try {
+                    setImage(oimage.getRenderedImage(), null);
+                    setSourceResolution(oimage);
+                    iterateResults(pageIteratorLevel, i, listener);
+                    statistics.addRecognizedPage();
+                    listener.pageRecognized(i, null);
+                } catch (IOException ioe) {
+                    // skip the problematic image
+                    logger.log(Level.SEVERE, ioe.getMessage(), ioe);
+                }
+            }
+        } finally {
+            dispose();
+        }
+    }
+
+    /**
+     * Performs layout analysis only, without recognition, finding the text, table and image blocks of an image. This
+     * is much cheaper than <code>doOCR</code> when only the page structure is needed, such as for routing or
+     * cropping. The block rectangles refer to the image as passed, which is neither deskewed nor turned upright; with
+     * an image pipeline set, they refer to the processed image.
+     * 
+     * @param bi a buffered image
+     * @return the blocks of the image, in reading order
+     * @throws TesseractException
+     */
+    @Override
+    public List<LayoutBlock> analyzeLayout(BufferedImage bi) throws TesseractException {
+        init();
+        setTessVariables();
+
+        try {
+            pageNum++;
+            // the blocks refer to the image as passed, which is neither deskewed nor turned upright
+            setImageData(bi, null, false);
+            return getLayoutBlocks();
+        } catch (IOException ioe) {
+            logger.log(Level.SEVERE, ioe.getMessage(), ioe);
+            throw new TesseractException(ioe);
+        } finally {
+            dispose();
+        }
+    }
+
+    /**
+     * Performs OCR operation on a PDF document. The text of pages that have a text layer is taken as is; only runs of
+     * image-only pages are rendered and recognized.
+     * 
+     * @param pdfFile a PDF document
+     * @return the recognized text
+     * @throws TesseractException
+     * @throws IOException
+     */
+    private String doPdfOCR(File pdfFile) throws TesseractException, IOException {
+        String[] pageTexts = PdfUtilities.getPdfText(pdfFile);
+        if (pageTexts.length == 0) {
+            // no text layer could be extracted; recognize the whole document
+            return doOCR(ImageIOHelper.getIIOImageList(pdfFile, 0, 0, pdfRenderProfile), null);
+        }
+
+        init();
+        setTessVariables();
+
+        try {
+            final StringBuilder sb = new StringBuilder();
+            OCRResultListener listener = new OCRResultAdapter() {
+                @Override
+                public void pageRecognized(int pageIndex, String text) {
+                    sb.append(text);
+                }
+            };
+            // texts of the rendered pages of the document, by fingerprint
+            Map<String, String> batchTexts = pageDeduplication ? new HashMap<String, String>() : null;
+            int page = 0;
+
+            while (page < pageTexts.length) {
+                if (PdfUtilities.hasTextLayer(pageTexts[page], pdfTextLayerMinCharacters)) {
+                    sb.append(pageTexts[page]);
+                    statistics.addTextLayerPage();
+                    page++;
+                    continue;
+                }
+
+                // render and recognize the run of image-only pages
+                int lastPage = page + 1;
+                while (lastPage < pageTexts.length
+                        && !PdfUtilities.hasTextLayer(pageTexts[lastPage], pdfTextLayerMinCharacters)) {
+                    lastPage++;
+                }
+
+                recognizePages(ImageIOHelper.getIIOImageList(pdfFile, page + 1, lastPage, pdfRenderProfile), null,
+                        batchTexts, listener);
+                page = lastPage;
+            }
+
+            logger.info(String.format("%s: %d of %d pages taken from text layer, rendering and recognition skipped",
+                    pdfFile.getName(), statistics.getTextLayerPageCount(), pageTexts.length));
 
             return sb.toString();
         } finally {
@@ -245,7 +882,9 @@ public class Tesseract1 extends TessAPI1 implements ITesseract {
 
         try {
             setImage(xsize, ysize, buf, rect, bpp);
-            return getOCRText();
+            String text = getOCRText();
+            statistics.addRecognizedPage();
+            return text;
         } catch (Exception e) {
             logger.log(Level.SEVERE, e.getMessage(), e);
             throw new TesseractException(e);
@@ -259,6 +898,7 @@ public class Tesseract1 extends TessAPI1 implements ITesseract {
      */
     protected void init() {
         pageNum = 0;
+        statistics = new OCRStatistics();
         handle = TessBaseAPICreate();
         TessBaseAPIInit2(handle, datapath, language, ocrEngineMode);
         TessBaseAPISetPageSegMode(handle, psm);
@@ -276,11 +916,154 @@ public class Tesseract1 extends TessAPI1 implements ITesseract {
     }
 
     /**
-     * A wrapper for {@link #setImage(int, int, ByteBuffer, Rectangle, int)}.
+     * A wrapper for {@link #setImage(int, int, ByteBuffer, Rectangle, int)}, turning the page upright first when
+     * orientation detection is enabled. The page is converted and preprocessed once; after detection, its pixel data
+     * is rotated by quarter turns, and its skew is measured on the upright page. The image is always set again after
+     * detection, which discards the layout found in the orientation detection mode, so that the page is recognized
+     * in the page segmentation mode of the caller.
      */
     protected void setImage(RenderedImage image, Rectangle rect) throws IOException {
-        setImage(image.getWidth(), image.getHeight(), ImageIOHelper.getImageByteBuffer(image), rect, image
-                .getColorModel().getPixelSize());
+        orientation = TessAPI1.TessOrientation.ORIENTATION_PAGE_UP;
+        if (!autoRotate || !(image instanceof BufferedImage) || (rect != null && !rect.isEmpty())) {
+            setImageData(image, rect);
+            return;
+        }
+
+        BufferedImage bi = (BufferedImage) image;
+        ByteBuffer buf;
+        int width;
+        int height;
+        int bpp;
+        if (imagePipeline != null) {
+            ImagePipeline.ImageData data = imagePipeline.applyToBuffer(bi);
+            buf = data.getBuffer();
+            width = data.getWidth();
+            height = data.getHeight();
+            bpp = data.getBitsPerPixel();
+        } else {
+            bi = binarize(bi);
+            buf = ImageIOHelper.getImageByteBuffer(bi);
+            width = bi.getWidth();
+            height = bi.getHeight();
+            bpp = bi.getColorModel().getPixelSize();
+        }
+        setImage(width, height, buf, rect, bpp);
+
+        int angle = detectRotation();
+        if (angle != 0) {
+            buf = ImageHelper.rotateImageDataLossless(buf, width, height, bpp, angle / 90);
+            if (angle != 180) {
+                int tmp = width;
+                width = height;
+                height = tmp;
+            }
+        }
+        boolean deskewed = deskew && imagePipeline == null;
+        if (deskewed) {
+            deskew(angle == 0 ? bi : ImageHelper.rotateImage(bi, angle), buf, bpp);
+        }
+        setImage(width, height, buf, rect, bpp);
+    }
+
+    /**
+     * Converts an image with the enabled preprocessing and passes it to the engine.
+     */
+    private void setImageData(RenderedImage image, Rectangle rect) throws IOException {
+        setImageData(image, rect, deskew);
+    }
+
+    /**
+     * Converts an image with the enabled preprocessing and passes it to the engine, straightening it if
+     * <code>deskewImage</code> is set. Skew correction is left out where results give coordinates in the image.
+     */
+    private void setImageData(RenderedImage image, Rectangle rect, boolean deskewImage) throws IOException {
+        if (imagePipeline != null && image instanceof BufferedImage) {
+            ImagePipeline.ImageData data = imagePipeline.applyToBuffer((BufferedImage) image);
+            setImage(data.getWidth(), data.getHeight(), data.getBuffer(), rect, data.getBitsPerPixel());
+            return;
+        }
+        if (image instanceof BufferedImage) {
+            image = binarize((BufferedImage) image);
+        }
+        ByteBuffer buf = ImageIOHelper.getImageByteBuffer(image);
+        int bpp = image.getColorModel().getPixelSize();
+        if (deskewImage) {
+            deskew(image, buf, bpp);
+        }
+        setImage(image.getWidth(), image.getHeight(), buf, rect, bpp);
+    }
+
+    /**
+     * Binarizes an image with the enabled method, unless it is binary already.
+     */
+    private BufferedImage binarize(BufferedImage image) {
+        if (binarization != ImageHelper.BINARIZATION_NONE && image.getColorModel().getPixelSize() > 1) {
+            return ImageHelper.convertImageToBinary(image, binarization, Runtime.getRuntime().availableProcessors());
+        }
+        return image;
+    }
+
+    /**
+     * Detects the orientation of the image set in the engine, counting the pages that are not upright.
+     * 
+     * @return the clockwise angle turning the page upright: 0, 90, 180 or 270 degrees
+     */
+    private int detectRotation() {
+        orientation = detectOrientation();
+        if (orientation == TessAPI1.TessOrientation.ORIENTATION_PAGE_UP) {
+            return 0;
+        }
+        // the top of the text points right, down or left; turn it back up clockwise
+        int angle = orientation == TessAPI1.TessOrientation.ORIENTATION_PAGE_RIGHT ? 270
+                : orientation == TessAPI1.TessOrientation.ORIENTATION_PAGE_DOWN ? 180 : 90;
+        statistics.addRotatedPage();
+        logger.fine(String.format("Page %d rotated by %d degrees", pageNum, angle));
+        return angle;
+    }
+
+    /**
+     * Detects the orientation of the image set in the engine by layout analysis with orientation and script detection.
+     * 
+     * @return one of the <code>TessOrientation</code> constants
+     */
+    private int detectOrientation() {
+        TessBaseAPISetPageSegMode(handle, TessAPI1.TessPageSegMode.PSM_AUTO_OSD);
+        TessAPI1.TessPageIterator pi = TessBaseAPIAnalyseLayout(handle);
+        TessBaseAPISetPageSegMode(handle, psm);
+        if (pi == null) {
+            return TessAPI1.TessOrientation.ORIENTATION_PAGE_UP;
+        }
+
+        try {
+            IntBuffer orientationB = IntBuffer.allocate(1);
+            IntBuffer directionB = IntBuffer.allocate(1);
+            IntBuffer orderB = IntBuffer.allocate(1);
+            FloatBuffer deskewAngleB = FloatBuffer.allocate(1);
+            TessPageIteratorOrientation(pi, orientationB, directionB, orderB, deskewAngleB);
+            return orientationB.get(0);
+        } finally {
+            TessPageIteratorDelete(pi);
+        }
+    }
+
+    /**
+     * Measures the skew angle of an image and, if it exceeds the threshold, straightens its pixel data in place.
+     * 
+     * @param image the image
+     * @param buf pixel data of the image
+     * @param bpp bits per pixel
+     */
+    private void deskew(RenderedImage image, ByteBuffer buf, int bpp) {
+        if (!(image instanceof BufferedImage) || (bpp != 1 && bpp != 8 && bpp != 24 && bpp != 32)) {
+            logger.fine("Skew correction skipped: unsupported image");
+            return;
+        }
+
+        double imageSkewAngle = new ImageDeskew((BufferedImage) image).getSkewAngle();
+        if (imageSkewAngle > deskewThreshold || imageSkewAngle < -deskewThreshold) {
+            ImageHelper.rotateImageData(buf, image.getWidth(), image.getHeight(), bpp, -imageSkewAngle);
+            logger.fine(String.format("Page %d deskewed by %.2f degrees", pageNum, imageSkewAngle));
+        }
     }
 
     /**
@@ -297,6 +1080,7 @@ public class Tesseract1 extends TessAPI1 implements ITesseract {
     protected void setImage(int xsize, int ysize, ByteBuffer buf, Rectangle rect, int bpp) {
         int bytespp = bpp / 8;
         int bytespl = (int) Math.ceil(xsize * bpp / 8.0);
+        imageBounds = new Rectangle(xsize, ysize);
         TessBaseAPISetImage(handle, buf, xsize, ysize, bytespp, bytespl);
 
         if (rect != null && !rect.isEmpty()) {
@@ -304,6 +1088,39 @@ public class Tesseract1 extends TessAPI1 implements ITesseract {
         }
     }
 
+    /**
+     * Passes the resolution recorded in the image meta data, if any, to the engine. Call after setting the image.
+     * 
+     * @param oimage an <code>IIOImage</code> object
+     */
+    private void setSourceResolution(IIOImage oimage) {
+        int dpi = ImageIOHelper.getResolution(oimage);
+        if (dpi > 0) {
+            TessBaseAPISetSourceResolution(handle, dpi);
+        }
+    }
+
+    /**
+     * Tells whether a page image is blank by its ink density, so that recognition can be skipped.
+     * 
+     * @param image a page image
+     * @param rect the region to be recognized; only whole images are checked
+     * @return <code>true</code> if blank page detection is enabled and the image is blank
+     */
+    protected boolean isBlankPage(RenderedImage image, Rectangle rect) {
+        return blankPageThreshold > 0 && image instanceof BufferedImage && (rect == null || rect.isEmpty())
+                && ImageHelper.getInkDensity((BufferedImage) image) < blankPageThreshold;
+    }
+
+    /**
+     * Gets the settings affecting the text recognized from a page image, for its fingerprint.
+     */
+    private String getCacheSettings(IIOImage oimage, Rectangle rect) {
+        return String.format("%s %s %d %d %s %s %d %b %s %d %b %s", datapath, language, psm, ocrEngineMode,
+                new TreeMap<Object, Object>(prop), rect, ImageIOHelper.getResolution(oimage), deskew, deskewThreshold,
+                binarization, autoRotate, imagePipeline == null ? "" : imagePipeline);
+    }
+
     /**
      * Gets recognized text.
      * 
@@ -316,6 +1133,129 @@ public class Tesseract1 extends TessAPI1 implements ITesseract {
         return str;
     }
 
+    /**
+     * Recognizes the image and collects its elements at the given level.
+     * 
+     * @param pageIteratorLevel the level of the elements
+     * @return the result of the page
+     */
+    protected OCRResult getOCRResult(int pageIteratorLevel) {
+        final List<Word> words = new ArrayList<Word>();
+        iterateResults(pageIteratorLevel, pageNum - 1, new OCRResultAdapter() {
+            @Override
+            public void wordRecognized(int pageIndex, Word word) {
+                words.add(word);
+            }
+        });
+        return new OCRResult(pageIteratorLevel, words, TessBaseAPIMeanTextConf(handle), orientation, false);
+    }
+
+    /**
+     * Recognizes the image and walks the result iterator at the given level, passing each element to the listener.
+     * The bounding box buffers are shared by all the elements, and the iterator is deleted before returning.
+     * 
+     * @param pageIteratorLevel the level of the elements
+     * @param pageIndex the index of the page, as passed to the listener
+     * @param listener the listener receiving the elements
+     */
+    protected void iterateResults(int pageIteratorLevel, int pageIndex, OCRResultListener listener) {
+        TessBaseAPIRecognize(handle, null);
+        TessResultIterator ri = TessBaseAPIGetIterator(handle);
+        if (ri == null) {
+            return;
+        }
+
+        try {
+            TessPageIterator pi = TessResultIteratorGetPageIterator(ri);
+            TessPageIteratorBegin(pi);
+            IntBuffer left = IntBuffer.allocate(1);
+            IntBuffer top = IntBuffer.allocate(1);
+            IntBuffer right = IntBuffer.allocate(1);
+            IntBuffer bottom = IntBuffer.allocate(1);
+            int blockNum = 0;
+            int lineNum = 0;
+
+            do {
+                if (TessPageIteratorIsAtBeginningOf(pi, TessPageIteratorLevel.RIL_BLOCK) == TRUE) {
+                    blockNum++;
+                }
+                if (pageIteratorLevel >= TessPageIteratorLevel.RIL_TEXTLINE
+                        && TessPageIteratorIsAtBeginningOf(pi, TessPageIteratorLevel.RIL_TEXTLINE) == TRUE) {
+                    lineNum++;
+                }
+                Pointer utf8Text = TessResultIteratorGetUTF8Text(ri, pageIteratorLevel);
+                if (utf8Text == null) {
+                    continue; // an empty element
+                }
+                String text = utf8Text.getString(0);
+                TessDeleteText(utf8Text);
+                TessPageIteratorBoundingBox(pi, pageIteratorLevel, left, top, right, bottom);
+                float confidence = TessResultIteratorConfidence(ri, pageIteratorLevel);
+                listener.wordRecognized(pageIndex, new Word(text, confidence, left.get(0), top.get(0), right.get(0),
+                        bottom.get(0), blockNum, lineNum));
+            } while (TessPageIteratorNext(pi, pageIteratorLevel) == TRUE);
+        } finally {
+            TessResultIteratorDelete(ri);
+        }
+    }
+
+    /**
+     * Analyzes the layout of the image and collects its blocks. The iterator is deleted before returning.
+     * 
+     * @return the blocks of the image
+     */
+    protected List<LayoutBlock> getLayoutBlocks() {
+        List<LayoutBlock> blocks = new ArrayList<LayoutBlock>();
+        TessPageIterator pi = TessBaseAPIAnalyseLayout(handle);
+        if (pi == null) {
+            return blocks;
+        }
+
+        try {
+            int level = TessPageIteratorLevel.RIL_BLOCK;
+            IntBuffer left = IntBuffer.allocate(1);
+            IntBuffer top = IntBuffer.allocate(1);
+            IntBuffer right = IntBuffer.allocate(1);
+            IntBuffer bottom = IntBuffer.allocate(1);
+
+            do {
+                if (TessPageIteratorBoundingBox(pi, level, left, top, right, bottom) == TRUE) {
+                    blocks.add(new LayoutBlock(TessPageIteratorBlockType(pi), left.get(0), top.get(0),
+                            right.get(0), bottom.get(0)));
+                }
+            } while (TessPageIteratorNext(pi, level) == TRUE);
+        } finally {
+            TessPageIteratorDelete(pi);
+        }
+
+        return blocks;
+    }
+
+    /**
+     * Writes the recognized text to the channel straight from the native UTF-8 buffer, then deletes the buffer.
+     * 
+     * @param channel the channel receiving the text
+     * @throws IOException
+     */
+    protected void writeOCRText(WritableByteChannel channel) throws IOException {
+        Pointer utf8Text = hocr ? TessBaseAPIGetHOCRText(handle, pageNum - 1) : TessBaseAPIGetUTF8Text(handle);
+        try {
+            // a view of the native memory up to the terminating null
+            writeFully(channel, utf8Text.getByteBuffer(0, utf8Text.indexOf(0, (byte) 0)));
+        } finally {
+            TessDeleteText(utf8Text);
+        }
+    }
+
+    /**
+     * Writes all the remaining bytes of the buffer to the channel.
+     */
+    private static void writeFully(WritableByteChannel channel, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+    }
+
     /**
      * Releases all of the native resources used by this instance.
      */
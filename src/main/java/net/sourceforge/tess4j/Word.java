@@ -0,0 +1,92 @@
+/**
+ * Copyright @ 2014 Quan Nguyen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.sourceforge.tess4j;
+
+import java.awt.Rectangle;
+
+/**
+ * A recognized element of a page: a word, or a symbol, line, paragraph or block depending on the iterator level of the
+ * result it belongs to. The bounding box is kept as coordinates and only turned into a rectangle on request.
+ */
+public class Word {
+
+    private final String text;
+    private final float  confidence;
+    private final int    left;
+    private final int    top;
+    private final int    right;
+    private final int    bottom;
+    private final int    blockNum;
+    private final int    lineNum;
+
+    Word(String text, float confidence, int left, int top, int right, int bottom, int blockNum, int lineNum) {
+        this.text = text;
+        this.confidence = confidence;
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+        this.blockNum = blockNum;
+        this.lineNum = lineNum;
+    }
+
+    /**
+     * Gets the recognized text.
+     *
+     * @return the text, as returned by the engine
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Gets the recognition confidence.
+     *
+     * @return the confidence, from 0 to 100
+     */
+    public float getConfidence() {
+        return confidence;
+    }
+
+    /**
+     * Gets the bounding box in image coordinates.
+     *
+     * @return a new rectangle enclosing the element
+     */
+    public Rectangle getBoundingBox() {
+        return new Rectangle(left, top, right - left, bottom - top);
+    }
+
+    /**
+     * Gets the number of the block containing the element, counting from 1 on the page.
+     *
+     * @return the block number
+     */
+    public int getBlockNum() {
+        return blockNum;
+    }
+
+    /**
+     * Gets the number of the text line containing the element, counting from 1 on the page.
+     *
+     * @return the line number, or 0 for blocks and paragraphs
+     */
+    public int getLineNum() {
+        return lineNum;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %d %d %d %d %.2f", text, left, top, right, bottom, confidence);
+    }
+}
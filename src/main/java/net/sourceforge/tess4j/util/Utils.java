@@ -15,8 +15,29 @@
  */
 package net.sourceforge.tess4j.util;
 
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferShort;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.IndexColorModel;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.PackedColorModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 
 public class Utils {
 
@@ -43,4 +64,116 @@ public class Utils {
         }
         return String.valueOf(value);
     }
+
+    /**
+     * Computes a content fingerprint of an image: a SHA-256 digest of its pixel data and layout, including its type,
+     * color model and sample model, and of the given settings. Images with the same pixels and settings have the same
+     * fingerprint, whatever their origin; the data buffer of a sub-image is hashed whole, together with the position
+     * of the sub-image.
+     * 
+     * @param image the image
+     * @param settings the settings affecting the processing of the image
+     * @return the fingerprint, as a hexadecimal string
+     */
+    public static String fingerprint(RenderedImage image, String settings) {
+        Raster raster = image instanceof BufferedImage ? ((BufferedImage) image).getRaster() : image.getData();
+        SampleModel sm = raster.getSampleModel();
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+            md.update(String.format("%d %s %s %d %d %d %d %d %d %s %s\n",
+                    image instanceof BufferedImage ? ((BufferedImage) image).getType() : -1, getLayout(sm),
+                    getLayout(image.getColorModel()), raster.getWidth(), raster.getHeight(),
+                    raster.getSampleModelTranslateX(), raster.getSampleModelTranslateY(),
+                    raster.getDataBuffer().getDataType(), raster.getDataBuffer().getSize(),
+                    Arrays.toString(raster.getDataBuffer().getOffsets()), settings).getBytes("UTF-8"));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+
+        if (image.getColorModel() instanceof IndexColorModel) {
+            IndexColorModel icm = (IndexColorModel) image.getColorModel();
+            int[] rgbs = new int[icm.getMapSize()];
+            icm.getRGBs(rgbs);
+            updateDigest(md, rgbs);
+        }
+
+        DataBuffer db = raster.getDataBuffer();
+        for (int bank = 0; bank < db.getNumBanks(); bank++) {
+            if (db instanceof DataBufferByte) {
+                md.update(((DataBufferByte) db).getData(bank));
+            } else if (db instanceof DataBufferInt) {
+                updateDigest(md, ((DataBufferInt) db).getData(bank));
+            } else if (db instanceof DataBufferUShort) {
+                updateDigest(md, ((DataBufferUShort) db).getData(bank));
+            } else if (db instanceof DataBufferShort) {
+                updateDigest(md, ((DataBufferShort) db).getData(bank));
+            } else {
+                // other buffer types: the samples of the image area
+                int[] samples = null;
+                for (int y = 0; y < raster.getHeight(); y++) {
+                    samples = raster.getPixels(raster.getMinX(), raster.getMinY() + y, raster.getWidth(), 1, samples);
+                    updateDigest(md, samples);
+                }
+                break;
+            }
+        }
+
+        return String.format("%064x", new BigInteger(1, md.digest()));
+    }
+
+    /**
+     * Describes how a sample model lays out the samples of pixels in a data buffer.
+     */
+    private static String getLayout(SampleModel sm) {
+        String layout = String.format("%s %d %d %d %d", sm.getClass().getName(), sm.getWidth(), sm.getHeight(),
+                sm.getNumBands(), sm.getDataType());
+        if (sm instanceof ComponentSampleModel) {
+            ComponentSampleModel csm = (ComponentSampleModel) sm;
+            layout += String.format(" %d %d %s %s", csm.getScanlineStride(), csm.getPixelStride(),
+                    Arrays.toString(csm.getBandOffsets()), Arrays.toString(csm.getBankIndices()));
+        } else if (sm instanceof SinglePixelPackedSampleModel) {
+            SinglePixelPackedSampleModel sppsm = (SinglePixelPackedSampleModel) sm;
+            layout += String.format(" %d %s", sppsm.getScanlineStride(), Arrays.toString(sppsm.getBitMasks()));
+        } else if (sm instanceof MultiPixelPackedSampleModel) {
+            MultiPixelPackedSampleModel mppsm = (MultiPixelPackedSampleModel) sm;
+            layout += String.format(" %d %d %d", mppsm.getScanlineStride(), mppsm.getPixelBitStride(),
+                    mppsm.getDataBitOffset());
+        }
+        return layout;
+    }
+
+    /**
+     * Describes how a color model maps samples to colors, except for the palette of an indexed model.
+     */
+    private static String getLayout(ColorModel cm) {
+        String layout = String.format("%s %d %b %b %d", cm.getClass().getName(), cm.getPixelSize(), cm.hasAlpha(),
+                cm.isAlphaPremultiplied(), cm.getColorSpace().getType());
+        if (cm instanceof PackedColorModel) {
+            layout += " " + Arrays.toString(((PackedColorModel) cm).getMasks());
+        }
+        return layout;
+    }
+
+    private static final int DIGEST_CHUNK = 16384;
+
+    private static void updateDigest(MessageDigest md, int[] data) {
+        ByteBuffer chunk = ByteBuffer.allocate(DIGEST_CHUNK * 4);
+        for (int i = 0; i < data.length; i += DIGEST_CHUNK) {
+            int n = Math.min(DIGEST_CHUNK, data.length - i);
+            chunk.asIntBuffer().put(data, i, n);
+            md.update(chunk.array(), 0, n * 4);
+        }
+    }
+
+    private static void updateDigest(MessageDigest md, short[] data) {
+        ByteBuffer chunk = ByteBuffer.allocate(DIGEST_CHUNK * 2);
+        for (int i = 0; i < data.length; i += DIGEST_CHUNK) {
+            int n = Math.min(DIGEST_CHUNK, data.length - i);
+            chunk.asShortBuffer().put(data, i, n);
+            md.update(chunk.array(), 0, n * 2);
+        }
+    }
 }
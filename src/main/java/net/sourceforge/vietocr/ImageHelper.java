@@ -15,6 +15,7 @@
  */
 package net.sourceforge.vietocr;
 
+import com.recognition.software.jdeskew.ImageUtil;
 import java.awt.Graphics2D;
 import java.awt.Image;
 import java.awt.RenderingHints;
@@ -23,11 +24,23 @@ import java.awt.Transparency;
 import java.awt.datatransfer.Clipboard;
 import java.awt.datatransfer.DataFlavor;
 import java.awt.image.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 public class ImageHelper {
 
     /**
-     * Convenience method that returns a scaled instance of the provided {@code BufferedImage}.
+     * Convenience method that returns a scaled instance of the provided {@code BufferedImage}. Gray and 1-bit binary
+     * images keep their type; they are reduced by area averaging, with every source pixel contributing in proportion
+     * to its overlap with the target pixel. Other images are scaled into RGB images with bicubic interpolation, large
+     * reductions being done by successive halvings.
      * 
      * @param image the original image to be scaled
      * @param targetWidth the desired width of the scaled instance, in pixels
@@ -35,16 +48,271 @@ public class ImageHelper {
      * @return a scaled version of the original {@code BufferedImage}
      */
     public static BufferedImage getScaledInstance(BufferedImage image, int targetWidth, int targetHeight) {
-        int type = (image.getTransparency() == Transparency.OPAQUE) ? BufferedImage.TYPE_INT_RGB
+        return getScaledInstance(image, targetWidth, targetHeight, 1);
+    }
+
+    /**
+     * Returns a scaled instance of the provided {@code BufferedImage}, area-averaging the rows of gray and binary
+     * images in parallel.
+     * 
+     * @param image the original image to be scaled
+     * @param targetWidth the desired width of the scaled instance, in pixels
+     * @param targetHeight the desired height of the scaled instance, in pixels
+     * @param threads the number of threads sharing the rows of the scaled image
+     * @return a scaled version of the original {@code BufferedImage}
+     * @see #getScaledInstance(BufferedImage, int, int)
+     */
+    public static BufferedImage getScaledInstance(BufferedImage image, int targetWidth, int targetHeight, int threads) {
+        int w = image.getWidth();
+        int h = image.getHeight();
+        int type = image.getType();
+        boolean binary = type == BufferedImage.TYPE_BYTE_BINARY && image.getColorModel().getPixelSize() == 1;
+
+        if (binary || type == BufferedImage.TYPE_BYTE_GRAY) {
+            BufferedImage tmp = createImage(image, targetWidth, targetHeight);
+            if (targetWidth <= w && targetHeight <= h) {
+                new AreaAverageScaler(image, tmp, binary).scale(threads);
+            } else {
+                Graphics2D g2 = tmp.createGraphics();
+                g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, binary
+                        ? RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR
+                        : RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+                g2.drawImage(image, 0, 0, targetWidth, targetHeight, null);
+                g2.dispose();
+            }
+            return tmp;
+        }
+
+        int rgbType = (image.getTransparency() == Transparency.OPAQUE) ? BufferedImage.TYPE_INT_RGB
                 : BufferedImage.TYPE_INT_ARGB;
-        BufferedImage tmp = new BufferedImage(targetWidth, targetHeight, type);
+        BufferedImage tmp = image;
+        // halve the image while it is more than twice the target size, so that every source pixel contributes
+        while (w / 2 >= targetWidth && h / 2 >= targetHeight) {
+            w /= 2;
+            h /= 2;
+            tmp = drawScaledImage(tmp, w, h, rgbType, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        }
+        return drawScaledImage(tmp, targetWidth, targetHeight, rgbType, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+    }
+
+    private static BufferedImage drawScaledImage(BufferedImage image, int width, int height, int type,
+            Object interpolation) {
+        BufferedImage tmp = new BufferedImage(width, height, type);
         Graphics2D g2 = tmp.createGraphics();
-        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
-        g2.drawImage(image, 0, 0, targetWidth, targetHeight, null);
+        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
+        g2.drawImage(image, 0, 0, width, height, null);
         g2.dispose();
         return tmp;
     }
 
+    /**
+     * Reduces a gray or 1-bit image by area averaging. Source pixel k of a row of width n spans [k * m, (k + 1) * m)
+     * and target pixel i spans [i * n, (i + 1) * n), where m is the target width, so that their overlaps are whole
+     * numbers; likewise for the columns.
+     */
+    private static class AreaAverageScaler {
+
+        private final BufferedImage image;
+        private final BufferedImage target;
+        private final boolean       binary;
+        private final PixelData     src;
+        private final PixelData     dst;
+        // the first source pixel and the weights of each target column and row
+        private final int[]         xFirst;
+        private final int[]         xWeightStart;
+        private final int[]         xWeights;
+        private final int[]         yFirst;
+        private final int[]         yWeightStart;
+        private final int[]         yWeights;
+        private final long          total;
+
+        AreaAverageScaler(BufferedImage image, BufferedImage target, boolean binary) {
+            this.image = image;
+            this.target = target;
+            this.binary = binary;
+            this.src = PixelData.get(image);
+            this.dst = PixelData.get(target);
+            int w = image.getWidth();
+            int h = image.getHeight();
+            int newW = target.getWidth();
+            int newH = target.getHeight();
+            this.xFirst = new int[newW];
+            this.xWeightStart = new int[newW + 1];
+            this.xWeights = getWeights(w, newW, this.xFirst, this.xWeightStart);
+            this.yFirst = new int[newH];
+            this.yWeightStart = new int[newH + 1];
+            this.yWeights = getWeights(h, newH, this.yFirst, this.yWeightStart);
+            this.total = (long) w * h;
+        }
+
+        private static int[] getWeights(int n, int m, int[] first, int[] weightStart) {
+            int[] weights = new int[n + m];
+            int length = 0;
+            for (int i = 0; i < m; i++) {
+                long start = (long) i * n;
+                long end = start + n;
+                first[i] = (int) (start / m);
+                weightStart[i] = length;
+                for (long k = first[i]; k * m < end; k++) {
+                    weights[length++] = (int) (Math.min(end, (k + 1) * m) - Math.max(start, k * m));
+                }
+            }
+            weightStart[m] = length;
+            return weights;
+        }
+
+        void scale(int threads) {
+            int newH = target.getHeight();
+            processBands(newH, threads, threads, new RowBandTask() {
+
+                @Override
+                public void process(int yStart, int yEnd) {
+                    scale(yStart, yEnd);
+                }
+            });
+        }
+
+        /**
+         * Computes target rows yStart to yEnd - 1.
+         */
+        void scale(int yStart, int yEnd) {
+            int w = image.getWidth();
+            int newW = target.getWidth();
+            int[] row = new int[w];
+            // horizontally averaged source row, and the weighted sums of a target row
+            int[] rowSums = new int[newW];
+            long[] sums = new long[newW];
+            int[] samples = new int[newW];
+
+            for (int y = yStart; y < yEnd; y++) {
+                Arrays.fill(sums, 0);
+                int k = yFirst[y];
+                for (int j = yWeightStart[y]; j < yWeightStart[y + 1]; j++, k++) {
+                    readRow(k, row);
+                    for (int x = 0; x < newW; x++) {
+                        int sum = 0;
+                        int s = xFirst[x];
+                        for (int i = xWeightStart[x]; i < xWeightStart[x + 1]; i++, s++) {
+                            sum += row[s] * xWeights[i];
+                        }
+                        rowSums[x] = sum;
+                    }
+                    int weight = yWeights[j];
+                    for (int x = 0; x < newW; x++) {
+                        sums[x] += (long) rowSums[x] * weight;
+                    }
+                }
+
+                for (int x = 0; x < newW; x++) {
+                    // binary: the majority sample, with ties going to 0, i.e. black
+                    samples[x] = binary ? (sums[x] * 2 > total ? 1 : 0) : (int) ((sums[x] + total / 2) / total);
+                }
+                writeRow(y, samples);
+            }
+        }
+
+        private void readRow(int y, int[] row) {
+            if (src == null) {
+                image.getRaster().getSamples(0, y, row.length, 1, 0, row);
+            } else if (binary) {
+                int p = src.offset + y * src.scanlineStride;
+                for (int x = 0, bit = src.bitOffset; x < row.length; x++, bit++) {
+                    row[x] = (src.bytes[p + (bit >> 3)] >> (7 - (bit & 7))) & 1;
+                }
+            } else {
+                int p = src.offset + y * src.scanlineStride;
+                for (int x = 0; x < row.length; x++, p += src.pixelStride) {
+                    row[x] = src.bytes[p] & 0xff;
+                }
+            }
+        }
+
+        private void writeRow(int y, int[] samples) {
+            if (dst == null) {
+                target.getRaster().setSamples(0, y, samples.length, 1, 0, samples);
+            } else if (binary) {
+                int p = dst.offset + y * dst.scanlineStride;
+                for (int x = 0; x < samples.length; x += 8) {
+                    int bits = 0;
+                    for (int i = 0; i < 8; i++) {
+                        bits = (bits << 1) | (x + i < samples.length ? samples[x + i] : 0);
+                    }
+                    dst.bytes[p + (x >> 3)] = (byte) bits;
+                }
+            } else {
+                int p = dst.offset + y * dst.scanlineStride;
+                for (int x = 0; x < samples.length; x++, p += dst.pixelStride) {
+                    dst.bytes[p] = (byte) samples[x];
+                }
+            }
+        }
+    }
+
+    /**
+     * A task on a band of rows of an image.
+     */
+    interface RowBandTask {
+
+        /**
+         * Processes rows yStart to yEnd - 1.
+         */
+        void process(int yStart, int yEnd);
+    }
+
+    /**
+     * Splits the rows of an image into bands of equal height and processes them with the given number of threads.
+     * 
+     * @param height the number of rows
+     * @param bandCount the number of bands
+     * @param threads the number of threads
+     * @param task the task to run on each band
+     */
+    static void processBands(int height, int bandCount, int threads, final RowBandTask task) {
+        bandCount = Math.max(1, Math.min(bandCount, height));
+        threads = Math.max(1, Math.min(threads, bandCount));
+        if (threads == 1) {
+            for (int i = 0; i < bandCount; i++) {
+                task.process(height * i / bandCount, height * (i + 1) / bandCount);
+            }
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "ImageHelper");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        try {
+            List<Future<?>> bands = new ArrayList<Future<?>>();
+            for (int i = 0; i < bandCount; i++) {
+                final int yStart = height * i / bandCount;
+                final int yEnd = height * (i + 1) / bandCount;
+                bands.add(executor.submit(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        task.process(yStart, yEnd);
+                    }
+                }));
+            }
+            for (Future<?> band : bands) {
+                band.get();
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ie);
+        } catch (ExecutionException ee) {
+            throw new RuntimeException(ee.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     /**
      * A replacement for the standard <code>BufferedImage.getSubimage</code> method.
      * 
@@ -72,11 +340,19 @@ public class ImageHelper {
      * @return a monochrome image
      */
     public static BufferedImage convertImageToBinary(BufferedImage image) {
-        BufferedImage tmp = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_BYTE_BINARY);
-        Graphics2D g2 = tmp.createGraphics();
-        g2.drawImage(image, 0, 0, null);
-        g2.dispose();
-        return tmp;
+        return convertImageToBinary(image, null);
+    }
+
+    /**
+     * Converts an image to binary or B/W image into a destination image, which can be reused across images of the
+     * same size to avoid allocating a new one for each.
+     * 
+     * @param image input image
+     * @param dest a <code>TYPE_BYTE_BINARY</code> image of the same size, or null to create one
+     * @return the destination image
+     */
+    public static BufferedImage convertImageToBinary(BufferedImage image, BufferedImage dest) {
+        return drawImage(image, dest, BufferedImage.TYPE_BYTE_BINARY);
     }
 
     /**
@@ -91,6 +367,257 @@ public class ImageHelper {
         return convertImageToBinary(image);
     }
 
+    /**
+     * No binarization.
+     */
+    public static final int BINARIZATION_NONE    = 0;
+
+    /**
+     * Binarization with a global threshold chosen by Otsu's method.
+     */
+    public static final int BINARIZATION_OTSU    = 1;
+
+    /**
+     * Binarization with local thresholds computed by Sauvola's method.
+     */
+    public static final int BINARIZATION_SAUVOLA = 2;
+
+    /**
+     * Default width and height of the Sauvola window, in pixels, about the height of a text line at 300 DPI.
+     */
+    public static final int DEFAULT_SAUVOLA_WINDOW_SIZE = 31;
+
+    /**
+     * Default weight of the standard deviation in the Sauvola threshold.
+     */
+    public static final double DEFAULT_SAUVOLA_K = 0.2;
+
+    // height of the bands of rows that are binarized by a single task
+    private static final int BINARIZATION_BAND_HEIGHT = 256;
+
+    /**
+     * Converts an image to a binary image with the given method, using default parameters.
+     * 
+     * @param image input image
+     * @param method one of {@link #BINARIZATION_NONE}, {@link #BINARIZATION_OTSU} or {@link #BINARIZATION_SAUVOLA}
+     * @param threads the number of threads sharing the rows of the image
+     * @return a monochrome image, or the input image for {@link #BINARIZATION_NONE}
+     */
+    public static BufferedImage convertImageToBinary(BufferedImage image, int method, int threads) {
+        switch (method) {
+            case BINARIZATION_NONE:
+                return image;
+            case BINARIZATION_OTSU:
+                return convertImageToBinaryOtsu(image, threads);
+            case BINARIZATION_SAUVOLA:
+                return convertImageToBinarySauvola(image, DEFAULT_SAUVOLA_WINDOW_SIZE, DEFAULT_SAUVOLA_K, threads);
+            default:
+                throw new IllegalArgumentException("Unknown binarization method: " + method);
+        }
+    }
+
+    /**
+     * Computes the global threshold of an image by Otsu's method, which maximizes the variance between the luminance
+     * of the pixels below and above it.
+     * 
+     * @param image input image
+     * @param threads the number of threads sharing the rows of the image
+     * @return the luminance cutoff: pixels of lower luminance are black
+     */
+    public static int getOtsuThreshold(final BufferedImage image, int threads) {
+        final int height = image.getHeight();
+        int bandCount = (height + BINARIZATION_BAND_HEIGHT - 1) / BINARIZATION_BAND_HEIGHT;
+        final long[] histogram = new long[256];
+
+        processBands(height, bandCount, threads, new RowBandTask() {
+
+            @Override
+            public void process(int yStart, int yEnd) {
+                int[] bandHistogram = new int[256];
+                for (byte luminance : ImageUtil.getLuminance(image, yStart, yEnd)) {
+                    bandHistogram[luminance & 0xff]++;
+                }
+                addHistogram(histogram, bandHistogram);
+            }
+        });
+        return getOtsuThreshold(histogram);
+    }
+
+    /**
+     * Adds the histogram of a band to the histogram of an image, which may be shared by threads.
+     */
+    static void addHistogram(long[] histogram, int[] bandHistogram) {
+        synchronized (histogram) {
+            for (int v = 0; v < bandHistogram.length; v++) {
+                histogram[v] += bandHistogram[v];
+            }
+        }
+    }
+
+    /**
+     * Computes the Otsu threshold of a luminance histogram.
+     * 
+     * @param histogram the number of pixels of each luminance
+     * @return the luminance cutoff
+     */
+    static int getOtsuThreshold(long[] histogram) {
+        long count = 0;
+        double sum = 0;
+        for (int v = 0; v < 256; v++) {
+            count += histogram[v];
+            sum += (double) v * histogram[v];
+        }
+
+        // the class below the cutoff is t = 0 to cutoff - 1
+        long countBelow = 0;
+        double sumBelow = 0;
+        double maxVariance = -1;
+        int cutOff = 128;
+        for (int t = 0; t < 255; t++) {
+            countBelow += histogram[t];
+            sumBelow += (double) t * histogram[t];
+            long countAbove = count - countBelow;
+            if (countBelow == 0 || countAbove == 0) {
+                continue;
+            }
+            double meanBelow = sumBelow / countBelow;
+            double meanAbove = (sum - sumBelow) / countAbove;
+            double variance = (double) countBelow * countAbove * (meanBelow - meanAbove) * (meanBelow - meanAbove);
+            if (variance > maxVariance) {
+                maxVariance = variance;
+                cutOff = t + 1;
+            }
+        }
+        return cutOff;
+    }
+
+    /**
+     * Converts an image to a binary image with a global threshold computed by Otsu's method.
+     * 
+     * @param image input image
+     * @param threads the number of threads sharing the rows of the image
+     * @return a monochrome image
+     */
+    public static BufferedImage convertImageToBinaryOtsu(final BufferedImage image, int threads) {
+        final int cutOff = getOtsuThreshold(image, threads);
+        final BufferedImage tmp = new BufferedImage(image.getWidth(), image.getHeight(),
+                BufferedImage.TYPE_BYTE_BINARY);
+        int bandCount = (image.getHeight() + BINARIZATION_BAND_HEIGHT - 1) / BINARIZATION_BAND_HEIGHT;
+
+        processBands(image.getHeight(), bandCount, threads, new RowBandTask() {
+
+            @Override
+            public void process(int yStart, int yEnd) {
+                setBinaryRows(tmp, yStart, ImageUtil.getBlackBitmap(image, yStart, yEnd, cutOff));
+            }
+        });
+        return tmp;
+    }
+
+    /**
+     * Converts an image to a binary image with local thresholds computed by Sauvola's method: a pixel is black if its
+     * luminance is below <code>m * (1 + k * (s / 128 - 1))</code>, where m and s are the mean and the standard
+     * deviation of the luminance in the window centered on it. The means and deviations are taken from integral images
+     * of the luminance and of its square, in constant time per pixel whatever the window size.
+     * 
+     * @param image input image
+     * @param windowSize width and height of the window, an odd number of pixels up to 181
+     * @param k weight of the standard deviation, typically 0.2 to 0.5
+     * @param threads the number of threads sharing the rows of the image
+     * @return a monochrome image
+     */
+    public static BufferedImage convertImageToBinarySauvola(final BufferedImage image, int windowSize, final double k,
+            int threads) {
+        if (windowSize < 1 || windowSize > 181) {
+            throw new IllegalArgumentException("Invalid window size: " + windowSize);
+        }
+
+        final int radius = windowSize / 2;
+        final BufferedImage tmp = new BufferedImage(image.getWidth(), image.getHeight(),
+                BufferedImage.TYPE_BYTE_BINARY);
+        int bandCount = (image.getHeight() + BINARIZATION_BAND_HEIGHT - 1) / BINARIZATION_BAND_HEIGHT;
+
+        processBands(image.getHeight(), bandCount, threads, new RowBandTask() {
+
+            @Override
+            public void process(int yStart, int yEnd) {
+                setBinaryRows(tmp, yStart, getSauvolaBitmap(image, yStart, yEnd, radius, k));
+            }
+        });
+        return tmp;
+    }
+
+    /**
+     * Computes the black pixels of rows yStart to yEnd - 1 by Sauvola's method, as a bitmap in the layout of
+     * <code>ImageUtil.getBlackBitmap</code>.
+     */
+    private static byte[] getSauvolaBitmap(BufferedImage image, int yStart, int yEnd, int radius, double k) {
+        int width = image.getWidth();
+        // the rows of the band and of the windows of its edge rows
+        int first = Math.max(0, yStart - radius);
+        int last = Math.min(image.getHeight(), yEnd + radius);
+        byte[] luminance = ImageUtil.getLuminance(image, first, last);
+
+        // integral images: the sum of the luminance, and of its square, above and left of each point. The sums over a
+        // window never exceed 181 * 181 * 255 * 255, so the int arithmetic wraps around but the differences are exact
+        int stride = width + 1;
+        int[] sums = new int[(last - first + 1) * stride];
+        int[] squares = new int[sums.length];
+        for (int y = 0; y < last - first; y++) {
+            int rowSum = 0;
+            int rowSquare = 0;
+            int p = (y + 1) * stride + 1;
+            for (int x = 0; x < width; x++, p++) {
+                int v = luminance[y * width + x] & 0xff;
+                rowSum += v;
+                rowSquare += v * v;
+                sums[p] = sums[p - stride] + rowSum;
+                squares[p] = squares[p - stride] + rowSquare;
+            }
+        }
+
+        int bitmapStride = ImageUtil.getBitmapStride(width);
+        byte[] bitmap = new byte[(yEnd - yStart) * bitmapStride];
+        for (int y = yStart; y < yEnd; y++) {
+            // window rows, relative to the first row of the integral images
+            int top = (Math.max(first, y - radius) - first) * stride;
+            int bottom = (Math.min(last, y + radius + 1) - first) * stride;
+            int rows = (bottom - top) / stride;
+            int offset = (y - yStart) * bitmapStride;
+            for (int x = 0; x < width; x++) {
+                int left = Math.max(0, x - radius);
+                int right = Math.min(width, x + radius + 1);
+                int n = rows * (right - left);
+                int sum = sums[bottom + right] - sums[bottom + left] - sums[top + right] + sums[top + left];
+                int square = squares[bottom + right] - squares[bottom + left] - squares[top + right]
+                        + squares[top + left];
+                double mean = (double) sum / n;
+                double deviation = Math.sqrt(Math.max(0, (double) square / n - mean * mean));
+                double threshold = mean * (1 + k * (deviation / 128 - 1));
+                if ((luminance[(y - first) * width + x] & 0xff) < threshold) {
+                    bitmap[offset + (x >> 3)] |= 0x80 >> (x & 7);
+                }
+            }
+        }
+        return bitmap;
+    }
+
+    /**
+     * Sets rows of a binary image, from yStart on, to the inverse of a bitmap of black pixels.
+     */
+    private static void setBinaryRows(BufferedImage binary, int yStart, byte[] bitmap) {
+        MultiPixelPackedSampleModel sm = (MultiPixelPackedSampleModel) binary.getRaster().getSampleModel();
+        byte[] data = ((DataBufferByte) binary.getRaster().getDataBuffer()).getData();
+        int stride = ImageUtil.getBitmapStride(binary.getWidth());
+        int offset = yStart * sm.getScanlineStride();
+        for (int i = 0; i < bitmap.length; i += stride, offset += sm.getScanlineStride()) {
+            for (int j = 0; j < stride; j++) {
+                // 0 is black in the palette of TYPE_BYTE_BINARY
+                data[offset + j] = (byte) ~bitmap[i + j];
+            }
+        }
+    }
+
     /**
      * A simple method to convert an image to gray scale.
      * 
@@ -98,11 +625,47 @@ public class ImageHelper {
      * @return a monochrome image
      */
     public static BufferedImage convertImageToGrayscale(BufferedImage image) {
-        BufferedImage tmp = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
-        Graphics2D g2 = tmp.createGraphics();
+        return convertImageToGrayscale(image, null);
+    }
+
+    /**
+     * Converts an image to gray scale into a destination image, which can be reused across images of the same size to
+     * avoid allocating a new one for each.
+     * 
+     * @param image input image
+     * @param dest a <code>TYPE_BYTE_GRAY</code> image of the same size, or null to create one
+     * @return the destination image
+     */
+    public static BufferedImage convertImageToGrayscale(BufferedImage image, BufferedImage dest) {
+        return drawImage(image, dest, BufferedImage.TYPE_BYTE_GRAY);
+    }
+
+    /**
+     * Draws an image into a destination image of the given type, which is created if null.
+     */
+    private static BufferedImage drawImage(BufferedImage image, BufferedImage dest, int type) {
+        if (dest == null) {
+            dest = new BufferedImage(image.getWidth(), image.getHeight(), type);
+        } else {
+            checkDestination(image, dest, type);
+        }
+        Graphics2D g2 = dest.createGraphics();
         g2.drawImage(image, 0, 0, null);
         g2.dispose();
-        return tmp;
+        return dest;
+    }
+
+    /**
+     * Checks that a destination image has the size of the input image and the given type.
+     */
+    private static void checkDestination(BufferedImage image, BufferedImage dest, int type) {
+        if (dest.getWidth() != image.getWidth() || dest.getHeight() != image.getHeight()) {
+            throw new IllegalArgumentException(String.format("Destination size %dx%d differs from image size %dx%d",
+                    dest.getWidth(), dest.getHeight(), image.getWidth(), image.getHeight()));
+        }
+        if (dest.getType() != type) {
+            throw new IllegalArgumentException("Invalid destination type: " + dest.getType());
+        }
     }
 
     private static final short[] invertTable;
@@ -121,19 +684,197 @@ public class ImageHelper {
      * @return an inverted-color image
      */
     public static BufferedImage invertImageColor(BufferedImage image) {
-        BufferedImage tmp = new BufferedImage(image.getWidth(), image.getHeight(), image.getType());
+        return invertImageColor(image, null);
+    }
+
+    /**
+     * Inverts image color into a destination image. The destination can be the input image itself, which is then
+     * inverted in place. The color samples of 1-bit, byte and int pixel layouts are inverted directly, leaving alpha
+     * unchanged; other layouts go through a <code>LookupOp</code>.
+     * 
+     * @param image input image
+     * @param dest an image of the same size and type, the input image, or null to create one
+     * @return the destination image
+     */
+    public static BufferedImage invertImageColor(BufferedImage image, BufferedImage dest) {
+        if (dest == null) {
+            dest = createImage(image, image.getWidth(), image.getHeight());
+        } else if (dest != image) {
+            checkDestination(image, dest, image.getType());
+        }
+
+        ColorModel cm = image.getColorModel();
+        PixelData src = PixelData.get(image);
+        PixelData dst = PixelData.get(dest);
+        // indexed pixels other than 1-bit ones and premultiplied samples cannot be inverted sample by sample; custom
+        // types may differ in layout
+        if (src != null && dst != null && !cm.isAlphaPremultiplied()
+                && (src.pixelStride == 0 || !(cm instanceof IndexColorModel))
+                && (dest == image || image.getType() != BufferedImage.TYPE_CUSTOM)) {
+            invertPixels(image, src, dst);
+            return dest;
+        }
+
         BufferedImageOp invertOp = new LookupOp(new ShortLookupTable(0, invertTable), null);
-        return invertOp.filter(image, tmp);
+        if (dest == image) {
+            image.setData(invertOp.filter(image, null).getRaster());
+            return image;
+        }
+        return invertOp.filter(image, dest);
+    }
+
+    /**
+     * Inverts the color samples of pixel data into pixel data of the same layout.
+     */
+    private static void invertPixels(BufferedImage image, PixelData src, PixelData dst) {
+        if (src.ints != null) {
+            SampleModel sm = image.getSampleModel();
+            int[] masks = ((SinglePixelPackedSampleModel) sm).getBitMasks();
+            int colorBands = image.getColorModel().getNumColorComponents();
+            int mask = 0;
+            for (int b = 0; b < colorBands; b++) {
+                mask |= masks[b];
+            }
+            for (int y = 0; y < src.height; y++) {
+                int si = src.offset + y * src.scanlineStride;
+                int di = dst.offset + y * dst.scanlineStride;
+                for (int x = 0; x < src.width; x++) {
+                    dst.ints[di + x] = src.ints[si + x] ^ mask;
+                }
+            }
+            return;
+        }
+
+        // XOR masks of the bytes of a pixel, or of a byte of 1-bit pixels
+        byte[] masks;
+        int rowLength;
+        if (src.pixelStride == 0) {
+            masks = new byte[] { (byte) 0xff };
+            rowLength = (src.width + 7) / 8;
+        } else {
+            masks = new byte[src.pixelStride];
+            Arrays.fill(masks, (byte) 0xff);
+            if (image.getColorModel().hasAlpha()) {
+                int[] bandOffsets = ((PixelInterleavedSampleModel) image.getSampleModel()).getBandOffsets();
+                masks[bandOffsets[bandOffsets.length - 1]] = 0;
+            }
+            rowLength = src.width * src.pixelStride;
+        }
+        for (int y = 0; y < src.height; y++) {
+            int si = src.offset + y * src.scanlineStride;
+            int di = dst.offset + y * dst.scanlineStride;
+            for (int i = 0; i < rowLength; i += masks.length) {
+                for (int j = 0; j < masks.length; j++) {
+                    dst.bytes[di + i + j] = (byte) (src.bytes[si + i + j] ^ masks[j]);
+                }
+            }
+        }
     }
 
     /**
-     * Rotates an image.
+     * Estimates the share of an image covered by marks, for telling blank pages apart. The black pixels, as found by
+     * <code>ImageUtil.getBlackBitmap</code>, are counted in cells of 8 by 8 pixels, and cells holding at least
+     * {@value #MIN_CELL_PIXELS}, which scattered noise seldom fills, are grouped into 8-connected marks. Marks of
+     * fewer than {@value #MIN_MARK_PIXELS} black pixels, such as specks of dust, and marks touching the edges of the
+     * image, such as scanner borders and shadows, are left out.
+     * 
+     * @param image input image
+     * @return the share of the pixels of the image that belong to marks, from 0 to 1
+     */
+    public static double getInkDensity(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        // a byte of a bitmap row holds the pixels of a cell row
+        int cellsX = ImageUtil.getBitmapStride(width);
+        int cellsY = (height + 7) / 8;
+        int[] cells = new int[cellsX * cellsY];
+        for (int y = 0; y < height; y += 8) {
+            byte[] bitmap = ImageUtil.getBlackBitmap(image, y, Math.min(y + 8, height));
+            int offset = y / 8 * cellsX;
+            for (int i = 0; i < bitmap.length; i++) {
+                cells[offset + i % cellsX] += Integer.bitCount(bitmap[i] & 0xff);
+            }
+        }
+
+        // flood fill of the marks, clearing their cells
+        long inkPixels = 0;
+        int[] stack = new int[cells.length];
+        for (int start = 0; start < cells.length; start++) {
+            if (cells[start] < MIN_CELL_PIXELS) {
+                continue;
+            }
+            int pixels = 0;
+            boolean edge = false;
+            int top = 0;
+            stack[top++] = start;
+            pixels += cells[start];
+            cells[start] = 0;
+            while (top > 0) {
+                int cell = stack[--top];
+                int cx = cell % cellsX;
+                int cy = cell / cellsX;
+                edge |= cx == 0 || cy == 0 || cx == cellsX - 1 || cy == cellsY - 1;
+                for (int ny = Math.max(0, cy - 1); ny <= Math.min(cellsY - 1, cy + 1); ny++) {
+                    for (int nx = Math.max(0, cx - 1); nx <= Math.min(cellsX - 1, cx + 1); nx++) {
+                        int neighbor = ny * cellsX + nx;
+                        if (cells[neighbor] >= MIN_CELL_PIXELS) {
+                            pixels += cells[neighbor];
+                            cells[neighbor] = 0;
+                            stack[top++] = neighbor;
+                        }
+                    }
+                }
+            }
+            if (!edge && pixels >= MIN_MARK_PIXELS) {
+                inkPixels += pixels;
+            }
+        }
+
+        return (double) inkPixels / ((long) width * height);
+    }
+
+    /**
+     * Smallest number of black pixels of a cell taken as part of a mark by {@link #getInkDensity(BufferedImage)}.
+     */
+    public static final int MIN_CELL_PIXELS = 4;
+
+    /**
+     * Smallest number of black pixels of a mark counted by {@link #getInkDensity(BufferedImage)}.
+     */
+    public static final int MIN_MARK_PIXELS = 16;
+
+    /**
+     * Rotates an image. Exact multiples of 90 degrees remap the pixels losslessly. Other angles are resampled with
+     * bilinear interpolation for 8-bit gray images, with nearest-neighbor sampling for 1-bit images, and, up to
+     * {@value #NEAREST_NEIGHBOR_MAX_ANGLE} degrees, for RGB images; the remaining cases are drawn with bicubic
+     * interpolation. The image is enlarged to hold the whole rotated image, with the uncovered corners left at zero.
      * 
      * @param image the original image
      * @param angle the degree of rotation
      * @return a rotated image
      */
     public static BufferedImage rotateImage(BufferedImage image, double angle) {
+        double quadrants = angle / 90;
+        if (quadrants == Math.rint(quadrants)) {
+            return rotateImageLossless(image, (int) (((long) quadrants % 4 + 4) % 4));
+        }
+
+        PixelData src = PixelData.get(image);
+        int type = image.getType();
+        if (src != null && (src.pixelStride == 0 || (type == BufferedImage.TYPE_BYTE_GRAY)
+                || Math.abs(angle) <= NEAREST_NEIGHBOR_MAX_ANGLE && (type == BufferedImage.TYPE_3BYTE_BGR
+                        || type == BufferedImage.TYPE_4BYTE_ABGR || type == BufferedImage.TYPE_INT_RGB
+                        || type == BufferedImage.TYPE_INT_ARGB || type == BufferedImage.TYPE_INT_BGR))) {
+            Rotation rotation = new Rotation(image, angle);
+            BufferedImage tmp = createImage(image, rotation.newW, rotation.newH);
+            if (type == BufferedImage.TYPE_BYTE_GRAY) {
+                rotateGrayImage(src, PixelData.get(tmp), rotation);
+            } else {
+                remap(src, PixelData.get(tmp), rotation);
+            }
+            return tmp;
+        }
+
         double theta = Math.toRadians(angle);
         double sin = Math.abs(Math.sin(theta));
         double cos = Math.abs(Math.cos(theta));
@@ -152,6 +893,518 @@ public class ImageHelper {
         return tmp;
     }
 
+    /**
+     * Largest angle, in degrees, at which RGB images are rotated with nearest-neighbor sampling.
+     */
+    public static final double NEAREST_NEIGHBOR_MAX_ANGLE = 5;
+
+    /**
+     * Rotates an image clockwise by a number of quarter turns, copying the pixel samples.
+     */
+    private static BufferedImage rotateImageLossless(BufferedImage image, int quadrants) {
+        int w = image.getWidth();
+        int h = image.getHeight();
+        QuarterTurn turn = new QuarterTurn(w, h, quadrants);
+        BufferedImage tmp = createImage(image, turn.newW, turn.newH);
+
+        PixelData src = PixelData.get(image);
+        if (src != null) {
+            remap(src, PixelData.get(tmp), turn);
+            return tmp;
+        }
+
+        // other layouts: copy the samples of each pixel
+        Raster raster = image.getRaster();
+        WritableRaster dst = tmp.getRaster();
+        int bands = raster.getNumBands();
+        int[] sourceX = new int[turn.newW];
+        int[] sourceY = new int[turn.newW];
+        int[] pixel = new int[bands];
+        int[] row = new int[turn.newW * bands];
+        for (int y = 0; y < turn.newH; y++) {
+            turn.getSourcePixels(y, sourceX, sourceY);
+            for (int x = 0; x < turn.newW; x++) {
+                System.arraycopy(raster.getPixel(sourceX[x], sourceY[x], pixel), 0, row, x * bands, bands);
+            }
+            dst.setPixels(0, y, turn.newW, 1, row);
+        }
+        return tmp;
+    }
+
+    /**
+     * Copies the pixel of the source image that each pixel of the destination image maps to, leaving pixels mapped
+     * outside of the source at zero.
+     */
+    private static void remap(PixelData src, PixelData dst, PixelMapping mapping) {
+        int width = dst.width;
+        int[] sourceX = new int[width];
+        int[] sourceY = new int[width];
+
+        for (int y = 0; y < dst.height; y++) {
+            mapping.getSourcePixels(y, sourceX, sourceY);
+            int d = dst.offset + y * dst.scanlineStride;
+
+            if (src.pixelStride == 0) {
+                // packed bits, gathered into whole bytes
+                int bits = 0;
+                for (int x = 0; x < width; x++) {
+                    bits <<= 1;
+                    if (sourceX[x] >= 0) {
+                        int bit = src.bitOffset + sourceX[x];
+                        int sample = src.bytes[src.offset + sourceY[x] * src.scanlineStride + (bit >> 3)];
+                        bits |= (sample >> (7 - (bit & 7))) & 1;
+                    }
+                    if ((x & 7) == 7) {
+                        dst.bytes[d + (x >> 3)] = (byte) bits;
+                        bits = 0;
+                    }
+                }
+                if ((width & 7) != 0) {
+                    dst.bytes[d + (width >> 3)] = (byte) (bits << (8 - (width & 7)));
+                }
+            } else if (src.ints != null) {
+                for (int x = 0; x < width; x++) {
+                    if (sourceX[x] >= 0) {
+                        dst.ints[d + x] = src.ints[src.offset + sourceY[x] * src.scanlineStride + sourceX[x]];
+                    }
+                }
+            } else {
+                int p = src.pixelStride;
+                for (int x = 0; x < width; x++, d += p) {
+                    if (sourceX[x] >= 0) {
+                        System.arraycopy(src.bytes, src.offset + sourceY[x] * src.scanlineStride + sourceX[x] * p,
+                                dst.bytes, d, p);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Rotates an 8-bit gray image with bilinear interpolation.
+     */
+    private static void rotateGrayImage(PixelData src, PixelData dst, Rotation r) {
+        byte[] data = src.bytes;
+        int p = src.pixelStride;
+        long stepX = Rotation.toFixed(r.cos);
+        long stepY = Rotation.toFixed(-r.sin);
+        // the sampling point is inside if its pixel center is, within half a pixel of the edges
+        long half = Rotation.toFixed(0.5);
+        long maxX = Rotation.toFixed(r.w) - half;
+        long maxY = Rotation.toFixed(r.h) - half;
+
+        for (int y = 0; y < dst.height; y++) {
+            // the sampling point relative to the pixel centers, in fixed point
+            long fx = Rotation.toFixed(r.getSourceX(0, y) - 0.5);
+            long fy = Rotation.toFixed(r.getSourceY(0, y) - 0.5);
+            int d = dst.offset + y * dst.scanlineStride;
+            for (int x = 0; x < dst.width; x++, fx += stepX, fy += stepY) {
+                if (fx < -half || fy < -half || fx >= maxX || fy >= maxY) {
+                    continue;
+                }
+                // the four pixels around the sampling point, clamped to the image, and 8-bit weights
+                int x0 = (int) (fx >> Rotation.FRACTION_BITS);
+                int y0 = (int) (fy >> Rotation.FRACTION_BITS);
+                int ax = (int) (fx >> (Rotation.FRACTION_BITS - 8)) & 0xff;
+                int ay = (int) (fy >> (Rotation.FRACTION_BITS - 8)) & 0xff;
+                int x1 = Math.min(x0 + 1, r.w - 1) * p;
+                int y1 = src.offset + Math.min(y0 + 1, r.h - 1) * src.scanlineStride;
+                x0 = Math.max(x0, 0) * p;
+                y0 = src.offset + Math.max(y0, 0) * src.scanlineStride;
+
+                int top = (data[y0 + x0] & 0xff) * (256 - ax) + (data[y0 + x1] & 0xff) * ax;
+                int bottom = (data[y1 + x0] & 0xff) * (256 - ax) + (data[y1 + x1] & 0xff) * ax;
+                dst.bytes[d + x * p] = (byte) ((top * (256 - ay) + bottom * ay + 32768) >> 16);
+            }
+        }
+    }
+
+    /**
+     * Creates an image of the same type and color model.
+     */
+    private static BufferedImage createImage(BufferedImage image, int width, int height) {
+        int type = image.getType();
+        if (type != BufferedImage.TYPE_CUSTOM && type != BufferedImage.TYPE_BYTE_BINARY
+                && type != BufferedImage.TYPE_BYTE_INDEXED) {
+            return new BufferedImage(width, height, type);
+        }
+        ColorModel cm = image.getColorModel();
+        return new BufferedImage(cm, image.getRaster().createCompatibleWritableRaster(width, height),
+                cm.isAlphaPremultiplied(), null);
+    }
+
+    /**
+     * Direct access to pixel data held in a single bank, as 1-bit packed pixels, interleaved byte samples or int
+     * pixels.
+     */
+    private static class PixelData {
+
+        final int    width;
+        final int    height;
+        final byte[] bytes;
+        final int[]  ints;
+        final int    offset;
+        final int    scanlineStride;
+        // data elements per pixel, or 0 for 1-bit pixels
+        final int    pixelStride;
+        final int    bitOffset;
+
+        private PixelData(BufferedImage image, byte[] bytes, int[] ints, int scanlineStride, int pixelStride,
+                int bitOffset) {
+            this.width = image.getWidth();
+            this.height = image.getHeight();
+            this.bytes = bytes;
+            this.ints = ints;
+            this.offset = image.getRaster().getDataBuffer().getOffset();
+            this.scanlineStride = scanlineStride;
+            this.pixelStride = pixelStride;
+            this.bitOffset = bitOffset;
+        }
+
+        /**
+         * Pixel data of rows of whole bytes, starting at the first byte of the array.
+         */
+        PixelData(byte[] bytes, int width, int height, int scanlineStride, int pixelStride) {
+            this.width = width;
+            this.height = height;
+            this.bytes = bytes;
+            this.ints = null;
+            this.offset = 0;
+            this.scanlineStride = scanlineStride;
+            this.pixelStride = pixelStride;
+            this.bitOffset = 0;
+        }
+
+        /**
+         * Gets the pixel data of an image, or null if the layout is not supported. Child rasters of sub-images are
+         * not supported.
+         */
+        static PixelData get(BufferedImage image) {
+            Raster raster = image.getRaster();
+            SampleModel sm = raster.getSampleModel();
+            DataBuffer db = raster.getDataBuffer();
+            if (raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0
+                    || db.getNumBanks() != 1) {
+                return null;
+            }
+
+            if (sm instanceof MultiPixelPackedSampleModel && db instanceof DataBufferByte
+                    && ((MultiPixelPackedSampleModel) sm).getPixelBitStride() == 1) {
+                MultiPixelPackedSampleModel mppsm = (MultiPixelPackedSampleModel) sm;
+                return new PixelData(image, ((DataBufferByte) db).getData(), null, mppsm.getScanlineStride(), 0,
+                        mppsm.getDataBitOffset());
+            }
+            if (sm instanceof PixelInterleavedSampleModel && db instanceof DataBufferByte) {
+                PixelInterleavedSampleModel pism = (PixelInterleavedSampleModel) sm;
+                int[] bandOffsets = pism.getBandOffsets();
+                int min = Integer.MAX_VALUE;
+                for (int bandOffset : bandOffsets) {
+                    min = Math.min(min, bandOffset);
+                }
+                // the samples of a pixel must be contiguous
+                if (min == 0 && pism.getPixelStride() == bandOffsets.length) {
+                    return new PixelData(image, ((DataBufferByte) db).getData(), null, pism.getScanlineStride(),
+                            pism.getPixelStride(), 0);
+                }
+            }
+            if (sm instanceof SinglePixelPackedSampleModel && db instanceof DataBufferInt) {
+                return new PixelData(image, null, ((DataBufferInt) db).getData(),
+                        ((SinglePixelPackedSampleModel) sm).getScanlineStride(), 1, 0);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Maps the pixels of a row of a rotated image to those of the original image.
+     */
+    private interface PixelMapping {
+
+        /**
+         * Gets the source pixel of each pixel of row y, with -1 for pixels outside of the source image.
+         */
+        void getSourcePixels(int y, int[] sourceX, int[] sourceY);
+    }
+
+    /**
+     * The exact pixel mapping of a clockwise rotation by a number of quarter turns.
+     */
+    private static class QuarterTurn implements PixelMapping {
+
+        final int w;
+        final int h;
+        final int newW;
+        final int newH;
+        final int quadrants;
+
+        QuarterTurn(int w, int h, int quadrants) {
+            this.w = w;
+            this.h = h;
+            this.quadrants = quadrants;
+            this.newW = quadrants % 2 == 0 ? w : h;
+            this.newH = quadrants % 2 == 0 ? h : w;
+        }
+
+        @Override
+        public void getSourcePixels(int y, int[] sourceX, int[] sourceY) {
+            for (int x = 0; x < newW; x++) {
+                switch (quadrants) {
+                    case 0:
+                        sourceX[x] = x;
+                        sourceY[x] = y;
+                        break;
+                    case 1:
+                        sourceX[x] = y;
+                        sourceY[x] = h - 1 - x;
+                        break;
+                    case 2:
+                        sourceX[x] = w - 1 - x;
+                        sourceY[x] = h - 1 - y;
+                        break;
+                    default:
+                        sourceX[x] = w - 1 - y;
+                        sourceY[x] = x;
+                }
+            }
+        }
+    }
+
+    /**
+     * The geometry of a rotation about the center of an image into an enlarged image, as drawn by
+     * <code>Graphics2D</code>: maps the center of a destination pixel back to the source image.
+     */
+    private static class Rotation implements PixelMapping {
+
+        // fraction bits of the fixed-point coordinates
+        static final int FRACTION_BITS = 32;
+
+        final int    w;
+        final int    h;
+        final int    newW;
+        final int    newH;
+        final double sin;
+        final double cos;
+        final double tx;
+        final double ty;
+        final double cx;
+        final double cy;
+
+        Rotation(BufferedImage image, double angle) {
+            double theta = Math.toRadians(angle);
+            this.w = image.getWidth();
+            this.h = image.getHeight();
+            this.sin = Math.sin(theta);
+            this.cos = Math.cos(theta);
+            this.newW = (int) Math.floor(w * Math.abs(cos) + h * Math.abs(sin));
+            this.newH = (int) Math.floor(h * Math.abs(cos) + w * Math.abs(sin));
+            this.tx = (newW - w) / 2;
+            this.ty = (newH - h) / 2;
+            this.cx = w / 2;
+            this.cy = h / 2;
+        }
+
+        double getSourceX(int x, int y) {
+            return cos * (x + 0.5 - tx - cx) + sin * (y + 0.5 - ty - cy) + cx;
+        }
+
+        double getSourceY(int x, int y) {
+            return -sin * (x + 0.5 - tx - cx) + cos * (y + 0.5 - ty - cy) + cy;
+        }
+
+        @Override
+        public void getSourcePixels(int y, int[] sourceX, int[] sourceY) {
+            // nearest neighbor: the pixel containing the mapped center, stepped in fixed point
+            long sx = toFixed(getSourceX(0, y));
+            long sy = toFixed(getSourceY(0, y));
+            long stepX = toFixed(cos);
+            long stepY = toFixed(-sin);
+            long maxX = toFixed(w);
+            long maxY = toFixed(h);
+            for (int x = 0; x < newW; x++, sx += stepX, sy += stepY) {
+                boolean inside = sx >= 0 && sy >= 0 && sx < maxX && sy < maxY;
+                sourceX[x] = inside ? (int) (sx >> FRACTION_BITS) : -1;
+                sourceY[x] = inside ? (int) (sy >> FRACTION_BITS) : -1;
+            }
+        }
+
+        static long toFixed(double value) {
+            return (long) Math.floor(value * (1L << FRACTION_BITS));
+        }
+    }
+
+    /**
+     * Rotates the pixel data of an image in place about its center, as laid out for
+     * <code>TessBaseAPISetImage</code>: rows of <code>ceil(width * bpp / 8)</code> bytes, with all bits set for white.
+     * The rotation is decomposed into three shears that move whole runs of pixels, with nearest-neighbor sampling,
+     * which suits the small angles of skew correction. The image keeps its size; the corners rotated out of it are
+     * lost and those rotated in are filled with white.
+     * 
+     * @param buf pixel data
+     * @param width width of image
+     * @param height height of image
+     * @param bpp bits per pixel: 1, 8, 24 or 32
+     * @param angle the degree of rotation, clockwise as in {@link #rotateImage(BufferedImage, double)}
+     */
+    public static void rotateImageData(ByteBuffer buf, int width, int height, int bpp, double angle) {
+        if (bpp != 1 && bpp != 8 && bpp != 24 && bpp != 32) {
+            throw new IllegalArgumentException("Unsupported bits per pixel: " + bpp);
+        }
+        int bytespl = (width * bpp + 7) / 8;
+        if (buf.capacity() < bytespl * height) {
+            throw new IllegalArgumentException("Buffer too small for a " + width + "x" + height + " image");
+        }
+
+        // R(theta) = X(-tan(theta / 2)) Y(sin(theta)) X(-tan(theta / 2))
+        double theta = Math.toRadians(angle);
+        double xShear = -Math.tan(theta / 2);
+        double yShear = Math.sin(theta);
+        ByteBuffer data = buf.duplicate();
+        shearRows(data, width, height, bpp, bytespl, xShear);
+        shearColumns(data, width, height, bpp, bytespl, yShear);
+        shearRows(data, width, height, bpp, bytespl, xShear);
+    }
+
+    /**
+     * Rotates the pixel data of an image clockwise by a number of quarter turns, as laid out for
+     * <code>TessBaseAPISetImage</code>, remapping the pixels losslessly into a new direct buffer. After an odd number
+     * of quarter turns, the rotated image is <code>height</code> pixels wide and <code>width</code> pixels high.
+     * 
+     * @param buf pixel data
+     * @param width width of image
+     * @param height height of image
+     * @param bpp bits per pixel: 1, 8, 24 or 32
+     * @param quadrants the number of clockwise quarter turns
+     * @return the pixel data of the rotated image
+     */
+    public static ByteBuffer rotateImageDataLossless(ByteBuffer buf, int width, int height, int bpp, int quadrants) {
+        if (bpp != 1 && bpp != 8 && bpp != 24 && bpp != 32) {
+            throw new IllegalArgumentException("Unsupported bits per pixel: " + bpp);
+        }
+        int bytespl = (width * bpp + 7) / 8;
+        if (buf.capacity() < bytespl * height) {
+            throw new IllegalArgumentException("Buffer too small for a " + width + "x" + height + " image");
+        }
+
+        byte[] bytes = new byte[bytespl * height];
+        ByteBuffer data = buf.duplicate();
+        data.position(0);
+        data.get(bytes);
+        QuarterTurn turn = new QuarterTurn(width, height, (quadrants % 4 + 4) % 4);
+        int newBytespl = (turn.newW * bpp + 7) / 8;
+        byte[] rotated = new byte[newBytespl * turn.newH];
+        remap(new PixelData(bytes, width, height, bytespl, bpp / 8), new PixelData(rotated, turn.newW, turn.newH,
+                newBytespl, bpp / 8), turn);
+
+        ByteBuffer result = ByteBuffer.allocateDirect(rotated.length);
+        result.order(buf.order());
+        result.put(rotated);
+        result.flip();
+        return result;
+    }
+
+    /**
+     * Shifts each row horizontally by <code>shear</code> times its distance from the center row.
+     */
+    private static void shearRows(ByteBuffer data, int width, int height, int bpp, int bytespl, double shear) {
+        byte[] row = new byte[bytespl];
+        byte[] shifted = new byte[bytespl];
+        double center = (height - 1) / 2.0;
+
+        for (int y = 0; y < height; y++) {
+            int shift = (int) Math.round(shear * (y - center));
+            if (shift == 0) {
+                continue;
+            }
+            data.position(y * bytespl);
+            data.get(row);
+
+            if (bpp == 1) {
+                // whiten the padding bits, which may be shifted into the row
+                if ((width & 7) != 0) {
+                    row[bytespl - 1] |= (byte) (0xff >> (width & 7));
+                }
+                for (int i = 0; i < bytespl; i++) {
+                    // source bit of the first bit of the byte, and the two bytes it spans
+                    int bit = i * 8 - shift;
+                    int j = bit >> 3;
+                    int pair = (getWhiteByte(row, j) << 8) | getWhiteByte(row, j + 1);
+                    shifted[i] = (byte) (pair >> (8 - (bit & 7)));
+                }
+            } else {
+                int bytespp = bpp / 8;
+                Arrays.fill(shifted, (byte) 0xff);
+                int from = Math.max(0, -shift);
+                int to = Math.min(width, width - shift);
+                if (from < to) {
+                    System.arraycopy(row, from * bytespp, shifted, (from + shift) * bytespp, (to - from) * bytespp);
+                }
+            }
+
+            data.position(y * bytespl);
+            data.put(shifted);
+        }
+    }
+
+    private static int getWhiteByte(byte[] row, int index) {
+        return index >= 0 && index < row.length ? row[index] & 0xff : 0xff;
+    }
+
+    /**
+     * Shifts each column vertically by <code>shear</code> times its distance from the center column. Columns with the
+     * same shift are moved together, a row segment at a time.
+     */
+    private static void shearColumns(ByteBuffer data, int width, int height, int bpp, int bytespl, double shear) {
+        double center = (width - 1) / 2.0;
+        int x0 = 0;
+
+        while (x0 < width) {
+            int shift = (int) Math.round(shear * (x0 - center));
+            int x1 = x0 + 1;
+            while (x1 < width && (int) Math.round(shear * (x1 - center)) == shift) {
+                x1++;
+            }
+
+            if (shift != 0) {
+                // bytes of the strip of columns x0 to x1 - 1, with the masks of the partial end bytes
+                int first;
+                int last;
+                int firstMask = 0xff;
+                int lastMask = 0xff;
+                if (bpp == 1) {
+                    first = x0 >> 3;
+                    last = (x1 - 1) >> 3;
+                    firstMask = 0xff >> (x0 & 7);
+                    lastMask = 0xff00 >> (((x1 - 1) & 7) + 1);
+                    if (first == last) {
+                        firstMask &= lastMask;
+                    }
+                } else {
+                    first = x0 * (bpp / 8);
+                    last = x1 * (bpp / 8) - 1;
+                }
+
+                // move toward the shift so that no source row is overwritten before it is read
+                int step = shift > 0 ? -1 : 1;
+                for (int y = shift > 0 ? height - 1 : 0; y >= 0 && y < height; y += step) {
+                    int src = y - shift;
+                    boolean white = src < 0 || src >= height;
+                    int dstOffset = y * bytespl;
+                    int srcOffset = src * bytespl;
+                    for (int i = first; i <= last; i++) {
+                        int mask = i == first ? firstMask : (i == last ? lastMask : 0xff);
+                        int value = white ? 0xff : data.get(srcOffset + i);
+                        if (mask != 0xff) {
+                            value = (data.get(dstOffset + i) & ~mask) | (value & mask);
+                        }
+                        data.put(dstOffset + i, (byte) value);
+                    }
+                }
+            }
+
+            x0 = x1;
+        }
+    }
+
     /**
      * Gets an image from Clipboard.
      * 
@@ -40,10 +40,12 @@ import javax.imageio.ImageWriteParam;
 import javax.imageio.ImageWriter;
 import javax.imageio.metadata.IIOInvalidTreeException;
 import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataFormatImpl;
 import javax.imageio.metadata.IIOMetadataNode;
 import javax.imageio.stream.ImageInputStream;
 import javax.imageio.stream.ImageOutputStream;
 
+import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
 import com.sun.media.imageio.plugins.tiff.BaselineTIFFTagSet;
@@ -60,6 +62,27 @@ public class ImageIOHelper {
     final static String JAI_IMAGE_WRITER_MESSAGE = "Need to install JAI Image I/O package.\nhttps://java.net/projects/jai-imageio/";
     final static String JAI_IMAGE_READER_MESSAGE = "Unsupported image format. May need to install JAI Image I/O package.\nhttps://java.net/projects/jai-imageio/";
 
+    /**
+     * CCITT Group 4 compression, applicable to bilevel images only.
+     */
+    public final static String TIFF_COMPRESSION_CCITT_T6 = "CCITT T.6";
+
+    /**
+     * LZW compression.
+     */
+    public final static String TIFF_COMPRESSION_LZW      = "LZW";
+
+    /**
+     * Deflate (ZIP) compression.
+     */
+    public final static String TIFF_COMPRESSION_DEFLATE  = "Deflate";
+
+    /**
+     * Largest number of PDF pages rendered with one Ghostscript call while merging, which bounds the pages held in
+     * memory at once.
+     */
+    final static int           PDF_RENDER_BATCH_PAGES    = 16;
+
     /**
      * Creates a list of TIFF image files from an image file. It basically converts images of other formats to TIFF
      * format, or a multi-page TIFF image to multiple TIFF image files.
@@ -70,27 +93,24 @@ public class ImageIOHelper {
      * @throws IOException while processing files
      */
     public static List<File> createTiffFiles(File imageFile, int index) throws IOException {
-        List<File> tiffFiles = new ArrayList<File>();
-
-        String imageFileName = imageFile.getName();
-        String imageFormat = imageFileName.substring(imageFileName.lastIndexOf('.') + 1);
-
-        Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName(imageFormat);
-
-        if (!readers.hasNext()) {
-            throw new RuntimeException(JAI_IMAGE_READER_MESSAGE);
-        }
-
-        ImageReader reader = readers.next();
-
-        ImageInputStream iis = ImageIO.createImageInputStream(imageFile);
-        reader.setInput(iis);
-        // Read the stream metadata
-        // IIOMetadata streamMetadata = reader.getStreamMetadata();
+        return createTiffFiles(imageFile, index, null);
+    }
 
-        // Set up the writeParam
-        TIFFImageWriteParam tiffWriteParam = new TIFFImageWriteParam(Locale.US);
-        tiffWriteParam.setCompressionMode(ImageWriteParam.MODE_DISABLED);
+    /**
+     * Creates a list of TIFF image files from an image file. It basically converts images of other formats to TIFF
+     * format, or a multi-page TIFF image to multiple TIFF image files. Pages are read and written one at a time.
+     * 
+     * @param imageFile input image file
+     * @param index an index of the page; -1 means all pages, as in a multi-page TIFF image
+     * @param compressionType the compression of images other than bilevel, {@link #TIFF_COMPRESSION_LZW} or
+     * {@link #TIFF_COMPRESSION_DEFLATE}; bilevel images are compressed with {@link #TIFF_COMPRESSION_CCITT_T6}.
+     * <code>null</code> means uncompressed.
+     * @return a list of TIFF image files
+     * @throws IOException while processing files
+     */
+    public static List<File> createTiffFiles(File imageFile, int index, String compressionType) throws IOException {
+        List<File> tiffFiles = new ArrayList<File>();
+        ImageReader reader = getImageReader(imageFile);
 
         // Get tif writer and set output to file
         Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(TIFF_FORMAT);
@@ -100,28 +120,28 @@ public class ImageIOHelper {
         }
 
         ImageWriter writer = writers.next();
+        ImageInputStream iis = ImageIO.createImageInputStream(imageFile);
 
-        // Read the stream metadata
-        IIOMetadata streamMetadata = writer.getDefaultStreamMetadata(tiffWriteParam);
+        try {
+            reader.setInput(iis);
 
-        int imageTotal = reader.getNumImages(true);
+            // Get the stream metadata
+            IIOMetadata streamMetadata = writer.getDefaultStreamMetadata(null);
 
-        for (int i = 0; i < imageTotal; i++) {
-            // all if index == -1; otherwise, only index-th
-            if (index == -1 || i == index) {
-                // BufferedImage bi = reader.read(i);
-                // IIOImage oimage = new IIOImage(bi, null, reader.getImageMetadata(i));
-                IIOImage oimage = reader.readAll(i, reader.getDefaultReadParam());
-                File tiffFile = File.createTempFile(OUTPUT_FILE_NAME, TIFF_EXT);
-                ImageOutputStream ios = ImageIO.createImageOutputStream(tiffFile);
-                writer.setOutput(ios);
-                writer.write(streamMetadata, oimage, tiffWriteParam);
-                ios.close();
-                tiffFiles.add(tiffFile);
+            int imageTotal = reader.getNumImages(true);
+
+            for (int i = 0; i < imageTotal; i++) {
+                // all if index == -1; otherwise, only index-th
+                if (index == -1 || i == index) {
+                    IIOImage oimage = reader.readAll(i, reader.getDefaultReadParam());
+                    tiffFiles.add(writeTiffFile(writer, streamMetadata, oimage, compressionType));
+                }
             }
+        } finally {
+            iis.close();
+            writer.dispose();
+            reader.dispose();
         }
-        writer.dispose();
-        reader.dispose();
 
         return tiffFiles;
     }
@@ -140,11 +160,25 @@ public class ImageIOHelper {
 
     public static List<File> createTiffFiles(List<IIOImage> imageList, int index, int dpiX, int dpiY)
             throws IOException {
-        List<File> tiffFiles = new ArrayList<File>();
+        return createTiffFiles(imageList, index, dpiX, dpiY, null);
+    }
 
-        // Set up the writeParam
-        TIFFImageWriteParam tiffWriteParam = new TIFFImageWriteParam(Locale.US);
-        tiffWriteParam.setCompressionMode(ImageWriteParam.MODE_DISABLED);
+    /**
+     * Creates a list of TIFF image files from a list of <code>IIOImage</code> objects.
+     * 
+     * @param imageList a list of <code>IIOImage</code> objects
+     * @param index an index of the page; -1 means all pages
+     * @param dpiX the horizontal resolution to record; 0 to keep the meta data of the images
+     * @param dpiY the vertical resolution to record; 0 to keep the meta data of the images
+     * @param compressionType the compression of images other than bilevel, {@link #TIFF_COMPRESSION_LZW} or
+     * {@link #TIFF_COMPRESSION_DEFLATE}; bilevel images are compressed with {@link #TIFF_COMPRESSION_CCITT_T6}.
+     * <code>null</code> means uncompressed.
+     * @return a list of TIFF image files
+     * @throws IOException while processing files.
+     */
+    public static List<File> createTiffFiles(List<IIOImage> imageList, int index, int dpiX, int dpiY,
+            String compressionType) throws IOException {
+        List<File> tiffFiles = new ArrayList<File>();
 
         // Get tif writer and set output to file
         Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(TIFF_FORMAT);
@@ -155,29 +189,70 @@ public class ImageIOHelper {
 
         ImageWriter writer = writers.next();
 
-        // Get the stream metadata
-        IIOMetadata streamMetadata = writer.getDefaultStreamMetadata(tiffWriteParam);
+        try {
+            // Get the stream metadata
+            IIOMetadata streamMetadata = writer.getDefaultStreamMetadata(null);
 
-        // all if index == -1; otherwise, only index-th
-        for (IIOImage oimage : (index == -1 ? imageList : imageList.subList(index, index + 1))) {
-            if (dpiX != 0 && dpiY != 0) {
-                // Get the default image metadata.
-                ImageTypeSpecifier imageType = ImageTypeSpecifier.createFromRenderedImage(oimage.getRenderedImage());
-                IIOMetadata imageMetadata = writer.getDefaultImageMetadata(imageType, null);
-                imageMetadata = setDPIViaAPI(imageMetadata, dpiX, dpiY);
-                oimage.setMetadata(imageMetadata);
+            // all if index == -1; otherwise, only index-th
+            for (IIOImage oimage : (index == -1 ? imageList : imageList.subList(index, index + 1))) {
+                if (dpiX != 0 && dpiY != 0) {
+                    // Get the default image metadata.
+                    ImageTypeSpecifier imageType = ImageTypeSpecifier
+                            .createFromRenderedImage(oimage.getRenderedImage());
+                    IIOMetadata imageMetadata = writer.getDefaultImageMetadata(imageType, null);
+                    imageMetadata = setDPIViaAPI(imageMetadata, dpiX, dpiY);
+                    oimage.setMetadata(imageMetadata);
+                }
+
+                tiffFiles.add(writeTiffFile(writer, streamMetadata, oimage, compressionType));
             }
+        } finally {
+            writer.dispose();
+        }
 
-            File tiffFile = File.createTempFile(OUTPUT_FILE_NAME, TIFF_EXT);
-            ImageOutputStream ios = ImageIO.createImageOutputStream(tiffFile);
+        return tiffFiles;
+    }
+
+    /**
+     * Writes an image to a temporary TIFF file.
+     */
+    private static File writeTiffFile(ImageWriter writer, IIOMetadata streamMetadata, IIOImage oimage,
+            String compressionType) throws IOException {
+        File tiffFile = File.createTempFile(OUTPUT_FILE_NAME, TIFF_EXT);
+        ImageOutputStream ios = ImageIO.createImageOutputStream(tiffFile);
+
+        try {
             writer.setOutput(ios);
-            writer.write(streamMetadata, oimage, tiffWriteParam);
+            writer.write(streamMetadata, oimage, getTiffWriteParam(oimage.getRenderedImage(), compressionType));
+        } finally {
             ios.close();
-            tiffFiles.add(tiffFile);
         }
-        writer.dispose();
 
-        return tiffFiles;
+        return tiffFile;
+    }
+
+    /**
+     * Sets up the TIFF write parameters for an image: uncompressed if no compression type is given; otherwise CCITT
+     * T.6 for bilevel images and the given compression, or Deflate in place of a CCITT type, for others.
+     */
+    private static TIFFImageWriteParam getTiffWriteParam(RenderedImage image, String compressionType) {
+        TIFFImageWriteParam tiffWriteParam = new TIFFImageWriteParam(Locale.US);
+
+        if (compressionType == null) {
+            tiffWriteParam.setCompressionMode(ImageWriteParam.MODE_DISABLED);
+            return tiffWriteParam;
+        }
+
+        boolean bilevel = image.getSampleModel().getNumBands() == 1 && image.getSampleModel().getSampleSize(0) == 1;
+        if (bilevel) {
+            compressionType = TIFF_COMPRESSION_CCITT_T6;
+        } else if (compressionType.startsWith("CCITT")) {
+            compressionType = TIFF_COMPRESSION_DEFLATE;
+        }
+
+        tiffWriteParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        tiffWriteParam.setCompressionType(compressionType);
+        return tiffWriteParam;
     }
 
     /**
@@ -284,40 +359,58 @@ public class ImageIOHelper {
      * @throws IOException while processing files.
      */
     public static List<IIOImage> getIIOImageList(File imageFile) throws IOException {
-        File workingTiffFile = null;
+        return getIIOImageList(imageFile, 0, 0);
+    }
+
+    /**
+     * Gets a list of <code>IIOImage</code> objects for a range of pages of an image file. For PDF documents, only the
+     * pages in the range are decoded or rendered; see {@link PdfUtilities#getPdfImageList(File, int, int)}.
+     * 
+     * @param imageFile input image file. It can be any of the supported formats, including TIFF, JPEG, GIF, PNG, BMP,
+     * JPEG, and PDF if GPL Ghostscript is installed
+     * @param firstPage the first page, starting at 1; 0 means from the first page of the image
+     * @param lastPage the last page; 0 means up to the last page of the image
+     * @return a list of <code>IIOImage</code> objects
+     * @throws IOException while processing files.
+     */
+    public static List<IIOImage> getIIOImageList(File imageFile, int firstPage, int lastPage) throws IOException {
+        return getIIOImageList(imageFile, firstPage, lastPage, new PdfRenderProfile());
+    }
+
+    /**
+     * Gets a list of <code>IIOImage</code> objects for a range of pages of an image file, rendering PDF pages with the
+     * given settings; see {@link PdfUtilities#getPdfImageList(File, int, int, PdfRenderProfile)}.
+     * 
+     * @param imageFile input image file. It can be any of the supported formats, including TIFF, JPEG, GIF, PNG, BMP,
+     * JPEG, and PDF if GPL Ghostscript is installed
+     * @param firstPage the first page, starting at 1; 0 means from the first page of the image
+     * @param lastPage the last page; 0 means up to the last page of the image
+     * @param profile the settings for rendering PDF pages
+     * @return a list of <code>IIOImage</code> objects
+     * @throws IOException while processing files.
+     */
+    public static List<IIOImage> getIIOImageList(File imageFile, int firstPage, int lastPage, PdfRenderProfile profile)
+            throws IOException {
+        // PDF pages are decoded or rendered
+        if (imageFile.getName().toLowerCase().endsWith(".pdf")) {
+            return PdfUtilities.getPdfImageList(imageFile, firstPage, lastPage, profile);
+        }
 
         ImageReader reader = null;
         ImageInputStream iis = null;
 
         try {
-            // convert PDF to TIFF
-            if (imageFile.getName().toLowerCase().endsWith(".pdf")) {
-                workingTiffFile = PdfUtilities.convertPdf2Tiff(imageFile);
-                imageFile = workingTiffFile;
-            }
-
             List<IIOImage> iioImageList = new ArrayList<IIOImage>();
 
-            String imageFileName = imageFile.getName();
-            String imageFormat = imageFileName.substring(imageFileName.lastIndexOf('.') + 1);
-            if (imageFormat.matches("(pbm|pgm|ppm)")) {
-                imageFormat = "pnm";
-            } else if (imageFormat.equals("jp2")) {
-                imageFormat = "jpeg2000";
-            }
-            Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName(imageFormat);
-
-            if (!readers.hasNext()) {
-                throw new RuntimeException(JAI_IMAGE_READER_MESSAGE);
-            }
-
-            reader = readers.next();
+            reader = getImageReader(imageFile);
             iis = ImageIO.createImageInputStream(imageFile);
             reader.setInput(iis);
 
             int imageTotal = reader.getNumImages(true);
+            int start = firstPage > 0 ? firstPage - 1 : 0;
+            int end = lastPage > 0 ? Math.min(lastPage, imageTotal) : imageTotal;
 
-            for (int i = 0; i < imageTotal; i++) {
+            for (int i = start; i < end; i++) {
                 // IIOImage oimage = new IIOImage(reader.read(i), null, reader.getImageMetadata(i));
                 IIOImage oimage = reader.readAll(i, reader.getDefaultReadParam());
                 iioImageList.add(oimage);
@@ -335,12 +428,29 @@ public class ImageIOHelper {
             } catch (Exception e) {
                 // ignore
             }
-            if (workingTiffFile != null && workingTiffFile.exists()) {
-                workingTiffFile.delete();
-            }
         }
     }
 
+    /**
+     * Gets an image reader for an image file, by its extension.
+     */
+    private static ImageReader getImageReader(File imageFile) {
+        String imageFileName = imageFile.getName();
+        String imageFormat = imageFileName.substring(imageFileName.lastIndexOf('.') + 1);
+        if (imageFormat.matches("(pbm|pgm|ppm)")) {
+            imageFormat = "pnm";
+        } else if (imageFormat.equals("jp2")) {
+            imageFormat = "jpeg2000";
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName(imageFormat);
+
+        if (!readers.hasNext()) {
+            throw new RuntimeException(JAI_IMAGE_READER_MESSAGE);
+        }
+
+        return readers.next();
+    }
+
     /**
      * Gets a list of <code>IIOImage</code> objects for a <code>BufferedImage</code>.
      * 
@@ -363,13 +473,23 @@ public class ImageIOHelper {
      * @throws IOException while processing files.
      */
     public static void mergeTiff(File[] inputImages, File outputTiff) throws IOException {
-        List<IIOImage> imageList = new ArrayList<IIOImage>();
-
-        for (int i = 0; i < inputImages.length; i++) {
-            imageList.addAll(getIIOImageList(inputImages[i]));
-        }
+        mergeTiff(inputImages, outputTiff, null);
+    }
 
-        if (imageList.isEmpty()) {
+    /**
+     * Merges multiple images into one TIFF image. Images are read and appended one at a time, so that memory use is
+     * bounded by the size of the largest page, or of a run of rendered PDF pages. If the input yields no image, no
+     * TIFF file is written.
+     * 
+     * @param inputImages an array of image files
+     * @param outputTiff the output TIFF file
+     * @param compressionType the compression of images other than bilevel, {@link #TIFF_COMPRESSION_LZW} or
+     * {@link #TIFF_COMPRESSION_DEFLATE}; bilevel images are compressed with {@link #TIFF_COMPRESSION_CCITT_T6}.
+     * <code>null</code> means uncompressed.
+     * @throws IOException while processing files.
+     */
+    public static void mergeTiff(File[] inputImages, File outputTiff, String compressionType) throws IOException {
+        if (inputImages.length == 0) {
             // if no image
             return;
         }
@@ -381,27 +501,96 @@ public class ImageIOHelper {
         }
 
         ImageWriter writer = writers.next();
+        ImageOutputStream ios = ImageIO.createImageOutputStream(outputTiff);
+        boolean empty = false;
 
-        // Set up the writeParam
-        TIFFImageWriteParam tiffWriteParam = new TIFFImageWriteParam(Locale.US);
-        tiffWriteParam.setCompressionMode(ImageWriteParam.MODE_DISABLED);
+        try {
+            writer.setOutput(ios);
 
-        // Get the stream metadata
-        IIOMetadata streamMetadata = writer.getDefaultStreamMetadata(tiffWriteParam);
+            // Get the stream metadata
+            IIOMetadata streamMetadata = writer.getDefaultStreamMetadata(null);
+            writer.prepareWriteSequence(streamMetadata);
+            int written = 0;
 
-        ImageOutputStream ios = ImageIO.createImageOutputStream(outputTiff);
-        writer.setOutput(ios);
+            for (File inputImage : inputImages) {
+                if (inputImage.getName().toLowerCase().endsWith(".pdf")) {
+                    written += writePdfPages(writer, inputImage, compressionType);
+                    continue;
+                }
+
+                ImageReader reader = getImageReader(inputImage);
+                ImageInputStream iis = ImageIO.createImageInputStream(inputImage);
+
+                try {
+                    reader.setInput(iis);
+                    int imageTotal = reader.getNumImages(true);
+
+                    for (int i = 0; i < imageTotal; i++) {
+                        IIOImage oimage = reader.readAll(i, reader.getDefaultReadParam());
+                        writer.writeToSequence(oimage, getTiffWriteParam(oimage.getRenderedImage(), compressionType));
+                        written++;
+                    }
+                } finally {
+                    iis.close();
+                    reader.dispose();
+                }
+            }
+
+            if (written == 0) {
+                // no image; leave no empty TIFF behind
+                empty = true;
+                return;
+            }
+            writer.endWriteSequence();
+        } finally {
+            ios.close();
+            writer.dispose();
+            if (empty) {
+                outputTiff.delete();
+            }
+        }
+    }
 
-        IIOImage firstIioImage = imageList.remove(0);
-        writer.write(streamMetadata, firstIioImage, tiffWriteParam);
+    /**
+     * Appends the pages of a PDF document to a TIFF sequence. Each page is decoded, or rendered with the following
+     * pages that are not scanned images, in runs of at most {@link #PDF_RENDER_BATCH_PAGES} pages, and written before
+     * the next pages are read, so that memory use is bounded by the size of a run.
+     * 
+     * @return the number of pages written
+     */
+    private static int writePdfPages(final ImageWriter writer, File pdfFile, final String compressionType)
+            throws IOException {
+        final int[] written = new int[1];
+        PdfUtilities.PageImageHandler handler = new PdfUtilities.PageImageHandler() {
+
+            @Override
+            public void pageImage(IIOImage oimage) throws IOException {
+                writer.writeToSequence(oimage, getTiffWriteParam(oimage.getRenderedImage(), compressionType));
+                written[0]++;
+            }
+        };
 
-        int i = 1;
-        for (IIOImage iioImage : imageList) {
-            writer.writeInsert(i++, iioImage, tiffWriteParam);
+        PdfRenderProfile profile = new PdfRenderProfile();
+        PdfImageExtractor extractor;
+        try {
+            extractor = new PdfImageExtractor(pdfFile);
+        } catch (IOException ioe) {
+            // structure not understood; render the pages
+            int pageCount = PdfUtilities.getPdfPageCount(pdfFile.getPath());
+            if (pageCount > 0) {
+                PdfUtilities.renderPdfImages(pdfFile, 1, pageCount, profile, PDF_RENDER_BATCH_PAGES, handler);
+            } else {
+                // page count unknown; the whole document at once
+                for (IIOImage oimage : getIIOImageList(pdfFile)) {
+                    handler.pageImage(oimage);
+                }
+            }
+            return written[0];
         }
-        ios.close();
 
-        writer.dispose();
+        PdfUtilities.getPdfImages(pdfFile, extractor, 1, extractor.getPageCount(), profile, PDF_RENDER_BATCH_PAGES,
+                handler);
+        return written[0];
     }
 
     /**
@@ -439,4 +628,87 @@ public class ImageIOHelper {
 
         return dict;
     }
+
+    /**
+     * Gets the resolution recorded in the meta data of an image.
+     * 
+     * @param oimage
+     * @return the horizontal resolution in dpi, or 0 if the meta data do not specify it
+     */
+    public static int getResolution(IIOImage oimage) {
+        IIOMetadata imageMetadata = oimage.getMetadata();
+        if (imageMetadata == null || !imageMetadata.isStandardMetadataFormatSupported()) {
+            return 0;
+        }
+
+        IIOMetadataNode dimNode = (IIOMetadataNode) imageMetadata.getAsTree("javax_imageio_1.0");
+        NodeList nodes = dimNode.getElementsByTagName("HorizontalPixelSize");
+        if (nodes.getLength() == 0) {
+            return 0;
+        }
+
+        float dpcWidth = Float.parseFloat(((IIOMetadataNode) nodes.item(0)).getAttribute("value"));
+        return dpcWidth > 0 ? Math.round(25.4f / dpcWidth) : 0;
+    }
+
+    /**
+     * Creates image meta data recording the resolution of an image.
+     * 
+     * @param dpiX horizontal resolution
+     * @param dpiY vertical resolution
+     * @return read-only meta data in the standard meta data format
+     */
+    static IIOMetadata createResolutionMetadata(int dpiX, int dpiY) {
+        return new ResolutionMetadata(dpiX, dpiY);
+    }
+
+    /**
+     * Read-only image meta data that carry only the image resolution.
+     */
+    private static class ResolutionMetadata extends IIOMetadata {
+
+        private final int dpiX;
+        private final int dpiY;
+
+        ResolutionMetadata(int dpiX, int dpiY) {
+            super(true, null, null, null, null);
+            this.dpiX = dpiX;
+            this.dpiY = dpiY;
+        }
+
+        @Override
+        public boolean isReadOnly() {
+            return true;
+        }
+
+        @Override
+        public Node getAsTree(String formatName) {
+            if (!IIOMetadataFormatImpl.standardMetadataFormatName.equals(formatName)) {
+                throw new IllegalArgumentException("Unsupported format: " + formatName);
+            }
+            return getStandardTree();
+        }
+
+        @Override
+        protected IIOMetadataNode getStandardDimensionNode() {
+            IIOMetadataNode horizontal = new IIOMetadataNode("HorizontalPixelSize");
+            horizontal.setAttribute("value", Float.toString(25.4f / dpiX));
+            IIOMetadataNode vertical = new IIOMetadataNode("VerticalPixelSize");
+            vertical.setAttribute("value", Float.toString(25.4f / dpiY));
+            IIOMetadataNode dimNode = new IIOMetadataNode("Dimension");
+            dimNode.appendChild(horizontal);
+            dimNode.appendChild(vertical);
+            return dimNode;
+        }
+
+        @Override
+        public void mergeTree(String formatName, Node root) {
+            throw new IllegalStateException("Read-only meta data");
+        }
+
+        @Override
+        public void reset() {
+            throw new IllegalStateException("Read-only meta data");
+        }
+    }
 }
@@ -0,0 +1,713 @@
+/**
+ * Copyright @ 2014 Quan Nguyen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.vietocr;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.recognition.software.jdeskew.ImageDeskew;
+import com.recognition.software.jdeskew.ImageUtil;
+
+/**
+ * A sequence of preprocessing stages applied to images before recognition. Stages that map each pixel on its own,
+ * namely {@link #crop(Rectangle)}, {@link #grayscale()}, {@link #invert()}, {@link #threshold(int)} and Otsu
+ * binarization, are fused into a single pass over bands of rows, without intermediate images. Stages that need the
+ * whole image, namely {@link #scale(int, int)}, {@link #deskew(double)} and Sauvola binarization, end a pass.
+ * <p>
+ * Gray levels are the luminance of {@link ImageUtil#getLuminance(BufferedImage)}, and a pixel is black if its
+ * luminance is below the threshold, as in skew detection. The last pass can write its rows straight into a direct
+ * buffer laid out for <code>TessBaseAPISetImage</code>; see {@link #applyToBuffer(BufferedImage)}.
+ * <p>
+ * <pre>
+ * ImagePipeline pipeline = new ImagePipeline().crop(rect).grayscale().binarize(ImageHelper.BINARIZATION_OTSU)
+ *         .deskew(0.05);
+ * </pre>
+ */
+public class ImagePipeline {
+
+    private static final int CROP        = 0;
+    private static final int GRAYSCALE   = 1;
+    private static final int INVERT      = 2;
+    private static final int THRESHOLD   = 3;
+    private static final int BINARIZE    = 4;
+    private static final int SCALE       = 5;
+    private static final int DESKEW      = 6;
+
+    private static final String[] STAGE_NAMES = { "crop", "grayscale", "invert", "threshold", "binarize", "scale",
+            "deskew" };
+
+    // pixel representations within a pass: ARGB ints, luminance bytes, or bitmaps in the layout of
+    // ImageUtil.getBlackBitmap
+    private static final int COLOR       = 0;
+    private static final int GRAY        = 1;
+    private static final int BINARY      = 2;
+
+    // rows processed at a time by a thread
+    private static final int BAND_HEIGHT = 64;
+
+    private final List<Stage> stages     = new ArrayList<Stage>();
+    private int               threads    = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * A stage of the pipeline.
+     */
+    private static class Stage {
+
+        final int       kind;
+        final int       value;
+        final int       height;
+        final double    threshold;
+        final Rectangle rect;
+
+        Stage(int kind, int value, int height, double threshold, Rectangle rect) {
+            this.kind = kind;
+            this.value = value;
+            this.height = height;
+            this.threshold = threshold;
+            this.rect = rect;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s(%d, %d, %s, %s)", STAGE_NAMES[kind], value, height, threshold, rect);
+        }
+    }
+
+    /**
+     * Pixel data written for <code>TessBaseAPISetImage</code>: rows of <code>ceil(width * bpp / 8)</code> bytes, with
+     * 1-bit pixels packed most significant bit first and 0 for black, 8-bit gray levels, or 24-bit RGB samples.
+     */
+    public static class ImageData {
+
+        private final ByteBuffer buffer;
+        private final int        width;
+        private final int        height;
+        private final int        bitsPerPixel;
+
+        ImageData(ByteBuffer buffer, int width, int height, int bitsPerPixel) {
+            this.buffer = buffer;
+            this.width = width;
+            this.height = height;
+            this.bitsPerPixel = bitsPerPixel;
+        }
+
+        /**
+         * @return the direct buffer of pixel data
+         */
+        public ByteBuffer getBuffer() {
+            return buffer;
+        }
+
+        /**
+         * @return the width of the image
+         */
+        public int getWidth() {
+            return width;
+        }
+
+        /**
+         * @return the height of the image
+         */
+        public int getHeight() {
+            return height;
+        }
+
+        /**
+         * @return the bits per pixel: 1, 8 or 24
+         */
+        public int getBitsPerPixel() {
+            return bitsPerPixel;
+        }
+    }
+
+    /**
+     * Sets the number of threads sharing the bands of rows of each pass, and the work of the stages that support it.
+     * The default is the number of available processors.
+     *
+     * @param threads the number of threads
+     * @return this pipeline
+     */
+    public ImagePipeline setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+        return this;
+    }
+
+    /**
+     * Adds a stage keeping a region of the image. The part of the region outside the image is ignored.
+     *
+     * @param rect the region to keep
+     * @return this pipeline
+     */
+    public ImagePipeline crop(Rectangle rect) {
+        stages.add(new Stage(CROP, 0, 0, 0, new Rectangle(rect)));
+        return this;
+    }
+
+    /**
+     * Adds a stage converting the image to gray levels.
+     *
+     * @return this pipeline
+     */
+    public ImagePipeline grayscale() {
+        stages.add(new Stage(GRAYSCALE, 0, 0, 0, null));
+        return this;
+    }
+
+    /**
+     * Adds a stage inverting the colors of the image.
+     *
+     * @return this pipeline
+     */
+    public ImagePipeline invert() {
+        stages.add(new Stage(INVERT, 0, 0, 0, null));
+        return this;
+    }
+
+    /**
+     * Adds a stage converting the image to a binary image with a global threshold.
+     *
+     * @param luminanceCutOff pixels of lower luminance become black
+     * @return this pipeline
+     */
+    public ImagePipeline threshold(int luminanceCutOff) {
+        stages.add(new Stage(THRESHOLD, luminanceCutOff, 0, 0, null));
+        return this;
+    }
+
+    /**
+     * Adds a stage converting the image to a binary image, as
+     * {@link ImageHelper#convertImageToBinary(BufferedImage, int, int)} does.
+     *
+     * @param method {@link ImageHelper#BINARIZATION_NONE}, {@link ImageHelper#BINARIZATION_OTSU} or
+     * {@link ImageHelper#BINARIZATION_SAUVOLA}
+     * @return this pipeline
+     */
+    public ImagePipeline binarize(int method) {
+        if (method < ImageHelper.BINARIZATION_NONE || method > ImageHelper.BINARIZATION_SAUVOLA) {
+            throw new IllegalArgumentException("Unknown binarization method: " + method);
+        }
+        stages.add(new Stage(BINARIZE, method, 0, 0, null));
+        return this;
+    }
+
+    /**
+     * Adds a stage scaling the image, as {@link ImageHelper#getScaledInstance(BufferedImage, int, int, int)} does.
+     *
+     * @param width the width of the scaled image
+     * @param height the height of the scaled image
+     * @return this pipeline
+     */
+    public ImagePipeline scale(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Invalid size: " + width + "x" + height);
+        }
+        stages.add(new Stage(SCALE, width, height, 0, null));
+        return this;
+    }
+
+    /**
+     * Adds a stage measuring the skew angle of the image and, if it exceeds the threshold, straightening the image as
+     * {@link ImageHelper#rotateImageData(ByteBuffer, int, int, int, double)} does: the image keeps its size, with the
+     * corners rotated in filled with white. Color images come out with 24-bit RGB pixels.
+     *
+     * @param threshold the smallest angle corrected, in degrees
+     * @return this pipeline
+     */
+    public ImagePipeline deskew(double threshold) {
+        stages.add(new Stage(DESKEW, 0, 0, threshold, null));
+        return this;
+    }
+
+    /**
+     * Describes the stages of the pipeline in order, with all their parameters, and the number of threads. Pipelines
+     * with the same description process images alike, so that the description can stand for the pipeline in the keys
+     * of cached results, across instances and processes.
+     *
+     * @return the description of the pipeline
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("ImagePipeline[threads=").append(threads);
+        for (Stage stage : stages) {
+            sb.append(", ").append(stage);
+        }
+        return sb.append(']').toString();
+    }
+
+    /**
+     * Applies the stages to an image. The input image is not modified, but may be returned, or share its pixel data
+     * with the result of a crop, when no stage changes pixels.
+     *
+     * @param image the input image
+     * @return the processed image: <code>TYPE_BYTE_BINARY</code> after a threshold or binarization,
+     * <code>TYPE_BYTE_GRAY</code> after a gray conversion, and otherwise of a color type
+     */
+    public BufferedImage apply(BufferedImage image) {
+        return (BufferedImage) run(image, false);
+    }
+
+    /**
+     * Applies the stages to an image, writing the result of the last pass straight into a direct buffer. An image
+     * straightened by a final deskew stage is rotated in that buffer.
+     *
+     * @param image the input image
+     * @return the pixel data of the processed image
+     */
+    public ImageData applyToBuffer(BufferedImage image) {
+        return (ImageData) run(image, true);
+    }
+
+    /**
+     * Runs the stages, fusing the pointwise stages between those that need the whole image.
+     */
+    private Object run(BufferedImage image, boolean toBuffer) {
+        BufferedImage current = image;
+        // whether the current image was created by the pipeline and may be modified in place
+        boolean owned = false;
+        Rectangle window = null;
+        List<Stage> pending = new ArrayList<Stage>();
+        double angle = 0;
+
+        for (int i = 0; i < stages.size(); i++) {
+            Stage stage = stages.get(i);
+            switch (stage.kind) {
+                case CROP:
+                    // pointwise stages commute with a crop, so the windows compose
+                    Rectangle bounds = window != null ? window : new Rectangle(current.getWidth(),
+                            current.getHeight());
+                    Rectangle rect = new Rectangle(stage.rect);
+                    rect.translate(bounds.x, bounds.y);
+                    window = bounds.intersection(rect);
+                    if (window.isEmpty()) {
+                        throw new IllegalArgumentException("Crop outside the image: " + stage.rect);
+                    }
+                    break;
+                case GRAYSCALE:
+                case INVERT:
+                case THRESHOLD:
+                    pending.add(stage);
+                    break;
+                case BINARIZE:
+                    if (stage.value == ImageHelper.BINARIZATION_OTSU) {
+                        // the histogram is taken in a pass of the pending stages, whose output is then thresholded
+                        if (window != null) {
+                            current = current.getSubimage(window.x, window.y, window.width, window.height);
+                            window = null;
+                        }
+                        int cutOff = ImageHelper.getOtsuThreshold(new Pass(current, pending).getHistogram());
+                        pending.add(new Stage(THRESHOLD, cutOff, 0, 0, null));
+                    } else if (stage.value == ImageHelper.BINARIZATION_SAUVOLA) {
+                        current = flush(current, window, pending);
+                        window = null;
+                        current = ImageHelper.convertImageToBinarySauvola(current,
+                                ImageHelper.DEFAULT_SAUVOLA_WINDOW_SIZE, ImageHelper.DEFAULT_SAUVOLA_K, threads);
+                        owned = true;
+                    }
+                    break;
+                case SCALE:
+                    current = flush(current, window, pending);
+                    window = null;
+                    current = ImageHelper.getScaledInstance(current, stage.value, stage.height, threads);
+                    owned = true;
+                    break;
+                default:
+                    owned |= !pending.isEmpty();
+                    current = flush(current, window, pending);
+                    window = null;
+                    ImageDeskew deskew = new ImageDeskew(current);
+                    deskew.setThreads(threads);
+                    double skewAngle = deskew.getSkewAngle();
+                    if (skewAngle > stage.threshold || skewAngle < -stage.threshold) {
+                        if (toBuffer && i == stages.size() - 1) {
+                            // rotated in the output buffer
+                            angle = skewAngle;
+                        } else {
+                            current = rotate(current, owned, -skewAngle);
+                            owned = true;
+                        }
+                    }
+                    break;
+            }
+        }
+
+        if (!toBuffer) {
+            return flush(current, window, pending);
+        }
+        if (window != null) {
+            current = current.getSubimage(window.x, window.y, window.width, window.height);
+        }
+        ImageData data = new Pass(current, pending).writeBuffer();
+        if (angle != 0) {
+            ImageHelper.rotateImageData(data.getBuffer(), data.getWidth(), data.getHeight(), data.getBitsPerPixel(),
+                    -angle);
+        }
+        return data;
+    }
+
+    /**
+     * Applies the pending crop and pointwise stages, if any, and clears them.
+     */
+    private BufferedImage flush(BufferedImage image, Rectangle window, List<Stage> pending) {
+        if (window != null) {
+            image = image.getSubimage(window.x, window.y, window.width, window.height);
+        }
+        if (pending.isEmpty()) {
+            return image;
+        }
+        BufferedImage result = new Pass(image, pending).writeImage();
+        pending.clear();
+        return result;
+    }
+
+    /**
+     * Rotates an image about its center, keeping its size, in a byte layout supported by
+     * {@link ImageHelper#rotateImageData(ByteBuffer, int, int, int, double)}.
+     */
+    private static BufferedImage rotate(BufferedImage image, boolean owned, double angle) {
+        int type = image.getType();
+        int bpp;
+        if (type == BufferedImage.TYPE_BYTE_BINARY && image.getColorModel().getPixelSize() == 1) {
+            bpp = 1;
+        } else if (type == BufferedImage.TYPE_BYTE_GRAY) {
+            bpp = 8;
+        } else {
+            type = BufferedImage.TYPE_3BYTE_BGR;
+            bpp = 24;
+        }
+
+        // images created by the pipeline, unlike sub-images, have no padding between rows
+        if (!owned || image.getType() != type || image.getRaster().getParent() != null) {
+            BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), type);
+            Graphics2D g2 = copy.createGraphics();
+            g2.drawImage(image, 0, 0, null);
+            g2.dispose();
+            image = copy;
+        }
+        byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        ImageHelper.rotateImageData(ByteBuffer.wrap(data), image.getWidth(), image.getHeight(), bpp, angle);
+        return image;
+    }
+
+    /**
+     * A single pass applying pointwise stages to bands of rows.
+     */
+    private class Pass {
+
+        final BufferedImage image;
+        final int[]         kinds;
+        final int[]         cutOffs;
+        final int           width;
+        final int           height;
+        final int           input;
+        final int           output;
+
+        Pass(BufferedImage image, List<Stage> pending) {
+            this.image = image;
+            this.width = image.getWidth();
+            this.height = image.getHeight();
+            this.kinds = new int[pending.size()];
+            this.cutOffs = new int[pending.size()];
+            for (int i = 0; i < kinds.length; i++) {
+                kinds[i] = pending.get(i).kind;
+                cutOffs[i] = pending.get(i).value;
+            }
+
+            boolean binary = image.getColorModel().getPixelSize() == 1;
+            boolean color = !binary && image.getColorModel().getNumColorComponents() >= 3;
+            // color images are read as luminance unless inverted before their conversion, or never converted
+            int first = GRAY;
+            if (binary) {
+                first = BINARY;
+            } else if (color) {
+                first = COLOR;
+                for (int kind : kinds) {
+                    if (kind == INVERT) {
+                        break;
+                    }
+                    if (kind == GRAYSCALE || kind == THRESHOLD) {
+                        first = GRAY;
+                        break;
+                    }
+                }
+            }
+            this.input = first;
+
+            int last = first;
+            for (int kind : kinds) {
+                if (kind == GRAYSCALE) {
+                    last = GRAY;
+                } else if (kind == THRESHOLD) {
+                    last = BINARY;
+                }
+            }
+            this.output = last;
+        }
+
+        BufferedImage writeImage() {
+            int type = output == BINARY ? BufferedImage.TYPE_BYTE_BINARY : output == GRAY
+                    ? BufferedImage.TYPE_BYTE_GRAY : image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB
+                    : BufferedImage.TYPE_INT_RGB;
+            final BufferedImage result = new BufferedImage(width, height, type);
+            if (output == COLOR) {
+                final int[] data = ((DataBufferInt) result.getRaster().getDataBuffer()).getData();
+                run(new Writer() {
+
+                    @Override
+                    public void write(int yStart, Band band) {
+                        System.arraycopy(band.argb, 0, data, yStart * width, band.argb.length);
+                    }
+                });
+            } else {
+                final int stride = getStride();
+                final byte[] data = ((DataBufferByte) result.getRaster().getDataBuffer()).getData();
+                run(new Writer() {
+
+                    @Override
+                    public void write(int yStart, Band band) {
+                        copyBytes(band, data, yStart * stride);
+                    }
+                });
+            }
+            return result;
+        }
+
+        ImageData writeBuffer() {
+            final int stride = getStride();
+            final ByteBuffer buf = ByteBuffer.allocateDirect(stride * height);
+            buf.order(ByteOrder.nativeOrder());
+            run(new Writer() {
+
+                @Override
+                public void write(int yStart, Band band) {
+                    ByteBuffer data = buf.duplicate();
+                    data.position(yStart * stride);
+                    if (output == COLOR) {
+                        byte[] rgb = new byte[band.argb.length * 3];
+                        for (int i = 0, j = 0; i < band.argb.length; i++, j += 3) {
+                            int pixel = band.argb[i];
+                            rgb[j] = (byte) (pixel >> 16);
+                            rgb[j + 1] = (byte) (pixel >> 8);
+                            rgb[j + 2] = (byte) pixel;
+                        }
+                        data.put(rgb);
+                    } else if (output == GRAY) {
+                        data.put(band.gray);
+                    } else {
+                        // 0 is black in 1-bit data for Tesseract
+                        byte[] bits = band.bits;
+                        for (int i = 0; i < bits.length; i++) {
+                            bits[i] = (byte) ~bits[i];
+                        }
+                        data.put(bits);
+                    }
+                }
+            });
+            return new ImageData(buf, width, height, output == BINARY ? 1 : output == GRAY ? 8 : 24);
+        }
+
+        /**
+         * Gets the luminance histogram of the output, without writing it.
+         */
+        long[] getHistogram() {
+            final long[] histogram = new long[256];
+            run(new Writer() {
+
+                @Override
+                public void write(int yStart, Band band) {
+                    band.toGray();
+                    int[] bandHistogram = new int[256];
+                    for (byte luminance : band.gray) {
+                        bandHistogram[luminance & 0xff]++;
+                    }
+                    ImageHelper.addHistogram(histogram, bandHistogram);
+                }
+            });
+            return histogram;
+        }
+
+        /**
+         * Gets the bytes of an output row in the layout of <code>TessBaseAPISetImage</code>.
+         */
+        int getStride() {
+            return output == BINARY ? ImageUtil.getBitmapStride(width) : output == GRAY ? width : width * 3;
+        }
+
+        /**
+         * Copies gray levels, or the inverse of a bitmap of black pixels, into the byte layout of the output.
+         */
+        void copyBytes(Band band, byte[] data, int offset) {
+            if (output == GRAY) {
+                System.arraycopy(band.gray, 0, data, offset, band.gray.length);
+            } else {
+                // 0 is black in the palette of TYPE_BYTE_BINARY
+                for (int i = 0; i < band.bits.length; i++) {
+                    data[offset + i] = (byte) ~band.bits[i];
+                }
+            }
+        }
+
+        void run(final Writer writer) {
+            int bandCount = (height + BAND_HEIGHT - 1) / BAND_HEIGHT;
+            ImageHelper.processBands(height, bandCount, threads, new ImageHelper.RowBandTask() {
+
+                @Override
+                public void process(int yStart, int yEnd) {
+                    writer.write(yStart, read(yStart, yEnd));
+                }
+            });
+        }
+
+        /**
+         * Reads rows yStart to yEnd - 1 and applies the stages to them.
+         */
+        Band read(int yStart, int yEnd) {
+            Band band = new Band(width, yEnd - yStart);
+            if (input == COLOR) {
+                band.argb = image.getRGB(0, yStart, width, band.rows, null, 0, width);
+            } else if (input == GRAY) {
+                band.gray = ImageUtil.getLuminance(image, yStart, yEnd);
+            } else {
+                band.bits = ImageUtil.getBlackBitmap(image, yStart, yEnd);
+            }
+            band.representation = input;
+
+            for (int i = 0; i < kinds.length; i++) {
+                if (kinds[i] == INVERT) {
+                    band.invert();
+                } else if (kinds[i] == GRAYSCALE) {
+                    band.toGray();
+                } else {
+                    band.threshold(cutOffs[i]);
+                }
+            }
+            return band;
+        }
+    }
+
+    /**
+     * Writes the processed rows of a band.
+     */
+    private interface Writer {
+
+        void write(int yStart, Band band);
+    }
+
+    /**
+     * The pixels of a band of rows in one of the representations.
+     */
+    private static class Band {
+
+        final int width;
+        final int rows;
+        int       representation;
+        int[]     argb;
+        byte[]    gray;
+        byte[]    bits;
+
+        Band(int width, int rows) {
+            this.width = width;
+            this.rows = rows;
+        }
+
+        void invert() {
+            if (representation == COLOR) {
+                for (int i = 0; i < argb.length; i++) {
+                    argb[i] ^= 0xffffff;
+                }
+            } else if (representation == GRAY) {
+                for (int i = 0; i < gray.length; i++) {
+                    gray[i] = (byte) ~gray[i];
+                }
+            } else {
+                for (int i = 0; i < bits.length; i++) {
+                    bits[i] = (byte) ~bits[i];
+                }
+                clearPadding();
+            }
+        }
+
+        /**
+         * Clears the bits past the end of each row of the bitmap.
+         */
+        void clearPadding() {
+            int stride = ImageUtil.getBitmapStride(width);
+            byte last = (byte) (0xff << (stride * 8 - width));
+            for (int i = stride - 1; i < bits.length; i += stride) {
+                bits[i] &= last;
+            }
+        }
+
+        void toGray() {
+            if (representation == COLOR) {
+                // the rows as a TYPE_INT_RGB image, ignoring alpha
+                DirectColorModel cm = new DirectColorModel(24, 0xff0000, 0xff00, 0xff);
+                WritableRaster raster = Raster.createPackedRaster(new DataBufferInt(argb, argb.length), width, rows,
+                        width, cm.getMasks(), null);
+                gray = ImageUtil.getLuminance(new BufferedImage(cm, raster, false, null));
+                argb = null;
+            } else if (representation == BINARY) {
+                int stride = ImageUtil.getBitmapStride(width);
+                gray = new byte[width * rows];
+                for (int y = 0; y < rows; y++) {
+                    for (int x = 0; x < width; x++) {
+                        boolean black = (bits[y * stride + (x >> 3)] & (0x80 >> (x & 7))) != 0;
+                        gray[y * width + x] = black ? 0 : (byte) 0xff;
+                    }
+                }
+                bits = null;
+            }
+            representation = GRAY;
+        }
+
+        void threshold(int luminanceCutOff) {
+            if (representation == BINARY) {
+                // black pixels have a luminance of 0 and white ones of 255
+                if (luminanceCutOff <= 0) {
+                    Arrays.fill(bits, (byte) 0);
+                } else if (luminanceCutOff > 255) {
+                    Arrays.fill(bits, (byte) 0xff);
+                    clearPadding();
+                }
+                return;
+            }
+            toGray();
+            int stride = ImageUtil.getBitmapStride(width);
+            bits = new byte[stride * rows];
+            for (int y = 0; y < rows; y++) {
+                int offset = y * width;
+                int bitOffset = y * stride;
+                for (int x = 0; x < width; x++) {
+                    if ((gray[offset + x] & 0xff) < luminanceCutOff) {
+                        bits[bitOffset + (x >> 3)] |= 0x80 >> (x & 7);
+                    }
+                }
+            }
+            gray = null;
+            representation = BINARY;
+        }
+    }
+}
@@ -0,0 +1,1206 @@
+/**
+ * Copyright @ 2014 Quan Nguyen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.vietocr;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+
+/**
+ * A minimal PDF reader that finds pages consisting of a single embedded image drawn over the whole page, as produced
+ * by scanners, and decodes the image directly at its native resolution so that the page need not be rendered.
+ * <br />
+ * Only the structures needed for that purpose are parsed: cross-reference tables and streams, object streams, the
+ * page tree, page content streams, and <code>DCTDecode</code>, <code>CCITTFaxDecode</code> (Group 4) and
+ * <code>FlateDecode</code> image data. Anything else makes a page ineligible, and it is left to be rendered.
+ */
+class PdfImageExtractor {
+
+    private final static Logger              logger     = Logger.getLogger(PdfImageExtractor.class.getName());
+
+    /**
+     * Limit on the decoded length of streams other than images, whose limit follows from their dimensions.
+     */
+    static final int                         MAX_DECODED_LENGTH = 1 << 26;
+
+    private final ByteBuffer                 data;
+    private final Map<Integer, Long>         offsets    = new HashMap<Integer, Long>();
+    private final Map<Integer, int[]>        compressed = new HashMap<Integer, int[]>();
+    private final Map<Integer, Object>       objects    = new HashMap<Integer, Object>();
+    private final List<Map<String, Object>> pages      = new ArrayList<Map<String, Object>>();
+    private Map<String, Object>              trailer;
+
+    /**
+     * Opens a PDF document and reads its page tree.
+     *
+     * @param pdfFile a PDF document
+     * @throws IOException if the document cannot be read or its structure is not understood
+     */
+    PdfImageExtractor(File pdfFile) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(pdfFile, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            raf.close();
+        }
+
+        try {
+            readXref();
+            Map<String, Object> catalog = dict(resolve(trailer.get("Root")));
+            if (catalog == null) {
+                throw new IOException("Document catalog not found");
+            }
+            collectPages(dict(resolve(catalog.get("Pages"))), new HashMap<String, Object>(),
+                    Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>()));
+        } catch (RuntimeException re) {
+            // malformed structure
+            throw new IOException(re.getMessage());
+        }
+    }
+
+    /**
+     * Gets the number of pages of the document.
+     *
+     * @return page count
+     */
+    int getPageCount() {
+        return pages.size();
+    }
+
+    /**
+     * Gets the size of a page in points, as given by its media box.
+     *
+     * @param pageIndex index of the page, starting at 0
+     * @return the width and height of the page, or <code>null</code> if the media box is missing
+     */
+    double[] getPageSize(int pageIndex) {
+        double[] mediaBox = numbers(resolve(pages.get(pageIndex).get("MediaBox")));
+        if (mediaBox == null || mediaBox.length != 4) {
+            return null;
+        }
+        return new double[] { Math.abs(mediaBox[2] - mediaBox[0]), Math.abs(mediaBox[3] - mediaBox[1]) };
+    }
+
+    /**
+     * Gets the image of a page if the page consists of a single image covering the page.
+     *
+     * @param pageIndex index of the page, starting at 0
+     * @return the decoded image with its resolution in the meta data, or <code>null</code> if the page is not a simple
+     * image page or its image cannot be decoded
+     */
+    IIOImage getPageImage(int pageIndex) {
+        try {
+            Map<String, Object> page = pages.get(pageIndex);
+
+            if (intValue(resolve(page.get("Rotate")), 0) % 360 != 0) {
+                return null;
+            }
+
+            double[] mediaBox = numbers(resolve(page.get("MediaBox")));
+            Map<String, Object> resources = dict(resolve(page.get("Resources")));
+            if (mediaBox == null || mediaBox.length != 4 || resources == null) {
+                return null;
+            }
+
+            Map<String, Object> xobjects = dict(resolve(resources.get("XObject")));
+            if (xobjects == null || xobjects.size() != 1) {
+                return null;
+            }
+
+            String imageName = xobjects.keySet().iterator().next();
+            Object xobject = resolve(xobjects.get(imageName));
+            if (!(xobject instanceof Stream) || !"Image".equals(((Stream) xobject).dict.get("Subtype"))) {
+                return null;
+            }
+            Stream image = (Stream) xobject;
+
+            double[] matrix = getImageMatrix(getPageContent(page), imageName);
+            if (matrix == null || !coversPage(matrix, mediaBox)) {
+                return null;
+            }
+
+            BufferedImage bi = decodeImage(image);
+            if (bi == null) {
+                return null;
+            }
+
+            int dpiX = (int) Math.round(bi.getWidth() * 72 / matrix[0]);
+            int dpiY = (int) Math.round(bi.getHeight() * 72 / matrix[3]);
+            return new IIOImage(bi, null, ImageIOHelper.createResolutionMetadata(dpiX, dpiY));
+        } catch (Exception e) {
+            // not understood; leave the page to be rendered
+            logger.log(Level.FINE, e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Checks that the image placement matrix draws the image upright over the media box.
+     */
+    private static boolean coversPage(double[] m, double[] mediaBox) {
+        double pageWidth = Math.abs(mediaBox[2] - mediaBox[0]);
+        double pageHeight = Math.abs(mediaBox[3] - mediaBox[1]);
+        double x = Math.min(mediaBox[0], mediaBox[2]);
+        double y = Math.min(mediaBox[1], mediaBox[3]);
+        double tolerance = 0.02;
+
+        return m[0] > 0 && m[3] > 0 && Math.abs(m[1]) < 1e-6 && Math.abs(m[2]) < 1e-6
+                && Math.abs(m[0] - pageWidth) <= pageWidth * tolerance
+                && Math.abs(m[3] - pageHeight) <= pageHeight * tolerance
+                && Math.abs(m[4] - x) <= pageWidth * tolerance && Math.abs(m[5] - y) <= pageHeight * tolerance;
+    }
+
+    /**
+     * Scans a content stream and returns the transformation matrix of the only image drawn, or <code>null</code> if
+     * the content draws anything else that would show on the rendered page.
+     */
+    private static double[] getImageMatrix(byte[] content, String imageName) {
+        Lexer lexer = new Lexer(ByteBuffer.wrap(content));
+        List<Object> operands = new ArrayList<Object>();
+        List<double[]> stack = new ArrayList<double[]>();
+        // current transformation matrix followed by text rendering mode
+        double[] state = { 1, 0, 0, 1, 0, 0, 0 };
+        double[] imageMatrix = null;
+
+        while (true) {
+            Object token = lexer.next();
+            if (token == Lexer.EOF) {
+                break;
+            }
+            if (!(token instanceof Operator)) {
+                operands.add(token);
+                continue;
+            }
+
+            String op = ((Operator) token).name;
+            if (op.equals("q")) {
+                stack.add(state.clone());
+            } else if (op.equals("Q")) {
+                if (!stack.isEmpty()) {
+                    state = stack.remove(stack.size() - 1);
+                }
+            } else if (op.equals("cm")) {
+                double[] m = numbers(operands);
+                if (m == null || m.length != 6) {
+                    return null;
+                }
+                state = concat(m, state);
+            } else if (op.equals("Tr")) {
+                state[6] = operands.isEmpty() ? 0 : ((Number) operands.get(0)).doubleValue();
+            } else if (op.equals("Do")) {
+                if (imageMatrix != null || operands.isEmpty() || !imageName.equals(operands.get(0))) {
+                    return null;
+                }
+                imageMatrix = state.clone();
+            } else if (op.equals("Tj") || op.equals("TJ") || op.equals("'") || op.equals("\"")) {
+                // only invisible text, as added by OCR software, is allowed
+                if (state[6] != 3) {
+                    return null;
+                }
+            } else if (op.matches("[SsfFBb]\\*?|BI|sh")) {
+                // painted paths, inline images and shadings would show on the page
+                return null;
+            }
+            operands.clear();
+        }
+
+        return imageMatrix;
+    }
+
+    /**
+     * Concatenates matrix <code>m</code> with the current transformation matrix, as the <code>cm</code> operator does.
+     */
+    private static double[] concat(double[] m, double[] ctm) {
+        double[] r = ctm.clone();
+        r[0] = m[0] * ctm[0] + m[1] * ctm[2];
+        r[1] = m[0] * ctm[1] + m[1] * ctm[3];
+        r[2] = m[2] * ctm[0] + m[3] * ctm[2];
+        r[3] = m[2] * ctm[1] + m[3] * ctm[3];
+        r[4] = m[4] * ctm[0] + m[5] * ctm[2] + ctm[4];
+        r[5] = m[4] * ctm[1] + m[5] * ctm[3] + ctm[5];
+        return r;
+    }
+
+    /**
+     * Gets the decoded content of a page, concatenating content stream arrays.
+     */
+    private byte[] getPageContent(Map<String, Object> page) throws IOException {
+        Object contents = resolve(page.get("Contents"));
+        List<?> parts = contents instanceof List ? (List<?>) contents : Collections.singletonList(contents);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        for (Object part : parts) {
+            Object stream = resolve(part);
+            if (!(stream instanceof Stream)) {
+                throw new IOException("Invalid page content");
+            }
+            out.write(decodeStream((Stream) stream));
+            out.write(' ');
+        }
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes image data into a <code>BufferedImage</code>, or returns <code>null</code> for unsupported encodings.
+     */
+    private BufferedImage decodeImage(Stream image) throws IOException {
+        Map<String, Object> dict = image.dict;
+        if (Boolean.TRUE.equals(resolve(dict.get("ImageMask"))) || dict.containsKey("SMask")
+                || dict.containsKey("Mask")) {
+            return null;
+        }
+
+        List<Object> filters = getFilters(dict);
+        if (filters.size() != 1) {
+            return null;
+        }
+
+        String filter = (String) filters.get(0);
+        int width = intValue(resolve(dict.get("Width")), 0);
+        int height = intValue(resolve(dict.get("Height")), 0);
+        int bpc = intValue(resolve(dict.get("BitsPerComponent")), 8);
+        double[] decode = numbers(resolve(dict.get("Decode")));
+        boolean inverted = decode != null && decode.length >= 2 && decode[0] > decode[1];
+        if (width <= 0 || height <= 0) {
+            return null;
+        }
+
+        if (filter.equals("DCTDecode") || filter.equals("DCT")) {
+            if (decode != null || "DeviceCMYK".equals(resolve(dict.get("ColorSpace")))) {
+                return null;
+            }
+            return ImageIO.read(new ByteArrayInputStream(getRawData(image)));
+        } else if (filter.equals("CCITTFaxDecode") || filter.equals("CCF")) {
+            Map<String, Object> parms = getDecodeParms(dict);
+            int k = intValue(resolve(parms.get("K")), 0);
+            if (k >= 0 || Boolean.TRUE.equals(resolve(parms.get("EncodedByteAlign")))) {
+                // only Group 4 data maps directly onto a TIFF strip
+                return null;
+            }
+            boolean blackIs1 = Boolean.TRUE.equals(resolve(parms.get("BlackIs1")));
+            byte[] tiff = wrapCCITTFax(getRawData(image), width, height, blackIs1 ^ inverted);
+            return ImageIO.read(new ByteArrayInputStream(tiff));
+        } else if (filter.equals("FlateDecode") || filter.equals("Fl")) {
+            int components = getColorComponents(resolve(dict.get("ColorSpace")));
+            if ((components != 1 && components != 3) || (bpc != 8 && !(bpc == 1 && components == 1))
+                    || (decode != null && !(bpc == 1 && inverted))) {
+                return null;
+            }
+            // a row of samples, plus a PNG predictor tag byte, per line
+            long rowLength = ((long) width * components * bpc + 7) / 8 + 1;
+            if (rowLength * height > Integer.MAX_VALUE) {
+                return null;
+            }
+            byte[] samples = decodeStream(image, (int) (rowLength * height));
+            return createImage(samples, width, height, bpc, components, inverted);
+        }
+
+        return null;
+    }
+
+    /**
+     * Creates an image from uncompressed samples.
+     */
+    private static BufferedImage createImage(byte[] samples, int width, int height, int bpc, int components,
+            boolean inverted) {
+        int type = bpc == 1 ? BufferedImage.TYPE_BYTE_BINARY : (components == 1 ? BufferedImage.TYPE_BYTE_GRAY
+                : BufferedImage.TYPE_3BYTE_BGR);
+        BufferedImage bi = new BufferedImage(width, height, type);
+        byte[] pixels = ((DataBufferByte) bi.getRaster().getDataBuffer()).getData();
+        if (samples.length < pixels.length) {
+            return null;
+        }
+        System.arraycopy(samples, 0, pixels, 0, pixels.length);
+
+        if (type == BufferedImage.TYPE_3BYTE_BGR) {
+            // PDF samples are in RGB order
+            for (int i = 0; i < pixels.length; i += 3) {
+                byte r = pixels[i];
+                pixels[i] = pixels[i + 2];
+                pixels[i + 2] = r;
+            }
+        } else if (inverted) {
+            for (int i = 0; i < pixels.length; i++) {
+                pixels[i] = (byte) ~pixels[i];
+            }
+        }
+
+        return bi;
+    }
+
+    /**
+     * Wraps CCITT Group 4 data in a single-strip TIFF container so that it can be decoded by the TIFF image reader.
+     */
+    static byte[] wrapCCITTFax(byte[] fax, int width, int height, boolean blackIsZero) {
+        final int entries = 9;
+        int dataOffset = 8 + 2 + entries * 12 + 4;
+        ByteBuffer tiff = ByteBuffer.allocate(dataOffset + fax.length).order(ByteOrder.LITTLE_ENDIAN);
+
+        tiff.put((byte) 'I').put((byte) 'I').putShort((short) 42).putInt(8);
+        tiff.putShort((short) entries);
+        putTiffField(tiff, 256, 4, width); // ImageWidth
+        putTiffField(tiff, 257, 4, height); // ImageLength
+        putTiffField(tiff, 258, 3, 1); // BitsPerSample
+        putTiffField(tiff, 259, 3, 4); // Compression: CCITT T.6
+        putTiffField(tiff, 262, 3, blackIsZero ? 1 : 0); // PhotometricInterpretation
+        putTiffField(tiff, 273, 4, dataOffset); // StripOffsets
+        putTiffField(tiff, 277, 3, 1); // SamplesPerPixel
+        putTiffField(tiff, 278, 4, height); // RowsPerStrip
+        putTiffField(tiff, 279, 4, fax.length); // StripByteCounts
+        tiff.putInt(0);
+        tiff.put(fax);
+
+        return tiff.array();
+    }
+
+    private static void putTiffField(ByteBuffer tiff, int tag, int type, int value) {
+        tiff.putShort((short) tag).putShort((short) type).putInt(1);
+        if (type == 3) {
+            tiff.putShort((short) value).putShort((short) 0);
+        } else {
+            tiff.putInt(value);
+        }
+    }
+
+    /**
+     * Gets the number of color components of a color space, or 0 if not supported.
+     */
+    private int getColorComponents(Object colorSpace) {
+        if ("DeviceGray".equals(colorSpace) || "CalGray".equals(colorSpace) || "G".equals(colorSpace)) {
+            return 1;
+        }
+        if ("DeviceRGB".equals(colorSpace) || "CalRGB".equals(colorSpace) || "RGB".equals(colorSpace)) {
+            return 3;
+        }
+        if (colorSpace instanceof List && !((List<?>) colorSpace).isEmpty()) {
+            List<?> array = (List<?>) colorSpace;
+            Object family = array.get(0);
+            if ("CalGray".equals(family)) {
+                return 1;
+            }
+            if ("CalRGB".equals(family)) {
+                return 3;
+            }
+            if ("ICCBased".equals(family) && array.size() > 1) {
+                Object profile = resolve(array.get(1));
+                if (profile instanceof Stream) {
+                    return intValue(resolve(((Stream) profile).dict.get("N")), 0);
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Collects the leaves of the page tree in document order, applying inherited page attributes.
+     */
+    private void collectPages(Map<String, Object> node, Map<String, Object> inherited, Set<Object> visited) {
+        if (node == null || !visited.add(node)) {
+            return;
+        }
+
+        Map<String, Object> attributes = new HashMap<String, Object>(inherited);
+        for (String key : new String[] { "Resources", "MediaBox", "CropBox", "Rotate" }) {
+            if (node.containsKey(key)) {
+                attributes.put(key, node.get(key));
+            }
+        }
+
+        Object kids = resolve(node.get("Kids"));
+        if (kids instanceof List) {
+            for (Object kid : (List<?>) kids) {
+                collectPages(dict(resolve(kid)), attributes, visited);
+            }
+        } else {
+            attributes.putAll(node);
+            pages.add(attributes);
+        }
+    }
+
+    /**
+     * Reads the cross-reference sections, starting with the most recent one.
+     */
+    private void readXref() throws IOException {
+        int tail = Math.max(0, data.limit() - 1024);
+        int startxref = lastIndexOf("startxref", tail);
+        if (startxref < 0) {
+            throw new IOException("startxref not found");
+        }
+
+        Lexer lexer = new Lexer(data);
+        lexer.pos = startxref + "startxref".length();
+        Set<Long> visited = new HashSet<Long>();
+        List<Long> sections = new ArrayList<Long>();
+        sections.add(((Number) lexer.next()).longValue());
+
+        while (!sections.isEmpty()) {
+            long offset = sections.remove(0);
+            if (offset < 0 || offset >= data.limit() || !visited.add(offset)) {
+                continue;
+            }
+
+            lexer.pos = (int) offset;
+            Object token = lexer.next();
+            Map<String, Object> sectionTrailer;
+            if (token instanceof Operator && ((Operator) token).name.equals("xref")) {
+                sectionTrailer = readXrefTable(lexer);
+            } else {
+                lexer.pos = (int) offset;
+                sectionTrailer = readXrefStream(lexer);
+            }
+
+            if (trailer == null) {
+                trailer = sectionTrailer;
+            }
+
+            // a hybrid file's cross-reference stream takes precedence over its previous sections
+            Object xrefStm = sectionTrailer.get("XRefStm");
+            if (xrefStm instanceof Number) {
+                sections.add(((Number) xrefStm).longValue());
+            }
+            Object prev = sectionTrailer.get("Prev");
+            if (prev instanceof Number) {
+                sections.add(((Number) prev).longValue());
+            }
+        }
+
+        if (trailer == null || !trailer.containsKey("Root")) {
+            throw new IOException("Trailer not found");
+        }
+    }
+
+    private Map<String, Object> readXrefTable(Lexer lexer) throws IOException {
+        while (true) {
+            Object token = lexer.next();
+            if (token instanceof Operator && ((Operator) token).name.equals("trailer")) {
+                Map<String, Object> dict = dict(lexer.next());
+                if (dict == null) {
+                    throw new IOException("Invalid trailer");
+                }
+                return dict;
+            }
+            if (!(token instanceof Number)) {
+                throw new IOException("Invalid xref table");
+            }
+
+            int first = ((Number) token).intValue();
+            int count = ((Number) lexer.next()).intValue();
+            for (int i = 0; i < count; i++) {
+                long offset = ((Number) lexer.next()).longValue();
+                lexer.next(); // generation
+                Object type = lexer.next();
+                Integer num = first + i;
+                if (!offsets.containsKey(num) && !compressed.containsKey(num)) {
+                    boolean inUse = type instanceof Operator && ((Operator) type).name.equals("n");
+                    offsets.put(num, inUse ? offset : -1L);
+                }
+            }
+        }
+    }
+
+    private Map<String, Object> readXrefStream(Lexer lexer) throws IOException {
+        lexer.next(); // object number
+        lexer.next(); // generation
+        lexer.next(); // obj
+        Object obj = lexer.next();
+        if (!(obj instanceof Stream)) {
+            throw new IOException("Invalid xref stream");
+        }
+
+        Stream stream = (Stream) obj;
+        byte[] entries = decodeStream(stream);
+        double[] w = numbers(stream.dict.get("W"));
+        double[] index = numbers(stream.dict.get("Index"));
+        if (index == null) {
+            index = new double[] { 0, intValue(stream.dict.get("Size"), 0) };
+        }
+        if (w == null || w.length != 3) {
+            throw new IOException("Invalid xref stream");
+        }
+
+        int entryLength = (int) (w[0] + w[1] + w[2]);
+        int pos = 0;
+        for (int i = 0; i + 1 < index.length; i += 2) {
+            int first = (int) index[i];
+            int count = (int) index[i + 1];
+            for (int j = 0; j < count && pos + entryLength <= entries.length; j++) {
+                long type = w[0] == 0 ? 1 : readField(entries, pos, (int) w[0]);
+                long field2 = readField(entries, pos + (int) w[0], (int) w[1]);
+                long field3 = readField(entries, pos + (int) (w[0] + w[1]), (int) w[2]);
+                pos += entryLength;
+
+                Integer num = first + j;
+                if (offsets.containsKey(num) || compressed.containsKey(num)) {
+                    continue;
+                }
+                if (type == 1) {
+                    offsets.put(num, field2);
+                } else if (type == 2) {
+                    compressed.put(num, new int[] { (int) field2, (int) field3 });
+                } else {
+                    offsets.put(num, -1L);
+                }
+            }
+        }
+
+        return stream.dict;
+    }
+
+    private static long readField(byte[] bytes, int pos, int length) {
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            value = (value << 8) | (bytes[pos + i] & 0xff);
+        }
+        return value;
+    }
+
+    /**
+     * Resolves an indirect reference; other objects are returned as is.
+     */
+    private Object resolve(Object obj) {
+        for (int depth = 0; obj instanceof Ref && depth < 32; depth++) {
+            obj = getObject(((Ref) obj).num);
+        }
+        return obj;
+    }
+
+    private Object getObject(int num) {
+        Integer key = num;
+        if (objects.containsKey(key)) {
+            return objects.get(key);
+        }
+        // guard against reference cycles while loading
+        objects.put(key, null);
+
+        Object obj = null;
+        try {
+            Long offset = offsets.get(key);
+            int[] location = compressed.get(key);
+            if (offset != null && offset >= 0 && offset < data.limit()) {
+                Lexer lexer = new Lexer(data);
+                lexer.pos = offset.intValue();
+                lexer.next(); // object number
+                lexer.next(); // generation
+                lexer.next(); // obj
+                obj = lexer.next();
+            } else if (location != null) {
+                obj = getCompressedObject(location[0], location[1]);
+            }
+        } catch (IOException ioe) {
+            logger.log(Level.FINE, ioe.getMessage(), ioe);
+        }
+
+        objects.put(key, obj);
+        return obj;
+    }
+
+    /**
+     * Gets an object stored in an object stream.
+     */
+    private Object getCompressedObject(int streamNum, int index) throws IOException {
+        Object obj = getObject(streamNum);
+        if (!(obj instanceof Stream)) {
+            return null;
+        }
+
+        Stream stream = (Stream) obj;
+        int count = intValue(resolve(stream.dict.get("N")), 0);
+        int first = intValue(resolve(stream.dict.get("First")), 0);
+        if (index >= count) {
+            return null;
+        }
+
+        Lexer lexer = new Lexer(ByteBuffer.wrap(decodeStream(stream)));
+        int offset = 0;
+        for (int i = 0; i <= index; i++) {
+            lexer.next(); // object number
+            offset = ((Number) lexer.next()).intValue();
+        }
+        lexer.pos = first + offset;
+        return lexer.next();
+    }
+
+    /**
+     * Gets the undecoded data of a stream.
+     */
+    private byte[] getRawData(Stream stream) throws IOException {
+        int length = intValue(resolve(stream.dict.get("Length")), -1);
+        if (length < 0 || stream.start + length > data.limit()) {
+            throw new IOException("Invalid stream length");
+        }
+
+        byte[] bytes = new byte[length];
+        ByteBuffer dup = data.duplicate();
+        dup.position(stream.start);
+        dup.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Gets the decoded data of a stream. Only <code>FlateDecode</code>, with or without PNG predictors, is supported.
+     */
+    private byte[] decodeStream(Stream stream) throws IOException {
+        return decodeStream(stream, MAX_DECODED_LENGTH);
+    }
+
+    /**
+     * Gets the decoded data of a stream, failing once more than <code>maxLength</code> bytes are decoded.
+     */
+    private byte[] decodeStream(Stream stream, int maxLength) throws IOException {
+        byte[] bytes = getRawData(stream);
+        List<Object> filters = getFilters(stream.dict);
+
+        if (filters.isEmpty()) {
+            return bytes;
+        }
+        if (filters.size() > 1 || !("FlateDecode".equals(filters.get(0)) || "Fl".equals(filters.get(0)))) {
+            throw new IOException("Unsupported filter " + filters);
+        }
+
+        bytes = inflate(bytes, maxLength);
+        Map<String, Object> parms = getDecodeParms(stream.dict);
+        int predictor = intValue(resolve(parms.get("Predictor")), 1);
+        if (predictor >= 10) {
+            bytes = decodePngPredictor(bytes, intValue(resolve(parms.get("Colors")), 1),
+                    intValue(resolve(parms.get("BitsPerComponent")), 8), intValue(resolve(parms.get("Columns")), 1));
+        } else if (predictor != 1) {
+            throw new IOException("Unsupported predictor " + predictor);
+        }
+        return bytes;
+    }
+
+    private List<Object> getFilters(Map<String, Object> dict) {
+        Object filter = resolve(dict.get("Filter"));
+        List<Object> filters = new ArrayList<Object>();
+        if (filter instanceof List) {
+            for (Object f : (List<?>) filter) {
+                filters.add(resolve(f));
+            }
+        } else if (filter != null) {
+            filters.add(filter);
+        }
+        return filters;
+    }
+
+    private Map<String, Object> getDecodeParms(Map<String, Object> dict) {
+        Object parms = resolve(dict.get("DecodeParms"));
+        if (parms instanceof List && !((List<?>) parms).isEmpty()) {
+            parms = resolve(((List<?>) parms).get(0));
+        }
+        Map<String, Object> map = dict(parms);
+        return map != null ? map : new HashMap<String, Object>();
+    }
+
+    private static byte[] inflate(byte[] bytes, int maxLength) throws IOException {
+        Inflater inflater = new Inflater();
+        inflater.setInput(bytes);
+        ByteArrayOutputStream out = new ByteArrayOutputStream((int) Math.min(maxLength, bytes.length * 4L));
+        byte[] buffer = new byte[8192];
+
+        try {
+            while (!inflater.finished()) {
+                int len = inflater.inflate(buffer);
+                if (len == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    // truncated stream; keep what was decoded
+                    break;
+                }
+                if (out.size() + len > maxLength) {
+                    throw new IOException("Decoded stream exceeds " + maxLength + " bytes");
+                }
+                out.write(buffer, 0, len);
+            }
+        } catch (DataFormatException dfe) {
+            throw new IOException(dfe.getMessage());
+        } finally {
+            inflater.end();
+        }
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Reverses PNG row predictors.
+     */
+    static byte[] decodePngPredictor(byte[] bytes, int colors, int bpc, int columns) {
+        int bpp = Math.max(1, colors * bpc / 8);
+        int rowLength = (columns * colors * bpc + 7) / 8;
+        int rows = bytes.length / (rowLength + 1);
+        byte[] out = new byte[rows * rowLength];
+
+        for (int row = 0; row < rows; row++) {
+            int in = row * (rowLength + 1);
+            int filter = bytes[in++];
+            int cur = row * rowLength;
+            int prev = cur - rowLength;
+
+            for (int i = 0; i < rowLength; i++) {
+                int raw = bytes[in + i] & 0xff;
+                int left = i >= bpp ? out[cur + i - bpp] & 0xff : 0;
+                int up = row > 0 ? out[prev + i] & 0xff : 0;
+                int upLeft = row > 0 && i >= bpp ? out[prev + i - bpp] & 0xff : 0;
+                int value;
+
+                switch (filter) {
+                    case 1:
+                        value = raw + left;
+                        break;
+                    case 2:
+                        value = raw + up;
+                        break;
+                    case 3:
+                        value = raw + ((left + up) >> 1);
+                        break;
+                    case 4:
+                        int p = left + up - upLeft;
+                        int pa = Math.abs(p - left);
+                        int pb = Math.abs(p - up);
+                        int pc = Math.abs(p - upLeft);
+                        value = raw + (pa <= pb && pa <= pc ? left : (pb <= pc ? up : upLeft));
+                        break;
+                    default:
+                        value = raw;
+                        break;
+                }
+                out[cur + i] = (byte) value;
+            }
+        }
+
+        return out;
+    }
+
+    private int lastIndexOf(String keyword, int from) {
+        byte[] key = keyword.getBytes();
+        for (int i = data.limit() - key.length; i >= from; i--) {
+            int j = 0;
+            while (j < key.length && data.get(i + j) == key[j]) {
+                j++;
+            }
+            if (j == key.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> dict(Object obj) {
+        if (obj instanceof Stream) {
+            return ((Stream) obj).dict;
+        }
+        return obj instanceof Map ? (Map<String, Object>) obj : null;
+    }
+
+    private static int intValue(Object obj, int defaultValue) {
+        return obj instanceof Number ? ((Number) obj).intValue() : defaultValue;
+    }
+
+    private static double[] numbers(Object obj) {
+        if (!(obj instanceof List)) {
+            return null;
+        }
+        List<?> list = (List<?>) obj;
+        double[] values = new double[list.size()];
+        for (int i = 0; i < values.length; i++) {
+            if (!(list.get(i) instanceof Number)) {
+                return null;
+            }
+            values[i] = ((Number) list.get(i)).doubleValue();
+        }
+        return values;
+    }
+
+    /**
+     * An indirect object reference.
+     */
+    static class Ref {
+
+        final int num;
+
+        Ref(int num) {
+            this.num = num;
+        }
+    }
+
+    /**
+     * A stream object: its dictionary and the offset of its data in the file.
+     */
+    static class Stream {
+
+        final Map<String, Object> dict;
+        final int                 start;
+
+        Stream(Map<String, Object> dict, int start) {
+            this.dict = dict;
+            this.start = start;
+        }
+    }
+
+    /**
+     * A keyword that is not a PDF object, such as a content stream operator.
+     */
+    static class Operator {
+
+        final String name;
+
+        Operator(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * Tokenizer for PDF objects. Names are returned as <code>String</code>, strings as <code>byte[]</code>, arrays as
+     * <code>List</code> and dictionaries as <code>Map</code>.
+     */
+    static class Lexer {
+
+        static final Object      EOF       = new Object();
+
+        /**
+         * Limit on the nesting of arrays and dictionaries, which are read recursively.
+         */
+        static final int         MAX_DEPTH = 64;
+
+        private final ByteBuffer buf;
+        int                      pos;
+        private int              depth;
+
+        Lexer(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        Object next() {
+            skipWhitespace();
+            if (pos >= buf.limit()) {
+                return EOF;
+            }
+
+            int c = buf.get(pos);
+            if (c == '/') {
+                pos++;
+                return readRegular();
+            } else if (c == '<' && peek(1) == '<') {
+                pos += 2;
+                enter();
+                try {
+                    return readDictionary();
+                } finally {
+                    depth--;
+                }
+            } else if (c == '<') {
+                pos++;
+                return readHexString();
+            } else if (c == '(') {
+                pos++;
+                return readLiteralString();
+            } else if (c == '[') {
+                pos++;
+                enter();
+                try {
+                    return readArray();
+                } finally {
+                    depth--;
+                }
+            } else if (c == ']' || c == '>' || c == ')' || c == '{' || c == '}') {
+                pos++;
+                return new Operator(String.valueOf((char) c));
+            } else if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.') {
+                return readNumber();
+            }
+
+            String keyword = readRegular();
+            if (keyword.equals("true")) {
+                return Boolean.TRUE;
+            } else if (keyword.equals("false")) {
+                return Boolean.FALSE;
+            } else if (keyword.equals("null")) {
+                return null;
+            } else if (keyword.length() == 0) {
+                // stray delimiter
+                pos++;
+                return new Operator("");
+            }
+            return new Operator(keyword);
+        }
+
+        private void enter() {
+            if (++depth > MAX_DEPTH) {
+                depth--;
+                throw new IllegalStateException("Objects nested too deeply at offset " + pos);
+            }
+        }
+
+        private List<Object> readArray() {
+            List<Object> array = new ArrayList<Object>();
+            while (true) {
+                skipWhitespace();
+                if (pos >= buf.limit()) {
+                    return array;
+                }
+                if (buf.get(pos) == ']') {
+                    pos++;
+                    return array;
+                }
+                array.add(next());
+            }
+        }
+
+        private Object readDictionary() {
+            Map<String, Object> dict = new HashMap<String, Object>();
+            while (true) {
+                skipWhitespace();
+                if (pos >= buf.limit()) {
+                    return dict;
+                }
+                if (buf.get(pos) == '>' && peek(1) == '>') {
+                    pos += 2;
+                    break;
+                }
+                Object key = next();
+                Object value = next();
+                if (key instanceof String) {
+                    dict.put((String) key, value);
+                }
+            }
+
+            // a dictionary followed by the stream keyword is a stream
+            int mark = pos;
+            skipWhitespace();
+            if (matches("stream")) {
+                pos += "stream".length();
+                if (peek(0) == '\r') {
+                    pos++;
+                }
+                if (peek(0) == '\n') {
+                    pos++;
+                }
+                return new Stream(dict, pos);
+            }
+            pos = mark;
+            return dict;
+        }
+
+        private Object readNumber() {
+            int start = pos;
+            boolean real = false;
+            while (pos < buf.limit()) {
+                int c = buf.get(pos);
+                if (c == '.') {
+                    real = true;
+                } else if (!((c >= '0' && c <= '9') || ((c == '-' || c == '+') && pos == start))) {
+                    break;
+                }
+                pos++;
+            }
+
+            String token = ascii(start, pos);
+            if (real) {
+                try {
+                    return Double.valueOf(token);
+                } catch (NumberFormatException nfe) {
+                    return 0;
+                }
+            }
+
+            long value;
+            try {
+                value = Long.parseLong(token.startsWith("+") ? token.substring(1) : token);
+            } catch (NumberFormatException nfe) {
+                return 0;
+            }
+
+            // an object reference is "num gen R"
+            int mark = pos;
+            skipWhitespace();
+            int genStart = pos;
+            while (pos < buf.limit() && buf.get(pos) >= '0' && buf.get(pos) <= '9') {
+                pos++;
+            }
+            if (pos > genStart) {
+                skipWhitespace();
+                if (peek(0) == 'R' && isDelimiterOrSpace(peek(1))) {
+                    pos++;
+                    return new Ref((int) value);
+                }
+            }
+            pos = mark;
+
+            if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+                return (int) value;
+            }
+            return value;
+        }
+
+        private byte[] readHexString() {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            int high = -1;
+            while (pos < buf.limit()) {
+                int c = buf.get(pos++);
+                if (c == '>') {
+                    break;
+                }
+                int digit = Character.digit(c, 16);
+                if (digit < 0) {
+                    continue;
+                }
+                if (high < 0) {
+                    high = digit;
+                } else {
+                    out.write(high << 4 | digit);
+                    high = -1;
+                }
+            }
+            if (high >= 0) {
+                out.write(high << 4);
+            }
+            return out.toByteArray();
+        }
+
+        private byte[] readLiteralString() {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            int depth = 1;
+            while (pos < buf.limit()) {
+                int c = buf.get(pos++) & 0xff;
+                if (c == '\\' && pos < buf.limit()) {
+                    int e = buf.get(pos++) & 0xff;
+                    switch (e) {
+                        case 'n':
+                            out.write('\n');
+                            break;
+                        case 'r':
+                            out.write('\r');
+                            break;
+                        case 't':
+                            out.write('\t');
+                            break;
+                        case 'b':
+                            out.write('\b');
+                            break;
+                        case 'f':
+                            out.write('\f');
+                            break;
+                        case '\r':
+                        case '\n':
+                            // line continuation
+                            break;
+                        default:
+                            if (e >= '0' && e <= '7') {
+                                int octal = e - '0';
+                                for (int i = 0; i < 2 && pos < buf.limit() && buf.get(pos) >= '0'
+                                        && buf.get(pos) <= '7'; i++) {
+                                    octal = octal * 8 + buf.get(pos++) - '0';
+                                }
+                                out.write(octal);
+                            } else {
+                                out.write(e);
+                            }
+                            break;
+                    }
+                } else if (c == '(') {
+                    depth++;
+                    out.write(c);
+                } else if (c == ')') {
+                    if (--depth == 0) {
+                        break;
+                    }
+                    out.write(c);
+                } else {
+                    out.write(c);
+                }
+            }
+            return out.toByteArray();
+        }
+
+        private String readRegular() {
+            int start = pos;
+            while (pos < buf.limit() && !isDelimiterOrSpace(buf.get(pos))) {
+                pos++;
+            }
+            return ascii(start, pos);
+        }
+
+        private void skipWhitespace() {
+            while (pos < buf.limit()) {
+                int c = buf.get(pos);
+                if (c == '%') {
+                    while (pos < buf.limit() && buf.get(pos) != '\n' && buf.get(pos) != '\r') {
+                        pos++;
+                    }
+                } else if (isSpace(c)) {
+                    pos++;
+                } else {
+                    break;
+                }
+            }
+        }
+
+        private boolean matches(String keyword) {
+            if (pos + keyword.length() > buf.limit()) {
+                return false;
+            }
+            for (int i = 0; i < keyword.length(); i++) {
+                if (buf.get(pos + i) != keyword.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int peek(int offset) {
+            return pos + offset < buf.limit() ? buf.get(pos + offset) : -1;
+        }
+
+        private String ascii(int start, int end) {
+            char[] chars = new char[end - start];
+            for (int i = start; i < end; i++) {
+                chars[i - start] = (char) (buf.get(i) & 0xff);
+            }
+            return new String(chars);
+        }
+
+        private static boolean isSpace(int c) {
+            return c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\f' || c == 0;
+        }
+
+        private static boolean isDelimiterOrSpace(int c) {
+            return c == -1 || isSpace(c) || c == '(' || c == ')' || c == '<' || c == '>' || c == '[' || c == ']'
+                    || c == '{' || c == '}' || c == '/' || c == '%';
+        }
+    }
+}
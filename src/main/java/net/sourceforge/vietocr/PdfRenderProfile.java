@@ -0,0 +1,203 @@
+/**
+ * Copyright @ 2014 Quan Nguyen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.vietocr;
+
+import java.util.List;
+
+/**
+ * Ghostscript settings for rendering PDF pages to images. The defaults reproduce the historical behavior: 8-bit gray
+ * output at 300 DPI with anti-aliasing.
+ */
+public class PdfRenderProfile {
+
+    /**
+     * Resolution value requesting automatic selection from the page size.
+     */
+    public static final int AUTO_RESOLUTION     = 0;
+
+    /**
+     * Default rendering resolution, in DPI.
+     */
+    public static final int DEFAULT_RESOLUTION  = 300;
+
+    /**
+     * Lowest resolution chosen by automatic selection, in DPI.
+     */
+    public static final int MIN_AUTO_RESOLUTION = 150;
+
+    /**
+     * Longest page side, in pixels, targeted by automatic selection: a Letter page at 300 DPI.
+     */
+    public static final int MAX_AUTO_PAGE_SIZE  = 3300;
+
+    private int             resolution          = DEFAULT_RESOLUTION;
+    private boolean         monochrome;
+    private boolean         antiAliasing        = true;
+    private int             renderingThreads;
+    private int             bufferSpace;
+
+    /**
+     * Gets the rendering resolution.
+     *
+     * @return the resolution in DPI, or {@link #AUTO_RESOLUTION}
+     */
+    public int getResolution() {
+        return resolution;
+    }
+
+    /**
+     * Sets the rendering resolution. With {@link #AUTO_RESOLUTION}, pages up to Letter size are rendered at
+     * {@value #DEFAULT_RESOLUTION} DPI, and larger pages at a resolution lowered to keep the longest side within
+     * {@value #MAX_AUTO_PAGE_SIZE} pixels, but not below {@value #MIN_AUTO_RESOLUTION} DPI.
+     *
+     * @param resolution the resolution in DPI, or {@link #AUTO_RESOLUTION}
+     */
+    public void setResolution(int resolution) {
+        if (resolution < 0) {
+            throw new IllegalArgumentException("Invalid resolution: " + resolution);
+        }
+        this.resolution = resolution;
+    }
+
+    /**
+     * Gets the rendering resolution for a page of the given size.
+     *
+     * @param pageWidth the page width in points
+     * @param pageHeight the page height in points
+     * @return the resolution in DPI
+     */
+    public int getResolution(double pageWidth, double pageHeight) {
+        if (resolution != AUTO_RESOLUTION) {
+            return resolution;
+        }
+
+        double longSide = Math.max(pageWidth, pageHeight) / 72;
+        if (longSide <= 0) {
+            return DEFAULT_RESOLUTION;
+        }
+
+        int dpi = (int) Math.min(DEFAULT_RESOLUTION, MAX_AUTO_PAGE_SIZE / longSide);
+        return Math.max(MIN_AUTO_RESOLUTION, dpi);
+    }
+
+    /**
+     * Checks whether pages are rendered as 1-bit black and white images.
+     *
+     * @return true for monochrome, false for 8-bit gray output
+     */
+    public boolean isMonochrome() {
+        return monochrome;
+    }
+
+    /**
+     * Selects the output device: <code>pngmono</code> renders 1-bit black and white images, which are smaller and
+     * faster to produce but leave thresholding to Ghostscript; <code>pnggray</code> renders 8-bit gray images.
+     *
+     * @param monochrome true for monochrome, false for gray output
+     */
+    public void setMonochrome(boolean monochrome) {
+        this.monochrome = monochrome;
+    }
+
+    /**
+     * Checks whether text and graphics are anti-aliased.
+     *
+     * @return true if anti-aliasing is on
+     */
+    public boolean isAntiAliasing() {
+        return antiAliasing;
+    }
+
+    /**
+     * Turns anti-aliasing of text and graphics on or off. Anti-aliasing slows rendering and softens glyph edges, which
+     * can hurt binarization. It has no effect on monochrome output.
+     *
+     * @param antiAliasing to enable or disable anti-aliasing
+     */
+    public void setAntiAliasing(boolean antiAliasing) {
+        this.antiAliasing = antiAliasing;
+    }
+
+    /**
+     * Gets the number of Ghostscript rendering threads.
+     *
+     * @return the thread count, or 0 for the Ghostscript default
+     */
+    public int getRenderingThreads() {
+        return renderingThreads;
+    }
+
+    /**
+     * Sets the number of threads Ghostscript uses to render bands of a page (<code>-dNumRenderingThreads</code>).
+     * Banded rendering only takes place when a page does not fit in the buffer space.
+     *
+     * @param renderingThreads the thread count, or 0 for the Ghostscript default
+     */
+    public void setRenderingThreads(int renderingThreads) {
+        this.renderingThreads = Math.max(0, renderingThreads);
+    }
+
+    /**
+     * Gets the Ghostscript band buffer size.
+     *
+     * @return the buffer size in bytes, or 0 for the Ghostscript default
+     */
+    public int getBufferSpace() {
+        return bufferSpace;
+    }
+
+    /**
+     * Sets the size of the Ghostscript band buffer (<code>-dBufferSpace</code>). Smaller buffers split pages into
+     * more bands, which can then be rendered by multiple threads.
+     *
+     * @param bufferSpace the buffer size in bytes, or 0 for the Ghostscript default
+     */
+    public void setBufferSpace(int bufferSpace) {
+        this.bufferSpace = Math.max(0, bufferSpace);
+    }
+
+    /**
+     * Adds the Ghostscript device and rendering parameters of this profile.
+     *
+     * @param gsArgs the Ghostscript arguments to add to
+     * @param dpi the rendering resolution
+     */
+    void addGhostscriptArgs(List<String> gsArgs, int dpi) {
+        gsArgs.add(monochrome ? "-sDEVICE=pngmono" : "-sDEVICE=pnggray");
+        gsArgs.add("-r" + dpi);
+
+        if (!monochrome) {
+            int alphaBits = antiAliasing ? 4 : 1;
+            gsArgs.add("-dGraphicsAlphaBits=" + alphaBits);
+            gsArgs.add("-dTextAlphaBits=" + alphaBits);
+        }
+
+        if (renderingThreads > 0) {
+            gsArgs.add("-dNumRenderingThreads=" + renderingThreads);
+        }
+
+        if (bufferSpace > 0) {
+            gsArgs.add("-dBufferSpace=" + bufferSpace);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s, %s DPI, anti-aliasing %s, threads %d, buffer %d", monochrome ? "pngmono" : "pnggray",
+                resolution == AUTO_RESOLUTION ? "auto" : String.valueOf(resolution), antiAliasing ? "on" : "off",
+                renderingThreads, bufferSpace);
+    }
+}
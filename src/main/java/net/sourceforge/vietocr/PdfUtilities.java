@@ -15,10 +15,14 @@
  */
 package net.sourceforge.vietocr;
 
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
@@ -26,6 +30,9 @@ import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+
 import org.ghost4j.Ghostscript;
 import org.ghost4j.GhostscriptException;
 
@@ -33,6 +40,11 @@ public class PdfUtilities {
 
     public static final String  GS_INSTALL = "\nPlease download, install GPL Ghostscript from http://sourceforge.net/projects/ghostscript/files\nand/or set the appropriate environment variable.";
 
+    /**
+     * Default smallest number of letters and digits of a page text taken as a text layer, a few lines of text.
+     */
+    public static final int     DEFAULT_MIN_TEXT_LAYER_CHARACTERS = 100;
+
     private final static Logger logger     = Logger.getLogger(PdfUtilities.class.getName());
 
     /**
@@ -43,10 +55,38 @@ public class PdfUtilities {
      * @throws IOException while processing files.
      */
     public static File convertPdf2Tiff(File inputPdfFile) throws IOException {
+        return convertPdf2Tiff(inputPdfFile, 0, 0);
+    }
+
+    /**
+     * Convert PDF to TIFF format.
+     * 
+     * @param inputPdfFile
+     * @param firstPage the first page to convert, starting at 1; 0 means from the first page of the document
+     * @param lastPage the last page to convert; 0 means up to the last page of the document
+     * @return a multi-page TIFF image
+     * @throws IOException while processing files.
+     */
+    public static File convertPdf2Tiff(File inputPdfFile, int firstPage, int lastPage) throws IOException {
+        return convertPdf2Tiff(inputPdfFile, firstPage, lastPage, new PdfRenderProfile());
+    }
+
+    /**
+     * Convert PDF to TIFF format.
+     * 
+     * @param inputPdfFile
+     * @param firstPage the first page to convert, starting at 1; 0 means from the first page of the document
+     * @param lastPage the last page to convert; 0 means up to the last page of the document
+     * @param profile the rendering settings
+     * @return a multi-page TIFF image
+     * @throws IOException while processing files.
+     */
+    public static File convertPdf2Tiff(File inputPdfFile, int firstPage, int lastPage, PdfRenderProfile profile)
+            throws IOException {
         File[] pngFiles = null;
 
         try {
-            pngFiles = convertPdf2Png(inputPdfFile);
+            pngFiles = convertPdf2Png(inputPdfFile, firstPage, lastPage, profile);
             File tiffFile = File.createTempFile("multipage", ".tif");
 
             // put PNG images into a single multi-page TIFF image for return
@@ -66,6 +106,205 @@ public class PdfUtilities {
         }
     }
 
+    /**
+     * Gets a range of PDF pages as images. Pages that consist of a single embedded image covering the page, as is
+     * typical of scanned documents, are decoded directly at the native resolution of the image, which is recorded in
+     * the image meta data. All other pages are rendered.
+     * 
+     * @param inputPdfFile
+     * @param firstPage the first page, starting at 1; 0 means from the first page of the document
+     * @param lastPage the last page; 0 means up to the last page of the document
+     * @return a list of <code>IIOImage</code> objects
+     * @throws IOException while processing files.
+     */
+    public static List<IIOImage> getPdfImageList(File inputPdfFile, int firstPage, int lastPage) throws IOException {
+        return getPdfImageList(inputPdfFile, firstPage, lastPage, new PdfRenderProfile());
+    }
+
+    /**
+     * Gets a range of PDF pages as images. Pages that consist of a single embedded image covering the page, as is
+     * typical of scanned documents, are decoded directly at the native resolution of the image. All other pages are
+     * rendered with the given settings. The resolution of each image is recorded in the image meta data.
+     * 
+     * @param inputPdfFile
+     * @param firstPage the first page, starting at 1; 0 means from the first page of the document
+     * @param lastPage the last page; 0 means up to the last page of the document
+     * @param profile the rendering settings
+     * @return a list of <code>IIOImage</code> objects
+     * @throws IOException while processing files.
+     */
+    public static List<IIOImage> getPdfImageList(File inputPdfFile, int firstPage, int lastPage,
+            PdfRenderProfile profile) throws IOException {
+        PdfImageExtractor extractor;
+
+        try {
+            extractor = new PdfImageExtractor(inputPdfFile);
+        } catch (IOException ioe) {
+            // structure not understood; render all pages
+            logger.log(Level.FINE, ioe.getMessage(), ioe);
+            int dpi = profile.getResolution(0, 0);
+            return renderPdf(inputPdfFile, firstPage, lastPage, profile, dpi);
+        }
+
+        int pageCount = extractor.getPageCount();
+        int first = firstPage > 0 ? firstPage : 1;
+        int last = lastPage > 0 ? Math.min(lastPage, pageCount) : pageCount;
+
+        final List<IIOImage> imageList = new ArrayList<IIOImage>();
+        int extracted = getPdfImages(inputPdfFile, extractor, first, last, profile, Integer.MAX_VALUE,
+                new PageImageHandler() {
+
+                    @Override
+                    public void pageImage(IIOImage oimage) {
+                        imageList.add(oimage);
+                    }
+                });
+
+        logger.info(String.format("%s: %d of %d pages decoded from embedded images, rendering skipped",
+                inputPdfFile.getName(), extracted, Math.max(0, last - first + 1)));
+
+        return imageList;
+    }
+
+    /**
+     * A receiver of the page images of a PDF document, in page order.
+     */
+    interface PageImageHandler {
+
+        /**
+         * Receives the image of the next page.
+         */
+        void pageImage(IIOImage oimage) throws IOException;
+    }
+
+    /**
+     * Gets a range of PDF pages as images, passing each to the handler in page order. Pages that consist of a single
+     * embedded image covering the page are decoded directly; runs of consecutive other pages are rendered with one
+     * Ghostscript call each, of at most <code>maxRenderPages</code> pages, so that the memory held is bounded by that
+     * number of pages.
+     * 
+     * @param inputPdfFile
+     * @param extractor the extractor opened on the document
+     * @param first the first page, starting at 1
+     * @param last the last page
+     * @param profile the rendering settings
+     * @param maxRenderPages the largest number of pages rendered at once
+     * @param handler the handler receiving the images
+     * @return the number of pages decoded from embedded images
+     * @throws IOException while processing files.
+     */
+    static int getPdfImages(File inputPdfFile, PdfImageExtractor extractor, int first, int last,
+            PdfRenderProfile profile, int maxRenderPages, PageImageHandler handler) throws IOException {
+        int renderFrom = 0;
+        int renderDpi = 0;
+        int extracted = 0;
+
+        for (int page = first; page <= last; page++) {
+            IIOImage oimage = extractor.getPageImage(page - 1);
+            int dpi = oimage == null ? getResolution(extractor, page, page, profile) : 0;
+
+            // render the preceding run of pages that could not be extracted, needs a different resolution or is full
+            if (renderFrom > 0 && (dpi != renderDpi || page - renderFrom >= maxRenderPages)) {
+                for (IIOImage rendered : renderPdf(inputPdfFile, renderFrom, page - 1, profile, renderDpi)) {
+                    handler.pageImage(rendered);
+                }
+                renderFrom = 0;
+            }
+
+            if (oimage == null) {
+                if (renderFrom == 0) {
+                    renderFrom = page;
+                    renderDpi = dpi;
+                }
+                continue;
+            }
+
+            handler.pageImage(oimage);
+            extracted++;
+        }
+
+        if (renderFrom > 0) {
+            for (IIOImage rendered : renderPdf(inputPdfFile, renderFrom, last, profile, renderDpi)) {
+                handler.pageImage(rendered);
+            }
+        }
+
+        return extracted;
+    }
+
+    /**
+     * Renders a range of PDF pages at the resolution of the profile, with one Ghostscript call for each run of at
+     * most <code>maxRenderPages</code> pages, passing each image to the handler in page order. For documents whose
+     * structure is not understood by the extractor.
+     * 
+     * @param inputPdfFile
+     * @param first the first page, starting at 1
+     * @param last the last page
+     * @param profile the rendering settings
+     * @param maxRenderPages the largest number of pages rendered at once
+     * @param handler the handler receiving the images
+     * @throws IOException while processing files.
+     */
+    static void renderPdfImages(File inputPdfFile, int first, int last, PdfRenderProfile profile,
+            int maxRenderPages, PageImageHandler handler) throws IOException {
+        int dpi = profile.getResolution(0, 0);
+
+        for (int page = first; page <= last; page += maxRenderPages) {
+            int lastPage = (int) Math.min(last, (long) page + maxRenderPages - 1);
+            for (IIOImage rendered : renderPdf(inputPdfFile, page, lastPage, profile, dpi)) {
+                handler.pageImage(rendered);
+            }
+        }
+    }
+
+    /**
+     * Renders a range of PDF pages at a given resolution, which is recorded in the image meta data.
+     */
+    private static List<IIOImage> renderPdf(File inputPdfFile, int firstPage, int lastPage, PdfRenderProfile profile,
+            int dpi) throws IOException {
+        File[] pngFiles = null;
+
+        try {
+            pngFiles = convertPdf2Png(inputPdfFile, firstPage, lastPage, profile, dpi);
+            List<IIOImage> imageList = new ArrayList<IIOImage>();
+
+            for (File pngFile : pngFiles) {
+                BufferedImage bi = ImageIO.read(pngFile);
+                if (bi != null) {
+                    imageList.add(new IIOImage(bi, null, ImageIOHelper.createResolutionMetadata(dpi, dpi)));
+                }
+            }
+
+            return imageList;
+        } catch (UnsatisfiedLinkError ule) {
+            throw new RuntimeException(getMessage(ule.getMessage()));
+        } catch (NoClassDefFoundError ncdfe) {
+            throw new RuntimeException(getMessage(ncdfe.getMessage()));
+        } finally {
+            if (pngFiles != null) {
+                // delete temporary PNG images
+                for (File tempFile : pngFiles) {
+                    tempFile.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the rendering resolution for a range of pages, resolving automatic selection by the largest page.
+     */
+    private static int getResolution(PdfImageExtractor extractor, int firstPage, int lastPage,
+            PdfRenderProfile profile) {
+        int dpi = Integer.MAX_VALUE;
+
+        for (int page = firstPage; page <= lastPage; page++) {
+            double[] size = extractor.getPageSize(page - 1);
+            dpi = Math.min(dpi, size == null ? profile.getResolution(0, 0) : profile.getResolution(size[0], size[1]));
+        }
+
+        return dpi == Integer.MAX_VALUE ? profile.getResolution(0, 0) : dpi;
+    }
+
     /**
      * Convert PDF to PNG format.
      * 
@@ -73,13 +312,57 @@ public class PdfUtilities {
      * @return an array of PNG images
      */
     public static File[] convertPdf2Png(File inputPdfFile) {
-        File imageDir = inputPdfFile.getParentFile();
+        return convertPdf2Png(inputPdfFile, 0, 0);
+    }
 
-        if (imageDir == null) {
-            String userDir = System.getProperty("user.dir");
-            imageDir = new File(userDir);
+    /**
+     * Convert a range of PDF pages to PNG format.
+     * 
+     * @param inputPdfFile
+     * @param firstPage the first page to convert, starting at 1; 0 means from the first page of the document
+     * @param lastPage the last page to convert; 0 means up to the last page of the document
+     * @return an array of PNG images
+     */
+    public static File[] convertPdf2Png(File inputPdfFile, int firstPage, int lastPage) {
+        return convertPdf2Png(inputPdfFile, firstPage, lastPage, new PdfRenderProfile());
+    }
+
+    /**
+     * Convert a range of PDF pages to PNG format.
+     * 
+     * @param inputPdfFile
+     * @param firstPage the first page to convert, starting at 1; 0 means from the first page of the document
+     * @param lastPage the last page to convert; 0 means up to the last page of the document
+     * @param profile the rendering settings; with automatic resolution, all pages are rendered at the resolution
+     * selected for the largest page of the range
+     * @return an array of PNG images
+     */
+    public static File[] convertPdf2Png(File inputPdfFile, int firstPage, int lastPage, PdfRenderProfile profile) {
+        int dpi = profile.getResolution(0, 0);
+
+        if (profile.getResolution() == PdfRenderProfile.AUTO_RESOLUTION) {
+            try {
+                PdfImageExtractor extractor = new PdfImageExtractor(inputPdfFile);
+                int pageCount = extractor.getPageCount();
+                int first = firstPage > 0 ? firstPage : 1;
+                int last = lastPage > 0 ? Math.min(lastPage, pageCount) : pageCount;
+                dpi = getResolution(extractor, first, last, profile);
+            } catch (Exception e) {
+                // page size unknown; use the default resolution
+                logger.log(Level.FINE, e.getMessage(), e);
+            }
         }
 
+        return convertPdf2Png(inputPdfFile, firstPage, lastPage, profile, dpi);
+    }
+
+    /**
+     * Convert a range of PDF pages to PNG format at a given resolution.
+     */
+    private static File[] convertPdf2Png(File inputPdfFile, int firstPage, int lastPage, PdfRenderProfile profile,
+            int dpi) {
+        File imageDir = getWorkingDir(inputPdfFile);
+
         // get Ghostscript instance
         Ghostscript gs = Ghostscript.getInstance();
 
@@ -90,10 +373,16 @@ public class PdfUtilities {
         gsArgs.add("-dNOPAUSE");
         gsArgs.add("-dBATCH");
         gsArgs.add("-dSAFER");
-        gsArgs.add("-sDEVICE=pnggray");
-        gsArgs.add("-r300");
-        gsArgs.add("-dGraphicsAlphaBits=4");
-        gsArgs.add("-dTextAlphaBits=4");
+        profile.addGhostscriptArgs(gsArgs, dpi);
+
+        if (firstPage > 0) {
+            gsArgs.add("-dFirstPage=" + firstPage);
+        }
+
+        if (lastPage > 0) {
+            gsArgs.add("-dLastPage=" + lastPage);
+        }
+
         gsArgs.add("-sOutputFile=" + imageDir.getPath() + "/workingimage%03d.png");
         gsArgs.add(inputPdfFile.getPath());
 
@@ -106,14 +395,133 @@ public class PdfUtilities {
         }
 
         // find working files
-        File[] workingFiles = imageDir.listFiles(new FilenameFilter() {
+        return getWorkingFiles(imageDir, "workingimage\\d{3}\\.png$");
+    }
+
+    /**
+     * Extracts the text layer of a PDF document, one entry per page. Pages without extractable text content, such as
+     * scanned images, yield an empty string.
+     * 
+     * @param inputPdfFile
+     * @return an array of page texts; empty if the text could not be extracted
+     */
+    public static String[] getPdfText(File inputPdfFile) {
+        File textDir = getWorkingDir(inputPdfFile);
+
+        // get Ghostscript instance
+        Ghostscript gs = Ghostscript.getInstance();
+
+        // prepare Ghostscript interpreter parameters
+        // refer to Ghostscript documentation for parameter usage
+        // gs -dNOPAUSE -dQUIET -dBATCH -sDEVICE=txtwrite -sOutputFile=page%03d.txt in.pdf
+        List<String> gsArgs = new ArrayList<String>();
+        gsArgs.add("-gs");
+        gsArgs.add("-dNOPAUSE");
+        gsArgs.add("-dQUIET");
+        gsArgs.add("-dBATCH");
+        gsArgs.add("-dSAFER");
+        gsArgs.add("-sDEVICE=txtwrite");
+        gsArgs.add("-sOutputFile=" + textDir.getPath() + "/workingtext%03d.txt");
+        gsArgs.add(inputPdfFile.getPath());
+
+        // execute and exit interpreter
+        try {
+            gs.initialize(gsArgs.toArray(new String[0]));
+            gs.exit();
+        } catch (GhostscriptException e) {
+            logger.log(Level.SEVERE, e.getMessage(), e);
+        } catch (UnsatisfiedLinkError ule) {
+            throw new RuntimeException(getMessage(ule.getMessage()));
+        } catch (NoClassDefFoundError ncdfe) {
+            throw new RuntimeException(getMessage(ncdfe.getMessage()));
+        }
+
+        // txtwrite device produces one file per page
+        File[] textFiles = getWorkingFiles(textDir, "workingtext\\d{3}\\.txt$");
+        String[] pageTexts = new String[textFiles.length];
+
+        try {
+            for (int i = 0; i < textFiles.length; i++) {
+                pageTexts[i] = readTextFile(textFiles[i]);
+            }
+        } catch (IOException ioe) {
+            logger.log(Level.SEVERE, ioe.getMessage(), ioe);
+            pageTexts = new String[0];
+        } finally {
+            // delete temporary text files
+            for (File tempFile : textFiles) {
+                tempFile.delete();
+            }
+        }
+
+        return pageTexts;
+    }
+
+    /**
+     * Checks whether the text extracted from a PDF page is usable in lieu of recognizing the page, with at least
+     * {@value #DEFAULT_MIN_TEXT_LAYER_CHARACTERS} letters and digits.
+     * 
+     * @param pageText text of a page as returned by {@link #getPdfText(File)}
+     * @return true if the page has extractable text content
+     */
+    public static boolean hasTextLayer(String pageText) {
+        return hasTextLayer(pageText, DEFAULT_MIN_TEXT_LAYER_CHARACTERS);
+    }
+
+    /**
+     * Checks whether the text extracted from a PDF page is usable in lieu of recognizing the page. A scanned page may
+     * carry a few text objects added to the scan, such as a page number, a Bates number or a header; only a page
+     * with at least the given number of letters and digits is taken as having a text layer, so that the content of
+     * the scan is still recognized.
+     * 
+     * @param pageText text of a page as returned by {@link #getPdfText(File)}
+     * @param minCharacters the smallest number of letters and digits of a text layer, at least 1
+     * @return true if the page has enough extractable text content
+     */
+    public static boolean hasTextLayer(String pageText, int minCharacters) {
+        if (pageText == null) {
+            return false;
+        }
+        int count = 0;
+        int min = Math.max(1, minCharacters);
+        for (int i = 0; i < pageText.length() && count < min; i++) {
+            if (Character.isLetterOrDigit(pageText.charAt(i))) {
+                count++;
+            }
+        }
+        return count >= min;
+    }
+
+    /**
+     * Gets the directory for Ghostscript working files.
+     */
+    private static File getWorkingDir(File inputPdfFile) {
+        File workingDir = inputPdfFile.getParentFile();
+
+        if (workingDir == null) {
+            String userDir = System.getProperty("user.dir");
+            workingDir = new File(userDir);
+        }
+
+        return workingDir;
+    }
+
+    /**
+     * Finds Ghostscript working files, sorted by name.
+     */
+    private static File[] getWorkingFiles(File workingDir, final String regex) {
+        File[] workingFiles = workingDir.listFiles(new FilenameFilter() {
 
             @Override
             public boolean accept(File dir, String name) {
-                return name.toLowerCase().matches("workingimage\\d{3}\\.png$");
+                return name.toLowerCase().matches(regex);
             }
         });
 
+        if (workingFiles == null) {
+            return new File[0];
+        }
+
         Arrays.sort(workingFiles, new Comparator<File>() {
             @Override
             public int compare(File f1, File f2) {
@@ -124,6 +532,26 @@ public class PdfUtilities {
         return workingFiles;
     }
 
+    /**
+     * Reads a UTF-8 text file.
+     */
+    private static String readTextFile(File textFile) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(textFile), "UTF-8"));
+
+        try {
+            char[] cbuf = new char[4096];
+            int len;
+            while ((len = in.read(cbuf)) != -1) {
+                sb.append(cbuf, 0, len);
+            }
+        } finally {
+            in.close();
+        }
+
+        return sb.toString();
+    }
+
     /**
      * Split PDF.
      * 
@@ -0,0 +1,293 @@
+/**
+ * <a url=http://www.jdeskew.com/>JDeskew</a>
+ */
+package com.recognition.software.jdeskew;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Test;
+
+public class ImageDeskewTest {
+
+    private final String testResourcesDataPath = "src/test/resources/test-data";
+
+    public ImageDeskewTest() {
+    }
+
+    /**
+     * Test of getSkewAngle method, of class ImageDeskew. Compares the angles for various image types with those of a
+     * reference implementation testing each pixel with <code>ImageUtil.isBlack</code>.
+     * 
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testGetSkewAngle() throws Exception {
+        System.out.println("getSkewAngle");
+        String filename = String.format("%s/%s", this.testResourcesDataPath, "eurotext_deskew.png");
+        BufferedImage source = ImageIO.read(new File(filename));
+
+        int[] imageTypes = { BufferedImage.TYPE_BYTE_BINARY, BufferedImage.TYPE_BYTE_GRAY,
+                BufferedImage.TYPE_BYTE_INDEXED, BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB,
+                BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_USHORT_GRAY };
+
+        for (int imageType : imageTypes) {
+            BufferedImage bi = convert(source, imageType);
+            compare("type " + imageType, bi);
+        }
+
+        // sub-image sharing the raster of its parent
+        BufferedImage bi = convert(source, BufferedImage.TYPE_BYTE_GRAY);
+        compare("gray sub-image", bi.getSubimage(7, 5, bi.getWidth() - 20, bi.getHeight() - 10));
+    }
+
+    /**
+     * Benchmark of getSkewAngle method on a 300 DPI Letter page, of class ImageDeskew. Reports the time to classify
+     * the pixels of the scanned band and the total time, single-threaded against the reference implementation, and
+     * with one thread per available processor.
+     * 
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testGetSkewAngle_Benchmark() throws Exception {
+        System.out.println("getSkewAngle benchmark");
+        String filename = String.format("%s/%s", this.testResourcesDataPath, "eurotext_deskew.png");
+        BufferedImage source = ImageIO.read(new File(filename));
+
+        int[] imageTypes = { BufferedImage.TYPE_BYTE_BINARY, BufferedImage.TYPE_BYTE_GRAY, BufferedImage.TYPE_INT_RGB };
+
+        for (int imageType : imageTypes) {
+            BufferedImage bi = new BufferedImage(2550, 3300, imageType);
+            Graphics2D g = bi.createGraphics();
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, bi.getWidth(), bi.getHeight());
+            for (int y = 100; y + 800 < bi.getHeight(); y += 800) {
+                g.drawImage(source, 100, y, 2400, 800, null);
+            }
+            g.dispose();
+
+            int runs = 5;
+            long[] times = new long[5];
+            double expResult = 0;
+            double result = 0;
+
+            // the first round warms up the JIT compiler and is not counted
+            for (int i = 0; i <= runs; i++) {
+                long start = System.nanoTime();
+                int expCount = countReferenceBlackPixels(bi);
+                long t1 = System.nanoTime();
+                int count = countBlackPixels(bi);
+                long t2 = System.nanoTime();
+                expResult = getReferenceSkewAngle(bi);
+                long t3 = System.nanoTime();
+                ImageDeskew instance = new ImageDeskew(bi);
+                instance.setThreads(1);
+                result = instance.getSkewAngle();
+                long t4 = System.nanoTime();
+                instance = new ImageDeskew(bi);
+                instance.setThreads(Runtime.getRuntime().availableProcessors());
+                double parallelResult = instance.getSkewAngle();
+                long t5 = System.nanoTime();
+                assertEquals(expCount, count);
+                assertEquals(result, parallelResult, 0);
+
+                if (i > 0) {
+                    times[0] += t1 - start;
+                    times[1] += t2 - t1;
+                    times[2] += t3 - t2;
+                    times[3] += t4 - t3;
+                    times[4] += t5 - t4;
+                }
+            }
+
+            System.out.println(String.format("type %2d: classify %4d ms vs. %3d ms (%.1fx), "
+                    + "getSkewAngle %4d ms vs. %3d ms (%.1fx), %d threads %3d ms", imageType, times[0] / runs / 1000000,
+                    times[1] / runs / 1000000, (double) times[0] / times[1], times[2] / runs / 1000000, times[3] / runs
+                    / 1000000, (double) times[2] / times[3], Runtime.getRuntime().availableProcessors(), times[4]
+                    / runs / 1000000));
+            assertEquals(expResult, result, 0);
+        }
+    }
+
+    /**
+     * Test of getSkewAngle method in the multi-resolution mode, of class ImageDeskew. The angles must be within 0.1
+     * degree of those of the exhaustive search.
+     * 
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testGetSkewAngle_MultiResolution() throws Exception {
+        System.out.println("getSkewAngle in multi-resolution mode");
+        String filename = String.format("%s/%s", this.testResourcesDataPath, "eurotext.png");
+        BufferedImage source = ImageIO.read(new File(filename));
+
+        for (double angle : new double[] { -12.3, -3.7, 0, 1.9, 6.4, 17.1 }) {
+            // a 300 DPI Letter page with the text rotated
+            BufferedImage bi = new BufferedImage(2550, 3300, BufferedImage.TYPE_BYTE_GRAY);
+            Graphics2D g = bi.createGraphics();
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, bi.getWidth(), bi.getHeight());
+            g.rotate(Math.toRadians(angle), bi.getWidth() / 2, bi.getHeight() / 2);
+            for (int y = 200; y + 1600 < bi.getHeight(); y += 1000) {
+                g.drawImage(source, 250, y, 2048, 1600, null);
+            }
+            g.dispose();
+
+            long start = System.nanoTime();
+            double expResult = new ImageDeskew(bi).getSkewAngle();
+            long t1 = System.nanoTime();
+            ImageDeskew instance = new ImageDeskew(bi);
+            instance.setMultiResolution(true);
+            double result = instance.getSkewAngle();
+            long t2 = System.nanoTime();
+
+            System.out.println(String.format("rotated %5.1f: exhaustive %7.3f in %4d ms, "
+                    + "multi-resolution %7.3f in %4d ms", angle, expResult, (t1 - start) / 1000000, result,
+                    (t2 - t1) / 1000000));
+            assertEquals(expResult, result, 0.1);
+        }
+
+        // custom range and precision
+        filename = String.format("%s/%s", this.testResourcesDataPath, "eurotext_deskew.png");
+        BufferedImage bi = ImageIO.read(new File(filename));
+        ImageDeskew instance = new ImageDeskew(bi);
+        instance.setAngleRange(-30, 30);
+        instance.setPrecision(0.1);
+        double expResult = instance.getSkewAngle();
+        instance.setMultiResolution(true);
+        double result = instance.getSkewAngle();
+        System.out.println(String.format("eurotext_deskew: exhaustive %7.3f, multi-resolution %7.3f", expResult,
+                result));
+        assertEquals(expResult, result, 0.1);
+    }
+
+    private static void compare(String label, BufferedImage bi) {
+        double expResult = getReferenceSkewAngle(bi);
+        ImageDeskew instance = new ImageDeskew(bi);
+        instance.setThreads(1);
+        double result = instance.getSkewAngle();
+        System.out.println(String.format("%s: %.4f", label, result));
+        assertEquals(expResult, result, 0);
+
+        // partitioned among threads
+        instance = new ImageDeskew(bi);
+        instance.setThreads(3);
+        assertEquals(expResult, instance.getSkewAngle(), 0);
+
+        // on an executor of the caller, which is left running
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            instance = new ImageDeskew(bi);
+            instance.setThreads(3);
+            instance.setExecutor(executor);
+            assertEquals(expResult, instance.getSkewAngle(), 0);
+            assertFalse(executor.isShutdown());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Counts the black pixels of the band scanned for lines, testing each pixel with <code>ImageUtil.isBlack</code>.
+     */
+    private static int countReferenceBlackPixels(BufferedImage image) {
+        int count = 0;
+        for (int y = image.getHeight() / 4; y < image.getHeight() * 3 / 4; y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                if (ImageUtil.isBlack(image, x, y)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Counts the black pixels of the band scanned for lines, reading them as a bitmap.
+     */
+    private static int countBlackPixels(BufferedImage image) {
+        byte[] bitmap = ImageUtil.getBlackBitmap(image, image.getHeight() / 4, image.getHeight() * 3 / 4);
+        int count = 0;
+        for (byte bits : bitmap) {
+            count += Integer.bitCount(bits & 0xff);
+        }
+        return count;
+    }
+
+    private static BufferedImage convert(BufferedImage source, int imageType) {
+        BufferedImage bi = new BufferedImage(source.getWidth(), source.getHeight(), imageType);
+        Graphics2D g = bi.createGraphics();
+        g.drawImage(source, 0, 0, null);
+        g.dispose();
+        return bi;
+    }
+
+    /**
+     * The skew angle as computed by the original per-pixel implementation.
+     */
+    private static double getReferenceSkewAngle(BufferedImage image) {
+        int steps = 200;
+        double[] sinA = new double[steps - 1];
+        double[] cosA = new double[steps - 1];
+        for (int i = 0; i < steps - 1; i++) {
+            double angle = (-20 + i * 0.2) * Math.PI / 180.0;
+            sinA[i] = Math.sin(angle);
+            cosA[i] = Math.cos(angle);
+        }
+
+        double dMin = -image.getWidth();
+        int dCount = (int) (2.0 * (image.getWidth() + image.getHeight()));
+        int[] hMatrix = new int[dCount * steps];
+
+        int hMin = (int) (image.getHeight() / 4.0);
+        int hMax = (int) (image.getHeight() * 3.0 / 4.0);
+        for (int y = hMin; y < hMax; y++) {
+            for (int x = 1; x < image.getWidth() - 2; x++) {
+                if (ImageUtil.isBlack(image, x, y) && !ImageUtil.isBlack(image, x, y + 1)) {
+                    for (int alpha = 0; alpha < steps - 1; alpha++) {
+                        double d = y * cosA[alpha] - x * sinA[alpha];
+                        int index = (int) (d - dMin) * steps + alpha;
+                        if (index >= 0 && index < hMatrix.length) {
+                            hMatrix[index]++;
+                        }
+                    }
+                }
+            }
+        }
+
+        // top 20 lines, as in ImageDeskew.getTop
+        int count = 20;
+        int[] topCount = new int[count];
+        int[] topIndex = new int[count];
+        for (int i = 0; i < hMatrix.length - 1; i++) {
+            if (hMatrix[i] > topCount[count - 1]) {
+                topCount[count - 1] = hMatrix[i];
+                topIndex[count - 1] = i;
+                for (int j = count - 1; j > 0 && topCount[j] > topCount[j - 1]; j--) {
+                    int tmp = topCount[j];
+                    topCount[j] = topCount[j - 1];
+                    topCount[j - 1] = tmp;
+                    tmp = topIndex[j];
+                    topIndex[j] = topIndex[j - 1];
+                    topIndex[j - 1] = tmp;
+                }
+            }
+        }
+
+        double sum = 0.0;
+        for (int i = 0; i < count - 1; i++) {
+            int dIndex = topIndex[i] / steps;
+            sum += -20 + (topIndex[i] - dIndex * steps) * 0.2;
+        }
+        return sum / (count - 1);
+    }
+}
@@ -0,0 +1,178 @@
+/**
+ * <a url=http://www.jdeskew.com/>JDeskew</a>
+ */
+package com.recognition.software.jdeskew;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Test;
+
+public class ImageUtilTest {
+
+    private final String testResourcesDataPath = "src/test/resources/test-data";
+
+    private static final int[] IMAGE_TYPES = { BufferedImage.TYPE_BYTE_BINARY, BufferedImage.TYPE_BYTE_GRAY,
+            BufferedImage.TYPE_BYTE_INDEXED, BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB,
+            BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_USHORT_GRAY };
+
+    public ImageUtilTest() {
+    }
+
+    /**
+     * Test of getBlackBitmap method, of class ImageUtil. Compares the bitmaps for various image types and cutoffs with
+     * <code>isBlack</code> for each pixel.
+     *
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testGetBlackBitmap() throws Exception {
+        System.out.println("getBlackBitmap");
+        BufferedImage source = ImageIO.read(new File(this.testResourcesDataPath, "eurotext.png"));
+
+        for (int imageType : IMAGE_TYPES) {
+            BufferedImage bi = convert(source, imageType);
+            int yStart = bi.getHeight() / 3;
+            int yEnd = bi.getHeight() / 2;
+            assertBitmapEquals(bi, yStart, yEnd, -1, ImageUtil.getBlackBitmap(bi, yStart, yEnd));
+            for (int cutOff : new int[] { 0, 100, 140, 200, 256 }) {
+                assertBitmapEquals(bi, yStart, yEnd, cutOff, ImageUtil.getBlackBitmap(bi, yStart, yEnd, cutOff));
+            }
+        }
+
+        // sub-images sharing the raster of their parent, with odd widths
+        for (int imageType : new int[] { BufferedImage.TYPE_BYTE_BINARY, BufferedImage.TYPE_BYTE_GRAY }) {
+            BufferedImage bi = convert(source, imageType).getSubimage(7, 5, 301, 200);
+            assertBitmapEquals(bi, 0, bi.getHeight(), -1, ImageUtil.getBlackBitmap(bi));
+            assertBitmapEquals(bi, 0, bi.getHeight(), 140, ImageUtil.getBlackBitmap(bi, 0, bi.getHeight(), 140));
+        }
+
+        // all values of each channel, including exact ties at the cutoff
+        BufferedImage bi = new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 256; y++) {
+            for (int x = 0; x < 256; x++) {
+                bi.setRGB(x, y, (x << 16) | (y << 8) | ((x * 7 + y * 13) & 0xff));
+            }
+        }
+        for (int cutOff = 1; cutOff < 256; cutOff += 11) {
+            assertBitmapEquals(bi, 0, 256, cutOff, ImageUtil.getBlackBitmap(bi, 0, 256, cutOff));
+        }
+    }
+
+    /**
+     * Test of getLuminance method, of class ImageUtil. The luminance of each pixel is the lowest cutoff for which
+     * <code>isBlack</code> is true, less one.
+     *
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testGetLuminance() throws Exception {
+        System.out.println("getLuminance");
+        BufferedImage source = ImageIO.read(new File(this.testResourcesDataPath, "eurotext.png"));
+
+        for (int imageType : IMAGE_TYPES) {
+            BufferedImage bi = convert(source, imageType);
+            int yStart = bi.getHeight() / 3;
+            int yEnd = yStart + 50;
+            byte[] luminance = ImageUtil.getLuminance(bi, yStart, yEnd);
+            assertEquals(bi.getWidth() * (yEnd - yStart), luminance.length);
+
+            for (int y = yStart; y < yEnd; y++) {
+                for (int x = 0; x < bi.getWidth(); x++) {
+                    int value = luminance[(y - yStart) * bi.getWidth() + x] & 0xff;
+                    assertEquals(false, ImageUtil.isBlack(bi, x, y, value));
+                    assertEquals(true, ImageUtil.isBlack(bi, x, y, value + 1));
+                }
+            }
+        }
+    }
+
+    /**
+     * Benchmark of getBlackBitmap method on a 300 DPI Letter page, of class ImageUtil, against <code>isBlack</code>
+     * for each pixel.
+     */
+    @Test
+    public void testGetBlackBitmap_Benchmark() {
+        System.out.println("getBlackBitmap benchmark");
+        int[] imageTypes = { BufferedImage.TYPE_BYTE_BINARY, BufferedImage.TYPE_BYTE_GRAY, BufferedImage.TYPE_INT_RGB,
+                BufferedImage.TYPE_3BYTE_BGR };
+
+        for (int imageType : imageTypes) {
+            BufferedImage bi = new BufferedImage(2550, 3300, imageType);
+            Graphics2D g = bi.createGraphics();
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, bi.getWidth(), bi.getHeight());
+            g.setColor(Color.BLACK);
+            for (int y = 100; y < bi.getHeight() - 100; y += 50) {
+                g.drawString("The quick brown fox jumps over the lazy dog.", 100, y);
+            }
+            g.dispose();
+
+            int runs = 3;
+            long pixelTime = 0;
+            long bitmapTime = 0;
+
+            // the first round warms up the JIT compiler and is not counted
+            for (int i = 0; i <= runs; i++) {
+                long start = System.nanoTime();
+                int expCount = 0;
+                for (int y = 0; y < bi.getHeight(); y++) {
+                    for (int x = 0; x < bi.getWidth(); x++) {
+                        if (ImageUtil.isBlack(bi, x, y)) {
+                            expCount++;
+                        }
+                    }
+                }
+                long t1 = System.nanoTime();
+                byte[] bitmap = ImageUtil.getBlackBitmap(bi);
+                long t2 = System.nanoTime();
+
+                int count = 0;
+                for (byte bits : bitmap) {
+                    count += Integer.bitCount(bits & 0xff);
+                }
+                assertEquals(expCount, count);
+
+                if (i > 0) {
+                    pixelTime += t1 - start;
+                    bitmapTime += t2 - t1;
+                }
+            }
+
+            System.out.println(String.format("type %2d: isBlack %4d ms, getBlackBitmap %3d ms (%.1fx)", imageType,
+                    pixelTime / runs / 1000000, bitmapTime / runs / 1000000, (double) pixelTime / bitmapTime));
+        }
+    }
+
+    /**
+     * Compares a bitmap with <code>isBlack</code> for each pixel, with the default rule for a negative cutoff.
+     */
+    private static void assertBitmapEquals(BufferedImage image, int yStart, int yEnd, int cutOff, byte[] bitmap) {
+        int stride = ImageUtil.getBitmapStride(image.getWidth());
+        assertEquals(stride * (yEnd - yStart), bitmap.length);
+
+        for (int y = yStart; y < yEnd; y++) {
+            int offset = (y - yStart) * stride;
+            for (int x = 0; x < stride * 8; x++) {
+                boolean expected = x < image.getWidth()
+                        && (cutOff < 0 ? ImageUtil.isBlack(image, x, y) : ImageUtil.isBlack(image, x, y, cutOff));
+                boolean result = (bitmap[offset + (x >> 3)] & (0x80 >> (x & 7))) != 0;
+                assertEquals("pixel " + x + ", " + y, expected, result);
+            }
+        }
+    }
+
+    private static BufferedImage convert(BufferedImage source, int imageType) {
+        BufferedImage bi = new BufferedImage(source.getWidth(), source.getHeight(), imageType);
+        Graphics2D g = bi.createGraphics();
+        g.drawImage(source, 0, 0, null);
+        g.dispose();
+        return bi;
+    }
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright @ 2014 Quan Nguyen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DiskOCRCacheTest {
+
+    private File directory;
+
+    public DiskOCRCacheTest() {
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("ocrcache", "");
+        directory.delete();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    /**
+     * Test of get and put methods, of class DiskOCRCache. Texts are replaced, and survive reopening the cache.
+     * 
+     * @throws Exception while accessing the cache files.
+     */
+    @Test
+    public void testGetPut() throws Exception {
+        System.out.println("get and put");
+        DiskOCRCache instance = new DiskOCRCache(directory, 100, 1 << 20);
+        instance.put("a", "text a");
+        instance.put("b", "texte \u00e9 b");
+        instance.put("a", "text a2");
+        assertEquals("text a2", instance.get("a"));
+        assertEquals("texte \u00e9 b", instance.get("b"));
+        assertNull(instance.get("c"));
+        assertEquals(2, instance.size());
+        instance.close();
+
+        instance = new DiskOCRCache(directory, 100, 1 << 20);
+        assertEquals("text a2", instance.get("a"));
+        assertEquals(1, instance.getHitCount());
+        instance.close();
+    }
+
+    /**
+     * Test of compaction, of class DiskOCRCache. The segment file stays within its limit, keeping the most recently
+     * stored texts.
+     * 
+     * @throws Exception while accessing the cache files.
+     */
+    @Test
+    public void testCompaction() throws Exception {
+        System.out.println("compaction");
+        DiskOCRCache instance = new DiskOCRCache(directory, 1000, 10000);
+        for (int i = 0; i < 500; i++) {
+            instance.put("key" + i, "text of page " + i);
+            assertTrue(instance.getByteSize() <= 10000);
+        }
+        System.out.println(String.format("%d entries, %d bytes", instance.size(), instance.getByteSize()));
+        assertEquals("text of page 499", instance.get("key499"));
+        assertNull(instance.get("key0"));
+        for (int i = 500 - instance.size(); i < 500; i++) {
+            assertEquals("text of page " + i, instance.get("key" + i));
+        }
+        instance.close();
+    }
+
+    /**
+     * Test of the disk tier of OCRCache. A text stored through one memory cache is found by another sharing the
+     * directory.
+     * 
+     * @throws Exception while accessing the cache files.
+     */
+    @Test
+    public void testOCRCacheTier() throws Exception {
+        System.out.println("disk tier of OCRCache");
+        DiskOCRCache disk1 = new DiskOCRCache(directory, 100, 1 << 20);
+        DiskOCRCache disk2 = new DiskOCRCache(directory, 100, 1 << 20);
+        OCRCache cache1 = new OCRCache(10, 1 << 20);
+        OCRCache cache2 = new OCRCache(10, 1 << 20);
+        cache1.setDiskCache(disk1);
+        cache2.setDiskCache(disk2);
+
+        cache1.put("a", "text a");
+        assertEquals("text a", cache2.get("a"));
+        assertEquals("text a", cache2.get("a"));
+        System.out.println(cache2);
+        assertEquals(1, cache2.getDiskHitCount());
+        assertEquals(2, cache2.getHitCount());
+        disk1.close();
+        disk2.close();
+    }
+
+    /**
+     * Test of concurrent use of DiskOCRCache by several processes. Two child processes and this one store texts at the
+     * same time; all of them must then be found.
+     * 
+     * @throws Exception while accessing the cache files.
+     */
+    @Test
+    public void testConcurrentProcesses() throws Exception {
+        System.out.println("concurrent processes");
+        int count = 200;
+        List<Process> processes = new ArrayList<Process>();
+        for (String prefix : new String[] { "p1-", "p2-" }) {
+            ProcessBuilder pb = new ProcessBuilder(System.getProperty("java.home") + "/bin/java", "-cp",
+                    System.getProperty("java.class.path"), Writer.class.getName(), directory.getPath(), prefix,
+                    String.valueOf(count));
+            pb.redirectErrorStream(true);
+            processes.add(pb.start());
+        }
+        Writer.main(new String[] { directory.getPath(), "p0-", String.valueOf(count) });
+        for (Process process : processes) {
+            assertEquals(0, process.waitFor());
+        }
+
+        DiskOCRCache instance = new DiskOCRCache(directory, 1000, 1 << 20);
+        for (String prefix : new String[] { "p0-", "p1-", "p2-" }) {
+            for (int i = 0; i < count; i++) {
+                assertEquals(prefix + "text " + i, instance.get(prefix + i));
+            }
+        }
+        assertEquals(3 * count, instance.size());
+        instance.close();
+    }
+
+    /**
+     * Stores texts in a cache, as a separate process.
+     */
+    public static class Writer {
+
+        public static void main(String[] args) throws IOException {
+            DiskOCRCache cache = new DiskOCRCache(new File(args[0]), 1000, 1 << 20);
+            String prefix = args[1];
+            for (int i = 0; i < Integer.parseInt(args[2]); i++) {
+                cache.put(prefix + i, prefix + "text " + i);
+                cache.get(prefix + (i / 2));
+            }
+            cache.close();
+        }
+    }
+}
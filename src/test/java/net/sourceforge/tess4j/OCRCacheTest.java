@@ -0,0 +1,123 @@
+/**
+ * Copyright @ 2014 Quan Nguyen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sourceforge.tess4j;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+
+import javax.imageio.ImageIO;
+
+import net.sourceforge.tess4j.util.Utils;
+
+import org.junit.Test;
+
+public class OCRCacheTest {
+
+    private final String testResourcesDataPath = "src/test/resources/test-data";
+
+    public OCRCacheTest() {
+    }
+
+    /**
+     * Test of get and put methods, of class OCRCache. The least recently used entries are evicted by entry count and
+     * by byte size, and the hit rate is reported.
+     */
+    @Test
+    public void testGetPut() {
+        System.out.println("get and put");
+        OCRCache instance = new OCRCache(3, 820);
+        instance.put("a", "text a");
+        instance.put("b", "text b");
+        instance.put("c", "text c");
+        assertEquals("text a", instance.get("a")); // a is now the most recently used
+        instance.put("d", "text d");
+        assertEquals(3, instance.size());
+        assertNull(instance.get("b"));
+        assertEquals("text a", instance.get("a"));
+        assertEquals(2.0 / 3, instance.getHitRate(), 0);
+        assertEquals(1, instance.getEvictionCount());
+
+        // a 400-character text leaves room for one more of the small entries only
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 400; i++) {
+            sb.append('x');
+        }
+        instance.put("e", sb.toString());
+        System.out.println(instance);
+        assertEquals(2, instance.size());
+        assertEquals(2L * (1 + 6 + 1 + 400), instance.getByteSize());
+        assertEquals("text a", instance.get("a"));
+
+        // larger than the cache itself
+        instance.put("f", sb.append(sb).append(sb).toString());
+        assertNull(instance.get("f"));
+        assertEquals(0, instance.getByteSize());
+    }
+
+    /**
+     * Test of fingerprint method, of class Utils. Copies of an image have the same fingerprint; a changed pixel, a
+     * changed setting, a sub-image or another layout of the same data change it.
+     * 
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testFingerprint() throws Exception {
+        System.out.println("fingerprint");
+        String filename = String.format("%s/%s", this.testResourcesDataPath, "eurotext.png");
+        BufferedImage bi = ImageIO.read(new File(filename));
+
+        int[] imageTypes = { BufferedImage.TYPE_BYTE_BINARY, BufferedImage.TYPE_BYTE_GRAY,
+                BufferedImage.TYPE_BYTE_INDEXED, BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_USHORT_GRAY };
+        for (int imageType : imageTypes) {
+            BufferedImage image = convert(bi, imageType);
+            String expResult = Utils.fingerprint(image, "eng");
+            long start = System.nanoTime();
+            String result = Utils.fingerprint(convert(bi, imageType), "eng");
+            System.out.println(String.format("type %2d: %s in %d ms", imageType, result,
+                    (System.nanoTime() - start) / 1000000));
+            assertEquals(expResult, result);
+            assertFalse(expResult.equals(Utils.fingerprint(image, "deu")));
+
+            image.setRGB(10, 10, ~image.getRGB(10, 10));
+            assertFalse(expResult.equals(Utils.fingerprint(image, "eng")));
+        }
+
+        BufferedImage image = convert(bi, BufferedImage.TYPE_BYTE_GRAY);
+        assertFalse(Utils.fingerprint(image, "eng").equals(
+                Utils.fingerprint(image.getSubimage(0, 0, image.getWidth(), image.getHeight() / 2), "eng")));
+
+        // the same ints read as RGB and as BGR
+        BufferedImage rgb = convert(bi, BufferedImage.TYPE_INT_RGB);
+        BufferedImage bgr = new BufferedImage(rgb.getWidth(), rgb.getHeight(), BufferedImage.TYPE_INT_BGR);
+        int[] data = ((DataBufferInt) rgb.getRaster().getDataBuffer()).getData();
+        System.arraycopy(data, 0, ((DataBufferInt) bgr.getRaster().getDataBuffer()).getData(), 0, data.length);
+        assertFalse(Utils.fingerprint(rgb, "eng").equals(Utils.fingerprint(bgr, "eng")));
+    }
+
+    private static BufferedImage convert(BufferedImage source, int imageType) {
+        BufferedImage bi = new BufferedImage(source.getWidth(), source.getHeight(), imageType);
+        Graphics2D g = bi.createGraphics();
+        g.drawImage(source, 0, 0, null);
+        g.dispose();
+        return bi;
+    }
+}
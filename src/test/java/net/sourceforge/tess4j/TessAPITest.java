@@ -39,6 +39,8 @@ import net.sourceforge.tess4j.TessAPI.TessTextlineOrder;
 import net.sourceforge.tess4j.TessAPI.TessWritingDirection;
 import net.sourceforge.tess4j.util.Utils;
 import net.sourceforge.vietocr.ImageIOHelper;
+import net.sourceforge.vietocr.PdfRenderProfile;
+import net.sourceforge.vietocr.PdfUtilities;
 
 import org.junit.After;
 import org.junit.AfterClass;
@@ -135,6 +137,75 @@ public class TessAPITest {
         assertTrue(result.startsWith(expResult));
     }
 
+    /**
+     * Benchmark of PDF render profiles, measuring rendering throughput against mean recognition confidence, of class
+     * TessAPI. Requires GPL Ghostscript.
+     * 
+     * @throws Exception while processing the image
+     */
+    @Test
+    public void testPdfRenderProfiles() throws Exception {
+        System.out.println("PDF render profiles: rendering time vs. mean confidence");
+        String filename = String.format("%s/%s", this.testResourcesDataPath, "eurotext.pdf");
+        File pdf = new File(filename);
+
+        PdfRenderProfile gray300 = new PdfRenderProfile();
+        PdfRenderProfile grayNoAA = new PdfRenderProfile();
+        grayNoAA.setAntiAliasing(false);
+        PdfRenderProfile mono300 = new PdfRenderProfile();
+        mono300.setMonochrome(true);
+        PdfRenderProfile gray200 = new PdfRenderProfile();
+        gray200.setResolution(200);
+        PdfRenderProfile grayAuto = new PdfRenderProfile();
+        grayAuto.setResolution(PdfRenderProfile.AUTO_RESOLUTION);
+        PdfRenderProfile banded = new PdfRenderProfile();
+        banded.setRenderingThreads(4);
+        banded.setBufferSpace(1000000);
+
+        api.TessBaseAPIInit3(handle, datapath, language);
+        api.TessBaseAPISetPageSegMode(handle, TessAPI.TessPageSegMode.PSM_AUTO);
+
+        for (PdfRenderProfile profile : Arrays.asList(gray300, grayNoAA, mono300, gray200, grayAuto, banded)) {
+            int runs = 3;
+            long renderTime = 0;
+            File[] pngFiles = null;
+
+            for (int i = 0; i < runs; i++) {
+                long start = System.nanoTime();
+                pngFiles = PdfUtilities.convertPdf2Png(pdf, 0, 0, profile);
+                renderTime += System.nanoTime() - start;
+                if (i < runs - 1) {
+                    for (File pngFile : pngFiles) {
+                        pngFile.delete();
+                    }
+                }
+            }
+
+            BufferedImage image = ImageIO.read(pngFiles[0]);
+            for (File pngFile : pngFiles) {
+                pngFile.delete();
+            }
+
+            ByteBuffer buf = ImageIOHelper.convertImageData(image);
+            int bpp = image.getColorModel().getPixelSize();
+            int bytespp = bpp / 8;
+            int bytespl = (int) Math.ceil(image.getWidth() * bpp / 8.0);
+            api.TessBaseAPISetImage(handle, buf, image.getWidth(), image.getHeight(), bytespp, bytespl);
+            long start = System.nanoTime();
+            Pointer utf8Text = api.TessBaseAPIGetUTF8Text(handle);
+            long ocrTime = System.nanoTime() - start;
+            String result = utf8Text.getString(0);
+            api.TessDeleteText(utf8Text);
+            int confidence = api.TessBaseAPIMeanTextConf(handle);
+
+            System.out.println(String.format("%-60s render %4d ms, OCR %4d ms, mean confidence %3d", profile,
+                    renderTime / runs / 1000000, ocrTime / 1000000, confidence));
+            if (profile == gray300) {
+                assertTrue(result.startsWith(expOCRResult));
+            }
+        }
+    }
+
     /**
      * Test of TessVersion method, of class TessAPI.
      */
@@ -17,11 +17,17 @@ package net.sourceforge.tess4j;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
+import java.awt.Color;
+import java.awt.Graphics2D;
 import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.nio.IntBuffer;
+import java.nio.channels.Channels;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -31,6 +37,9 @@ import javax.imageio.ImageIO;
 import net.sourceforge.tess4j.util.Utils;
 import net.sourceforge.vietocr.ImageHelper;
 import net.sourceforge.vietocr.ImageIOHelper;
+import net.sourceforge.vietocr.ImagePipeline;
+import net.sourceforge.vietocr.PdfRenderProfile;
+import net.sourceforge.vietocr.PdfUtilities;
 
 import org.junit.After;
 import org.junit.AfterClass;
@@ -68,6 +77,18 @@ public class Tesseract1Test {
 
     @After
     public void tearDown() {
+        // restore the settings changed by the tests, which would otherwise carry over after a failure
+        instance.setHocr(false);
+        instance.setPageSegMode(TessAPI1.TessPageSegMode.PSM_AUTO);
+        instance.setPdfTextLayerEnabled(false);
+        instance.setPdfTextLayerMinCharacters(PdfUtilities.DEFAULT_MIN_TEXT_LAYER_CHARACTERS);
+        instance.setPdfRenderProfile(new PdfRenderProfile());
+        instance.setDeskew(false);
+        instance.setAutoRotate(false);
+        instance.setCache(null);
+        instance.setPageDeduplication(false);
+        instance.setBlankPageThreshold(0);
+        instance.setImagePipeline(null);
     }
 
     /**
@@ -103,6 +124,389 @@ public class Tesseract1Test {
         assertEquals(expResult, result.substring(0, expResult.length()));
     }
 
+    /**
+     * Test of doOCRRegions method on several regions of one image, of class Tesseract1. The second region has its own
+     * page segmentation mode and character whitelist.
+     * 
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testDoOCRRegions() throws Exception {
+        System.out.println("doOCRRegions");
+        String filename = String.format("%s/%s", this.testResourcesDataPath, "eurotext.png");
+        BufferedImage bi = ImageIO.read(new File(filename));
+        List<Rectangle> regions = new ArrayList<Rectangle>();
+        regions.add(new Rectangle(0, 0, 1024, 800));
+        regions.add(new OCRRegion(new Rectangle(0, 0, 1024, 800), TessAPI1.TessPageSegMode.PSM_SINGLE_BLOCK,
+                "0123456789"));
+        regions.add(new Rectangle()); // the whole image
+        List<String> result = instance.doOCRRegions(bi, regions);
+        System.out.println(result);
+        assertEquals(3, result.size());
+        String expResult = "The (quick) [brown] {fox} jumps!\nOver the $43,456.78 <lazy> #90 dog";
+        assertEquals(expResult, result.get(0).substring(0, expResult.length()));
+        assertTrue(result.get(1).trim().matches("[0-9\\s]*"));
+        assertEquals(instance.doOCR(bi), result.get(2));
+    }
+
+    /**
+     * Test of doOCRRegions method with skew correction enabled, of class Tesseract1. The regions refer to the image as
+     * passed, which is not deskewed.
+     * 
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testDoOCRRegions_Deskew() throws Exception {
+        System.out.println("doOCRRegions with skew correction enabled");
+        String filename = String.format("%s/%s", this.testResourcesDataPath, "eurotext_deskew.png");
+        BufferedImage bi = ImageIO.read(new File(filename));
+        List<Rectangle> regions = new ArrayList<Rectangle>();
+        regions.add(new Rectangle(0, 0, bi.getWidth(), bi.getHeight() / 2));
+        regions.add(new Rectangle(0, bi.getHeight() / 2, bi.getWidth(), bi.getHeight() / 2));
+        List<String> expResult = instance.doOCRRegions(bi, regions);
+
+        try {
+            instance.setDeskew(true);
+            List<String> result = instance.doOCRRegions(bi, regions);
+            System.out.println(result);
+            assertEquals(expResult, result);
+        } finally {
+            instance.setDeskew(false);
+        }
+    }
+
+    /**
+     * Test of recognize method, of class Tesseract1. Words and lines carry their text, bounding boxes inside the image,
+     * confidences and line numbers.
+     * 
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testRecognize() throws Exception {
+        System.out.println("recognize");
+        String filename = String.format("%s/%s", this.testResourcesDataPath, "eurotext.png");
+        BufferedImage bi = ImageIO.read(new File(filename));
+        OCRResult result = instance.recognize(bi, TessAPI1.TessPageIteratorLevel.RIL_WORD);
+        List<net.sourceforge.tess4j.Word> words = result.getWords();
+        for (net.sourceforge.tess4j.Word word : words) {
+            System.out.println(word);
+        }
+        assertEquals("The", words.get(0).getText());
+        assertEquals(1, words.get(0).getBlockNum());
+        assertEquals(1, words.get(0).getLineNum());
+        Rectangle bounds = new Rectangle(bi.getWidth(), bi.getHeight());
+        for (net.sourceforge.tess4j.Word word : words) {
+            assertTrue(bounds.contains(word.getBoundingBox()));
+            assertTrue(word.getConfidence() >= 0 && word.getConfidence() <= 100);
+        }
+
+        List<net.sourceforge.tess4j.Word> lines = instance.recognize(bi,
+                TessAPI1.TessPageIteratorLevel.RIL_TEXTLINE).getWords();
+        assertEquals(words.get(words.size() - 1).getLineNum(), lines.size());
+        String expResult = "The (quick) [brown] {fox} jumps!";
+        assertEquals(expResult, lines.get(0).getText().substring(0, expResult.length()));
+    }
+
+    /**
+     * Test of doOCR and recognize methods with a result listener, of class Tesseract1. The streamed pages and words
+     * must match the results returned as a whole.
+     * 
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testDoOCR_Listener() throws Exception {
+        System.out.println("doOCR with a result listener");
+        String filename = String.format("%s/%s", this.testResourcesDataPath, "eurotext.tif");
+        List<IIOImage> imageList = ImageIOHelper.getIIOImageList(new File(filename));
+        final StringBuilder sb = new StringBuilder();
+        final List<Integer> pageIndexes = new ArrayList<Integer>();
+        instance.doOCR(imageList, null, new OCRResultAdapter() {
+            @Override
+            public void pageRecognized(int pageIndex, String text) {
+                pageIndexes.add(pageIndex);
+                sb.append(text);
+            }
+        });
+        assertEquals(imageList.size(), pageIndexes.size());
+        assertEquals(instance.doOCR(imageList, null), sb.toString());
+
+        final List<String> words = new ArrayList<String>();
+        instance.recognize(imageList, TessAPI1.TessPageIteratorLevel.RIL_WORD, new OCRResultAdapter() {
+            @Override
+            public void wordRecognized(int pageIndex, net.sourceforge.tess4j.Word word) {
+                words.add(word.getText());
+            }
+        });
+        List<OCRResult> results = instance.recognize(imageList, TessAPI1.TessPageIteratorLevel.RIL_WORD);
+        assertEquals(results.get(0).getWords().size(), words.size());
+        assertEquals(results.get(0).getWords().get(0).getText(), words.get(0));
+    }
+
+    /**
+     * Test of doOCR method writing hOCR output to a stream, of class Tesseract1. The streamed document must match the
+     * one returned as a string.
+     * 
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testDoOCR_OutputStream_Hocr() throws Exception {
+        System.out.println("doOCR writing hOCR output to a stream");
+        String filename = String.format("%s/%s", this.testResourcesDataPath, "eurotext.tif");
+        List<IIOImage> imageList = ImageIOHelper.getIIOImageList(new File(filename));
+        instance.setHocr(true);
+        String expResult = instance.doOCR(imageList, null);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        instance.doOCR(imageList, null, out);
+        instance.setHocr(false);
+        String result = out.toString("UTF-8");
+        System.out.println(result);
+        assertTrue(result.startsWith(ITesseract.htmlBeginTag));
+        assertTrue(result.endsWith(ITesseract.htmlEndTag));
+        assertEquals(expResult, result);
+    }
+
+    /**
+     * Test of doOCR method writing to a byte channel, of class Tesseract1. The bytes must be the UTF-8 encoding of the
+     * text returned as a string, in plain and hOCR modes.
+     * 
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testDoOCR_Channel() throws Exception {
+        System.out.println("doOCR writing to a byte channel");
+        String filename = String.format("%s/%s", this.testResourcesDataPath, "eurotext.tif");
+        List<IIOImage> imageList = ImageIOHelper.getIIOImageList(new File(filename));
+
+        for (boolean hocr : new boolean[] { false, true }) {
+            instance.setHocr(hocr);
+            String expResult = instance.doOCR(imageList, null);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            instance.doOCR(imageList, null, Channels.newChannel(out));
+            assertArrayEquals(expResult.getBytes("UTF-8"), out.toByteArray());
+        }
+        instance.setHocr(false);
+    }
+
+    /**
+     * Test of doOCR method with a result cache, of class Tesseract1. A repeated image is answered from the cache,
+     * while a changed setting misses it.
+     * 
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testDoOCR_Cache() throws Exception {
+        System.out.println("doOCR with a result cache");
+        String filename = String.format("%s/%s", this.testResourcesDataPath, "eurotext.png");
+        BufferedImage bi = ImageIO.read(new File(filename));
+        OCRCache cache = new OCRCache(100, 1 << 20);
+        instance.setCache(cache);
+
+        String expResult = instance.doOCR(bi);
+        String result = instance.doOCR(ImageIO.read(new File(filename)));
+        assertEquals(expResult, result);
+        assertEquals(1, instance.getStatistics().getCachedPageCount());
+
+        instance.doOCR(bi, new Rectangle(0, 0, 1024, 800));
+        assertEquals(0, instance.getStatistics().getCachedPageCount());
+        System.out.println(cache);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        instance.setCache(null);
+    }
+
+    /**
+     * Test of doOCR method with duplicate page detection, of class Tesseract1. A repeated page is recognized once, and
+     * its text is put back at each of its positions.
+     * 
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testDoOCR_PageDeduplication() throws Exception {
+        System.out.println("doOCR with duplicate page detection");
+        String filename = String.format("%s/%s", this.testResourcesDataPath, "eurotext.png");
+        BufferedImage bi = ImageIO.read(new File(filename));
+        BufferedImage other = bi.getSubimage(0, 0, bi.getWidth(), bi.getHeight() / 2);
+        List<IIOImage> imageList = new ArrayList<IIOImage>();
+        imageList.add(new IIOImage(bi, null, null));
+        imageList.add(new IIOImage(other, null, null));
+        imageList.add(new IIOImage(ImageIO.read(new File(filename)), null, null));
+        String expResult = instance.doOCR(imageList, null);
+
+        instance.setPageDeduplication(true);
+        String result = instance.doOCR(imageList, null);
+        instance.setPageDeduplication(false);
+        System.out.println(instance.getStatistics());
+        assertEquals(expResult, result);
+        assertEquals(2, instance.getStatistics().getRecognizedPageCount());
+        assertEquals(1, instance.getStatistics().getDuplicatePageCount());
+    }
+
+    /**
+     * Test of doOCR method with blank page detection, of class Tesseract1. A blank page yields empty text without being
+     * recognized, and is flagged in structured results.
+     * 
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testDoOCR_BlankPage() throws Exception {
+        System.out.println("doOCR with blank page detection");
+        String filename = String.format("%s/%s", this.testResourcesDataPath, "eurotext.png");
+        BufferedImage bi = ImageIO.read(new File(filename));
+        BufferedImage blank = new BufferedImage(bi.getWidth(), bi.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = blank.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, blank.getWidth(), blank.getHeight());
+        g.dispose();
+        List<IIOImage> imageList = new ArrayList<IIOImage>();
+        imageList.add(new IIOImage(bi, null, null));
+        imageList.add(new IIOImage(blank, null, null));
+        String expResult = instance.doOCR(bi);
+
+        instance.setBlankPageThreshold(0.0001);
+        String result = instance.doOCR(imageList, null);
+        System.out.println(instance.getStatistics());
+        assertEquals(expResult, result);
+        assertEquals(1, instance.getStatistics().getRecognizedPageCount());
+        assertEquals(1, instance.getStatistics().getBlankPageCount());
+
+        List<OCRResult> results = instance.recognize(imageList, TessAPI1.TessPageIteratorLevel.RIL_WORD);
+        instance.setBlankPageThreshold(0);
+        assertFalse(results.get(0).isBlank());
+        assertTrue(results.get(1).isBlank());
+        assertTrue(results.get(1).getWords().isEmpty());
+    }
+
+    /**
+     * Test of analyzeLayout method, of class Tesseract1. The time of layout analysis is printed against that of
+     * full recognition of the same image for reference; only the blocks found are checked.
+     * 
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testAnalyzeLayout() throws Exception {
+        System.out.println("analyzeLayout");
+        String filename = String.format("%s/%s", this.testResourcesDataPath, "eurotext.png");
+        BufferedImage bi = ImageIO.read(new File(filename));
+
+        // the first round warms up and is not counted
+        instance.analyzeLayout(bi);
+        long start = System.nanoTime();
+        List<LayoutBlock> blocks = instance.analyzeLayout(bi);
+        long t1 = System.nanoTime();
+        instance.doOCR(bi);
+        long t2 = System.nanoTime();
+        System.out.println(String.format("analyzeLayout %d ms, doOCR %d ms", (t1 - start) / 1000000,
+                (t2 - t1) / 1000000));
+
+        for (LayoutBlock block : blocks) {
+            System.out.println(block);
+        }
+        assertTrue(blocks.size() > 0);
+        assertEquals(TessAPI1.TessPolyBlockType.PT_FLOWING_TEXT, blocks.get(0).getBlockType());
+        Rectangle bounds = new Rectangle(bi.getWidth(), bi.getHeight());
+        for (LayoutBlock block : blocks) {
+            assertTrue(bounds.contains(block.getBoundingBox()));
+            assertFalse(block.getBoundingBox().isEmpty());
+            assertTrue(block.getBlockType() >= TessAPI1.TessPolyBlockType.PT_UNKNOWN
+                    && block.getBlockType() < TessAPI1.TessPolyBlockType.PT_COUNT);
+        }
+    }
+
+    /**
+     * Test of analyzeLayout method with skew correction enabled, of class Tesseract1. The blocks refer to the image as
+     * passed, which is not deskewed.
+     * 
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testAnalyzeLayout_Deskew() throws Exception {
+        System.out.println("analyzeLayout with skew correction enabled");
+        String filename = String.format("%s/%s", this.testResourcesDataPath, "eurotext_deskew.png");
+        BufferedImage bi = ImageIO.read(new File(filename));
+        List<LayoutBlock> expBlocks = instance.analyzeLayout(bi);
+
+        try {
+            instance.setDeskew(true);
+            List<LayoutBlock> blocks = instance.analyzeLayout(bi);
+            assertEquals(expBlocks.size(), blocks.size());
+            for (int i = 0; i < blocks.size(); i++) {
+                assertEquals(expBlocks.get(i).getBoundingBox(), blocks.get(i).getBoundingBox());
+                assertEquals(expBlocks.get(i).getBlockType(), blocks.get(i).getBlockType());
+            }
+        } finally {
+            instance.setDeskew(false);
+        }
+    }
+
+    /**
+     * Test of doOCR method with orientation detection, of class Tesseract1. Sideways and upside-down copies of a page
+     * are turned upright and recognized once, and their orientation is reported. Layout analysis is not affected.
+     * 
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testDoOCR_AutoRotate() throws Exception {
+        System.out.println("doOCR with orientation detection");
+        String filename = String.format("%s/%s", this.testResourcesDataPath, "eurotext.png");
+        BufferedImage bi = ImageIO.read(new File(filename));
+        String expResult = "The (quick) [brown] {fox} jumps!\nOver the $43,456.78 <lazy> #90 dog";
+        int[] angles = { 90, 180, 270 };
+        int[] expOrientations = { TessAPI1.TessOrientation.ORIENTATION_PAGE_RIGHT,
+                TessAPI1.TessOrientation.ORIENTATION_PAGE_DOWN, TessAPI1.TessOrientation.ORIENTATION_PAGE_LEFT };
+        instance.setAutoRotate(true);
+
+        for (int i = 0; i < angles.length; i++) {
+            BufferedImage rotated = ImageHelper.rotateImage(bi, angles[i]);
+            String result = instance.doOCR(rotated);
+            System.out.println(String.format("rotated %d: %s", angles[i], instance.getStatistics()));
+            assertEquals(expResult, result.substring(0, expResult.length()));
+            assertEquals(1, instance.getStatistics().getRotatedPageCount());
+
+            OCRResult ocrResult = instance.recognize(rotated, TessAPI1.TessPageIteratorLevel.RIL_WORD);
+            assertEquals(expOrientations[i], ocrResult.getOrientation());
+            assertEquals("The", ocrResult.getWords().get(0).getText());
+        }
+
+        // layout analysis keeps the coordinates of the image as passed
+        BufferedImage rotated = ImageHelper.rotateImage(bi, 90);
+        List<LayoutBlock> blocks = instance.analyzeLayout(rotated);
+        instance.setAutoRotate(false);
+        List<LayoutBlock> expBlocks = instance.analyzeLayout(rotated);
+        assertEquals(expBlocks.size(), blocks.size());
+        for (int i = 0; i < blocks.size(); i++) {
+            assertEquals(expBlocks.get(i).getBoundingBox(), blocks.get(i).getBoundingBox());
+        }
+    }
+
+    /**
+     * Test of doOCR method with orientation detection in a page segmentation mode other than automatic, of class
+     * Tesseract1. The layout found in the orientation detection mode is not reused for an upright page, so that the
+     * page is recognized as in the mode set.
+     * 
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testDoOCR_AutoRotate_PageSegMode() throws Exception {
+        System.out.println("doOCR with orientation detection in single line mode");
+        String filename = String.format("%s/%s", this.testResourcesDataPath, "eurotext.png");
+        BufferedImage bi = ImageIO.read(new File(filename));
+
+        try {
+            String autoResult = instance.doOCR(bi);
+            instance.setPageSegMode(TessAPI1.TessPageSegMode.PSM_SINGLE_LINE);
+            String expResult = instance.doOCR(bi);
+            instance.setAutoRotate(true);
+            String result = instance.doOCR(bi);
+            System.out.println(result);
+            assertEquals(0, instance.getStatistics().getRotatedPageCount());
+            assertEquals(expResult, result);
+            assertFalse(autoResult.equals(result));
+        } finally {
+            instance.setAutoRotate(false);
+            instance.setPageSegMode(TessAPI1.TessPageSegMode.PSM_AUTO);
+        }
+    }
+
     /**
      * Test of doOCR method, of class Tesseract1.
      * 
@@ -120,6 +524,139 @@ public class Tesseract1Test {
         assertEquals(expResult, result.substring(0, expResult.length()));
     }
 
+    /**
+     * Test of doOCR method on a PDF document with use of the text layer enabled, of class Tesseract1.
+     * 
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testDoOCR_File_PdfTextLayer() throws Exception {
+        System.out.println("doOCR on a PDF document with text layer enabled");
+        String filename = String.format("%s/%s", this.testResourcesDataPath, "eurotext.pdf");
+        File imageFile = new File(filename);
+        instance.setPdfTextLayerEnabled(true);
+        String expResult = "The (quick) [brown] {fox} jumps!\nOver the $43,456.78 <lazy> #90 dog";
+        String result = instance.doOCR(imageFile);
+        instance.setPdfTextLayerEnabled(false);
+        System.out.println(result);
+        System.out.println(instance.getStatistics());
+        assertEquals(expResult, result.substring(0, expResult.length()));
+        // the document is a scanned image without text layer
+        assertEquals(1, instance.getStatistics().getRecognizedPageCount());
+        assertEquals(0, instance.getStatistics().getTextLayerPageCount());
+    }
+
+    /**
+     * Test of doOCR method on a mixed PDF document with use of the text layer enabled, of class Tesseract1. The text of
+     * the born-digital first page is taken as is; the scanned second page and the third, a scan stamped with a page
+     * number, are recognized.
+     * 
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testDoOCR_File_PdfTextLayer_Mixed() throws Exception {
+        System.out.println("doOCR on a mixed PDF document with text layer enabled");
+        String filename = String.format("%s/%s", this.testResourcesDataPath, "eurotext_mixed.pdf");
+        File imageFile = new File(filename);
+        instance.setPdfTextLayerEnabled(true);
+        String expResult = "The (quick) [brown] {fox} jumps!";
+        String result = instance.doOCR(imageFile);
+        System.out.println(result);
+        System.out.println(instance.getStatistics());
+        assertTrue(result.trim().startsWith(expResult));
+        assertEquals(3, instance.getStatistics().getPageCount());
+        assertEquals(1, instance.getStatistics().getTextLayerPageCount());
+        assertEquals(2, instance.getStatistics().getRecognizedPageCount());
+
+        // the stamp is taken as a text layer with a threshold low enough
+        instance.setPdfTextLayerMinCharacters(5);
+        instance.doOCR(imageFile);
+        instance.setPdfTextLayerMinCharacters(PdfUtilities.DEFAULT_MIN_TEXT_LAYER_CHARACTERS);
+        instance.setPdfTextLayerEnabled(false);
+        assertEquals(2, instance.getStatistics().getTextLayerPageCount());
+        assertEquals(1, instance.getStatistics().getRecognizedPageCount());
+    }
+
+    /**
+     * Test of doOCR method on a mixed PDF document with text layer enabled and a result cache, of class Tesseract1. The
+     * rendered pages are answered from the cache on a second run.
+     * 
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testDoOCR_File_PdfTextLayer_Cache() throws Exception {
+        System.out.println("doOCR on a mixed PDF document with text layer enabled and a result cache");
+        String filename = String.format("%s/%s", this.testResourcesDataPath, "eurotext_mixed.pdf");
+        File imageFile = new File(filename);
+        OCRCache cache = new OCRCache(100, 1 << 20);
+
+        try {
+            instance.setPdfTextLayerEnabled(true);
+            instance.setCache(cache);
+            String expResult = instance.doOCR(imageFile);
+            assertEquals(2, instance.getStatistics().getRecognizedPageCount());
+            String result = instance.doOCR(imageFile);
+            System.out.println(instance.getStatistics());
+            assertEquals(expResult, result);
+            assertEquals(1, instance.getStatistics().getTextLayerPageCount());
+            assertEquals(0, instance.getStatistics().getRecognizedPageCount());
+            assertEquals(2, instance.getStatistics().getCachedPageCount());
+        } finally {
+            instance.setCache(null);
+            instance.setPdfTextLayerEnabled(false);
+        }
+    }
+
+    /**
+     * Test of doOCR method on a PDF document with text layer enabled and duplicate page detection, of class Tesseract1.
+     * A scanned page repeated after a page with a text layer is recognized once.
+     * 
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testDoOCR_File_PdfTextLayer_PageDeduplication() throws Exception {
+        System.out.println("doOCR on a PDF document with text layer enabled and duplicate page detection");
+        String filename = String.format("%s/%s", this.testResourcesDataPath, "eurotext_duplicate.pdf");
+        File imageFile = new File(filename);
+
+        try {
+            instance.setPdfTextLayerEnabled(true);
+            String expResult = instance.doOCR(imageFile);
+            assertEquals(2, instance.getStatistics().getRecognizedPageCount());
+            instance.setPageDeduplication(true);
+            String result = instance.doOCR(imageFile);
+            System.out.println(instance.getStatistics());
+            assertEquals(expResult, result);
+            assertEquals(1, instance.getStatistics().getTextLayerPageCount());
+            assertEquals(1, instance.getStatistics().getRecognizedPageCount());
+            assertEquals(1, instance.getStatistics().getDuplicatePageCount());
+        } finally {
+            instance.setPageDeduplication(false);
+            instance.setPdfTextLayerEnabled(false);
+        }
+    }
+
+    /**
+     * Test of doOCR method on a PDF document with a custom render profile, of class Tesseract1.
+     * 
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testDoOCR_File_PdfRenderProfile() throws Exception {
+        System.out.println("doOCR on a PDF document with automatic resolution and anti-aliasing off");
+        String filename = String.format("%s/%s", this.testResourcesDataPath, "eurotext.pdf");
+        File imageFile = new File(filename);
+        PdfRenderProfile profile = new PdfRenderProfile();
+        profile.setResolution(PdfRenderProfile.AUTO_RESOLUTION);
+        profile.setAntiAliasing(false);
+        instance.setPdfRenderProfile(profile);
+        String expResult = "The (quick) [brown] {fox} jumps!\nOver the $43,456.78 <lazy> #90 dog";
+        String result = instance.doOCR(imageFile);
+        instance.setPdfRenderProfile(new PdfRenderProfile());
+        System.out.println(result);
+        assertEquals(expResult, result.substring(0, expResult.length()));
+    }
+
     /**
      * Test of doOCR method, of class Tesseract1.
      * 
@@ -160,6 +697,43 @@ public class Tesseract1Test {
         assertEquals(expResult, result.substring(0, expResult.length()));
     }
 
+    /**
+     * Test of doOCR method with skew correction enabled, of class Tesseract1.
+     * 
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testDoOCR_SkewedImage_Deskew() throws Exception {
+        System.out.println("doOCR on a skewed PNG image with skew correction");
+        String filename = String.format("%s/%s", this.testResourcesDataPath, "eurotext_deskew.png");
+        File imageFile = new File(filename);
+        instance.setDeskew(true);
+        String expResult = "The (quick) [brown] {fox} jumps!\nOver the $43,456.78 <lazy> #90 dog";
+        String result = instance.doOCR(imageFile);
+        instance.setDeskew(false);
+        System.out.println(result);
+        assertEquals(expResult, result.substring(0, expResult.length()));
+    }
+
+    /**
+     * Test of doOCR method with the preprocessing stages of an image pipeline, of class Tesseract1.
+     *
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testDoOCR_SkewedImage_ImagePipeline() throws Exception {
+        System.out.println("doOCR on a skewed PNG image through an image pipeline");
+        String filename = String.format("%s/%s", this.testResourcesDataPath, "eurotext_deskew.png");
+        File imageFile = new File(filename);
+        instance.setImagePipeline(new ImagePipeline().grayscale().binarize(ImageHelper.BINARIZATION_OTSU)
+                .deskew(0.05));
+        String expResult = "The (quick) [brown] {fox} jumps!\nOver the $43,456.78 <lazy> #90 dog";
+        String result = instance.doOCR(imageFile);
+        instance.setImagePipeline(null);
+        System.out.println(result);
+        assertEquals(expResult, result.substring(0, expResult.length()));
+    }
+
     /**
      * Test of extending Tesseract1.
      * 
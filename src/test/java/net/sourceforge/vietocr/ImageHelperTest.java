@@ -0,0 +1,757 @@
+/**
+ * Copyright @ 2014 Quan Nguyen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.vietocr;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.Raster;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Test;
+
+import com.recognition.software.jdeskew.ImageDeskew;
+import com.recognition.software.jdeskew.ImageUtil;
+
+public class ImageHelperTest {
+
+    private final String testResourcesDataPath = "src/test/resources/test-data";
+
+    public ImageHelperTest() {
+    }
+
+    /**
+     * Test of getScaledInstance method, of class ImageHelper. Gray and binary images keep their type; a reduction by
+     * half averages each block of 2x2 pixels, and the result does not depend on the number of threads.
+     *
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testGetScaledInstance() throws Exception {
+        System.out.println("getScaledInstance");
+        BufferedImage source = ImageIO.read(new File(this.testResourcesDataPath, "eurotext.png"));
+
+        BufferedImage gray = convert(source, BufferedImage.TYPE_BYTE_GRAY);
+        int w = gray.getWidth() / 2;
+        int h = gray.getHeight() / 2;
+        BufferedImage result = ImageHelper.getScaledInstance(gray, w, h);
+        assertEquals(BufferedImage.TYPE_BYTE_GRAY, result.getType());
+        Raster src = gray.getRaster();
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int sum = src.getSample(2 * x, 2 * y, 0) + src.getSample(2 * x + 1, 2 * y, 0)
+                        + src.getSample(2 * x, 2 * y + 1, 0) + src.getSample(2 * x + 1, 2 * y + 1, 0);
+                assertEquals((sum + 2) / 4, result.getRaster().getSample(x, y, 0));
+            }
+        }
+
+        // black wins ties
+        BufferedImage binary = convert(source, BufferedImage.TYPE_BYTE_BINARY);
+        result = ImageHelper.getScaledInstance(binary, w, h);
+        assertEquals(BufferedImage.TYPE_BYTE_BINARY, result.getType());
+        src = binary.getRaster();
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int sum = src.getSample(2 * x, 2 * y, 0) + src.getSample(2 * x + 1, 2 * y, 0)
+                        + src.getSample(2 * x, 2 * y + 1, 0) + src.getSample(2 * x + 1, 2 * y + 1, 0);
+                assertEquals(sum > 2 ? 1 : 0, result.getRaster().getSample(x, y, 0));
+            }
+        }
+
+        // fractional reductions, in parallel and from sub-images
+        for (BufferedImage bi : new BufferedImage[] { gray, binary, gray.getSubimage(3, 5, 700, 500) }) {
+            int newW = bi.getWidth() * 2 / 3;
+            int newH = bi.getHeight() * 3 / 7;
+            BufferedImage expResult = ImageHelper.getScaledInstance(bi, newW, newH);
+            result = ImageHelper.getScaledInstance(bi, newW, newH, 3);
+            assertEquals(newW, result.getWidth());
+            assertEquals(newH, result.getHeight());
+            for (int y = 0; y < newH; y++) {
+                for (int x = 0; x < newW; x++) {
+                    assertEquals(expResult.getRGB(x, y), result.getRGB(x, y));
+                }
+            }
+        }
+
+        // other images are scaled into RGB images
+        BufferedImage rgb = convert(source, BufferedImage.TYPE_3BYTE_BGR);
+        result = ImageHelper.getScaledInstance(rgb, rgb.getWidth() / 5, rgb.getHeight() / 5);
+        assertEquals(BufferedImage.TYPE_INT_RGB, result.getType());
+        assertEquals(rgb.getWidth() / 5, result.getWidth());
+    }
+
+    /**
+     * Benchmark of getScaledInstance method reducing a 600 DPI Letter page to 300 DPI, of class ImageHelper, against
+     * the bicubic <code>Graphics2D</code> drawing into an RGB image.
+     */
+    @Test
+    public void testGetScaledInstance_Benchmark() {
+        System.out.println("getScaledInstance benchmark");
+        int[] imageTypes = { BufferedImage.TYPE_BYTE_BINARY, BufferedImage.TYPE_BYTE_GRAY };
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        for (int imageType : imageTypes) {
+            BufferedImage bi = new BufferedImage(5100, 6600, imageType);
+            Graphics2D g = bi.createGraphics();
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, bi.getWidth(), bi.getHeight());
+            g.setColor(Color.BLACK);
+            g.setFont(g.getFont().deriveFont(24f));
+            for (int y = 100; y < bi.getHeight() - 100; y += 100) {
+                g.drawString("The quick brown fox jumps over the lazy dog.", 200, y);
+            }
+            g.dispose();
+
+            int runs = 2;
+            long[] times = new long[3];
+
+            // the first round warms up the JIT compiler and is not counted
+            for (int i = 0; i <= runs; i++) {
+                long start = System.nanoTime();
+                BufferedImage tmp = new BufferedImage(2550, 3300, BufferedImage.TYPE_INT_RGB);
+                Graphics2D g2 = tmp.createGraphics();
+                g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+                g2.drawImage(bi, 0, 0, 2550, 3300, null);
+                g2.dispose();
+                long t1 = System.nanoTime();
+                ImageHelper.getScaledInstance(bi, 2550, 3300);
+                long t2 = System.nanoTime();
+                ImageHelper.getScaledInstance(bi, 2550, 3300, threads);
+                long t3 = System.nanoTime();
+                if (i > 0) {
+                    times[0] += t1 - start;
+                    times[1] += t2 - t1;
+                    times[2] += t3 - t2;
+                }
+            }
+
+            System.out.println(String.format("type %2d: Graphics2D %4d ms, getScaledInstance %3d ms (%.1fx), "
+                    + "%d threads %3d ms", imageType, times[0] / runs / 1000000, times[1] / runs / 1000000,
+                    (double) times[0] / times[1], threads, times[2] / runs / 1000000));
+        }
+    }
+
+    /**
+     * Test of invertImageColor method, of class ImageHelper. The color samples are inverted and alpha is kept, into a
+     * new image, a supplied image or in place.
+     *
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testInvertImageColor() throws Exception {
+        System.out.println("invertImageColor");
+        BufferedImage source = ImageIO.read(new File(this.testResourcesDataPath, "eurotext.png"));
+
+        int[] imageTypes = { BufferedImage.TYPE_BYTE_BINARY, BufferedImage.TYPE_BYTE_GRAY,
+                BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_INT_RGB,
+                BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_BGR };
+        for (int imageType : imageTypes) {
+            BufferedImage bi = convert(source, imageType);
+            if (bi.getColorModel().hasAlpha()) {
+                // partly transparent
+                for (int x = 0; x < bi.getWidth(); x++) {
+                    bi.setRGB(x, 5, (x << 24) | 0x204060);
+                }
+            }
+            BufferedImage result = ImageHelper.invertImageColor(bi);
+            assertEquals(imageType, result.getType());
+            assertInverted(bi, result);
+
+            BufferedImage dest = new BufferedImage(bi.getWidth(), bi.getHeight(), imageType);
+            assertTrue(dest == ImageHelper.invertImageColor(bi, dest));
+            assertInverted(bi, dest);
+
+            BufferedImage copy = new BufferedImage(bi.getColorModel(), bi.copyData(null), false, null);
+            assertTrue(copy == ImageHelper.invertImageColor(copy, copy));
+            assertInverted(bi, copy);
+        }
+    }
+
+    /**
+     * Test of convertImageToGrayscale and convertImageToBinary methods with a destination image, of class
+     * ImageHelper. A destination reused across images gives the same result as a new image.
+     *
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testConvertImage_Destination() throws Exception {
+        System.out.println("convertImageToGrayscale and convertImageToBinary with destination");
+        BufferedImage source = ImageIO.read(new File(this.testResourcesDataPath, "eurotext.png"));
+        BufferedImage gray = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        BufferedImage binary = new BufferedImage(source.getWidth(), source.getHeight(),
+                BufferedImage.TYPE_BYTE_BINARY);
+
+        for (int imageType : new int[] { BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_3BYTE_BGR }) {
+            BufferedImage bi = convert(source, imageType);
+            assertTrue(gray == ImageHelper.convertImageToGrayscale(bi, gray));
+            assertArrayEquals(getBytes(getData(ImageHelper.convertImageToGrayscale(bi))), getBytes(getData(gray)));
+            assertTrue(binary == ImageHelper.convertImageToBinary(bi, binary));
+            assertArrayEquals(getBytes(getData(ImageHelper.convertImageToBinary(bi))), getBytes(getData(binary)));
+        }
+
+        try {
+            ImageHelper.convertImageToGrayscale(source, binary);
+            fail("destination type not checked");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            ImageHelper.invertImageColor(source, ImageHelper.getSubImage(source, 0, 0, 10, 10));
+            fail("destination size not checked");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Benchmark of invertImageColor, convertImageToGrayscale and convertImageToBinary methods on a 300 DPI Letter
+     * page, of class ImageHelper. Reports the time and the bytes allocated per page when creating a new image and when
+     * reusing a destination image.
+     */
+    @Test
+    public void testConvertImage_AllocationBenchmark() {
+        System.out.println("invertImageColor, convertImageToGrayscale and convertImageToBinary allocation benchmark");
+        BufferedImage bi = new BufferedImage(2550, 3300, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = bi.createGraphics();
+        g.drawImage(createUnevenPage(false), 0, 0, bi.getWidth(), bi.getHeight(), null);
+        g.dispose();
+        BufferedImage gray = ImageHelper.convertImageToGrayscale(bi);
+        BufferedImage binary = ImageHelper.convertImageToBinary(bi);
+        BufferedImage inverted = ImageHelper.invertImageColor(bi);
+
+        int runs = 3;
+        String[] labels = { "invertImageColor", "invertImageColor in place", "convertImageToGrayscale",
+                "convertImageToGrayscale to destination", "convertImageToBinary",
+                "convertImageToBinary to destination" };
+        long[] times = new long[labels.length];
+        long[] allocated = new long[labels.length];
+
+        // the first round warms up the JIT compiler and is not counted
+        for (int i = 0; i <= runs; i++) {
+            for (int j = 0; j < labels.length; j++) {
+                long bytes = getAllocatedBytes();
+                long start = System.nanoTime();
+                switch (j) {
+                    case 0:
+                        ImageHelper.invertImageColor(bi);
+                        break;
+                    case 1:
+                        ImageHelper.invertImageColor(inverted, inverted);
+                        break;
+                    case 2:
+                        ImageHelper.convertImageToGrayscale(bi);
+                        break;
+                    case 3:
+                        ImageHelper.convertImageToGrayscale(bi, gray);
+                        break;
+                    case 4:
+                        ImageHelper.convertImageToBinary(bi);
+                        break;
+                    default:
+                        ImageHelper.convertImageToBinary(bi, binary);
+                        break;
+                }
+                long end = System.nanoTime();
+                if (i > 0) {
+                    times[j] += end - start;
+                    allocated[j] += getAllocatedBytes() - bytes;
+                }
+            }
+        }
+
+        for (int j = 0; j < labels.length; j++) {
+            System.out.println(String.format("%s: %d ms, %d KB allocated", labels[j], times[j] / runs / 1000000,
+                    allocated[j] / runs / 1024));
+        }
+        if (getAllocatedBytes() >= 0) {
+            // reusing the destination avoids the allocation of a page
+            long pageBytes = bi.getWidth() * bi.getHeight() / 8;
+            for (int j = 1; j < labels.length; j += 2) {
+                assertTrue(allocated[j] / runs < pageBytes / 10);
+            }
+        }
+    }
+
+    /**
+     * Test of convertImageToBinaryOtsu method, of class ImageHelper. The Otsu threshold falls between the text and
+     * background levels, and the result does not depend on the number of threads.
+     */
+    @Test
+    public void testConvertImageToBinaryOtsu() {
+        System.out.println("convertImageToBinaryOtsu");
+        BufferedImage bi = createUnevenPage(false);
+        int cutOff = ImageHelper.getOtsuThreshold(bi, 1);
+        System.out.println("threshold: " + cutOff);
+        assertTrue(cutOff > 40 && cutOff < 200);
+        assertEquals(cutOff, ImageHelper.getOtsuThreshold(bi, 3));
+        long[] histogram = new long[256];
+        for (byte luminance : ImageUtil.getLuminance(bi)) {
+            histogram[luminance & 0xff]++;
+        }
+        assertEquals(ImageHelper.getOtsuThreshold(histogram), cutOff);
+
+        BufferedImage result = ImageHelper.convertImageToBinaryOtsu(bi, 3);
+        assertEquals(BufferedImage.TYPE_BYTE_BINARY, result.getType());
+        for (int y = 0; y < bi.getHeight(); y++) {
+            for (int x = 0; x < bi.getWidth(); x++) {
+                assertEquals(ImageUtil.isBlack(bi, x, y, cutOff), result.getRaster().getSample(x, y, 0) == 0);
+            }
+        }
+    }
+
+    /**
+     * Test of convertImageToBinarySauvola method, of class ImageHelper. On a page lit from one side, the local
+     * thresholds recover the text where the global Otsu threshold fails.
+     */
+    @Test
+    public void testConvertImageToBinarySauvola() {
+        System.out.println("convertImageToBinarySauvola");
+        BufferedImage text = createUnevenPage(true);
+        BufferedImage bi = createUnevenPage(false);
+
+        BufferedImage expResult = ImageHelper.convertImageToBinarySauvola(bi, 31, 0.2, 1);
+        BufferedImage result = ImageHelper.convertImageToBinarySauvola(bi, 31, 0.2, 3);
+        BufferedImage otsu = ImageHelper.convertImageToBinaryOtsu(bi, 1);
+        int errors = 0;
+        int otsuErrors = 0;
+        for (int y = 0; y < bi.getHeight(); y++) {
+            for (int x = 0; x < bi.getWidth(); x++) {
+                int sample = result.getRaster().getSample(x, y, 0);
+                assertEquals(expResult.getRaster().getSample(x, y, 0), sample);
+                int truth = text.getRaster().getSample(x, y, 0);
+                if (sample != truth) {
+                    errors++;
+                }
+                if (otsu.getRaster().getSample(x, y, 0) != truth) {
+                    otsuErrors++;
+                }
+            }
+        }
+        System.out.println(String.format("wrong pixels: Sauvola %d, Otsu %d", errors, otsuErrors));
+        assertTrue(errors * 10 < otsuErrors);
+    }
+
+    /**
+     * Benchmark of convertImageToBinaryOtsu and convertImageToBinarySauvola methods on a 300 DPI Letter page, of class
+     * ImageHelper, against convertImageToBinary.
+     */
+    @Test
+    public void testConvertImageToBinary_Benchmark() {
+        System.out.println("convertImageToBinary benchmark");
+        BufferedImage bi = new BufferedImage(2550, 3300, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = bi.createGraphics();
+        g.drawImage(createUnevenPage(false), 0, 0, bi.getWidth(), bi.getHeight(), null);
+        g.dispose();
+        int threads = Runtime.getRuntime().availableProcessors();
+        double megapixels = bi.getWidth() * bi.getHeight() / 1e6;
+
+        int runs = 3;
+        long[] times = new long[5];
+
+        // the first round warms up the JIT compiler and is not counted
+        for (int i = 0; i <= runs; i++) {
+            long start = System.nanoTime();
+            ImageHelper.convertImageToBinary(bi);
+            long t1 = System.nanoTime();
+            ImageHelper.convertImageToBinaryOtsu(bi, 1);
+            long t2 = System.nanoTime();
+            ImageHelper.convertImageToBinarySauvola(bi, 31, 0.2, 1);
+            long t3 = System.nanoTime();
+            ImageHelper.convertImageToBinaryOtsu(bi, threads);
+            long t4 = System.nanoTime();
+            ImageHelper.convertImageToBinarySauvola(bi, 31, 0.2, threads);
+            long t5 = System.nanoTime();
+            if (i > 0) {
+                times[0] += t1 - start;
+                times[1] += t2 - t1;
+                times[2] += t3 - t2;
+                times[3] += t4 - t3;
+                times[4] += t5 - t4;
+            }
+        }
+
+        String[] labels = { "convertImageToBinary", "Otsu", "Sauvola", "Otsu, " + threads + " threads",
+                "Sauvola, " + threads + " threads" };
+        for (int i = 0; i < labels.length; i++) {
+            System.out.println(String.format("%s: %d ms, %.1f ms per megapixel", labels[i], times[i] / runs / 1000000,
+                    times[i] / runs / 1e6 / megapixels));
+        }
+    }
+
+    /**
+     * Test of rotateImageData method, of class ImageHelper. A skewed page is straightened, and the binary, gray and
+     * RGB pixel data of the same page are rotated alike.
+     *
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testRotateImageData() throws Exception {
+        System.out.println("rotateImageData");
+        BufferedImage source = ImageIO.read(new File(this.testResourcesDataPath, "eurotext.png"));
+        // a page with the text skewed by 3 degrees
+        BufferedImage binary = new BufferedImage(source.getWidth() + 203, source.getHeight() + 200,
+                BufferedImage.TYPE_BYTE_BINARY);
+        Graphics2D g = binary.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, binary.getWidth(), binary.getHeight());
+        g.rotate(Math.toRadians(3), binary.getWidth() / 2, binary.getHeight() / 2);
+        g.drawImage(source, 100, 100, null);
+        g.dispose();
+        BufferedImage gray = convert(binary, BufferedImage.TYPE_BYTE_GRAY);
+        BufferedImage rgb = convert(binary, BufferedImage.TYPE_3BYTE_BGR);
+        int width = binary.getWidth();
+        int height = binary.getHeight();
+
+        double angle = new ImageDeskew(gray).getSkewAngle();
+        ByteBuffer binaryData = getData(binary);
+        ByteBuffer grayData = getData(gray);
+        ByteBuffer rgbData = getData(rgb);
+
+        // no rotation leaves the data as is
+        ImageHelper.rotateImageData(grayData, width, height, 8, 0);
+        assertArrayEquals(((DataBufferByte) gray.getRaster().getDataBuffer()).getData(), getBytes(grayData));
+
+        ImageHelper.rotateImageData(binaryData, width, height, 1, -angle);
+        ImageHelper.rotateImageData(grayData, width, height, 8, -angle);
+        ImageHelper.rotateImageData(rgbData, width, height, 24, -angle);
+
+        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        grayData.duplicate().get(((DataBufferByte) result.getRaster().getDataBuffer()).getData());
+        double resultAngle = new ImageDeskew(result).getSkewAngle();
+        System.out.println(String.format("skew angle %.3f, after rotation %.3f", angle, resultAngle));
+        assertEquals(0, resultAngle, 0.3);
+
+        byte[] grayBytes = getBytes(grayData);
+        byte[] binaryBytes = getBytes(binaryData);
+        byte[] rgbBytes = getBytes(rgbData);
+        int stride = (width + 7) / 8;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int value = grayBytes[y * width + x] & 0xff;
+                int bit = (binaryBytes[y * stride + (x >> 3)] >> (7 - (x & 7))) & 1;
+                assertEquals(value == 0 ? 0 : 1, bit);
+                for (int i = 0; i < 3; i++) {
+                    assertEquals(value, rgbBytes[(y * width + x) * 3 + i] & 0xff);
+                }
+            }
+        }
+    }
+
+    /**
+     * Test of rotateImageDataLossless method, of class ImageHelper. Quarter turns of binary, gray and RGB pixel data
+     * must give the pixel data of the image rotated by rotateImage.
+     *
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testRotateImageDataLossless() throws Exception {
+        System.out.println("rotateImageDataLossless");
+        BufferedImage source = ImageIO.read(new File(this.testResourcesDataPath, "eurotext.png"));
+        int[] imageTypes = { BufferedImage.TYPE_BYTE_BINARY, BufferedImage.TYPE_BYTE_GRAY,
+                BufferedImage.TYPE_3BYTE_BGR };
+        int[] bpps = { 1, 8, 24 };
+
+        for (int i = 0; i < imageTypes.length; i++) {
+            BufferedImage bi = convert(source, imageTypes[i]).getSubimage(0, 0, 301, 203);
+            // a copy, whose data buffer holds the sub-image only
+            bi = ImageHelper.rotateImage(bi, 0);
+            ByteBuffer data = getData(bi);
+            for (int quadrants = -1; quadrants <= 4; quadrants++) {
+                ByteBuffer result = ImageHelper.rotateImageDataLossless(data, bi.getWidth(), bi.getHeight(),
+                        bpps[i], quadrants);
+                assertArrayEquals(getBytes(getData(ImageHelper.rotateImage(bi, quadrants * 90))), getBytes(result));
+            }
+        }
+    }
+
+    /**
+     * Test of rotateImage method, of class ImageHelper. Quarter turns must map every pixel exactly; other angles are
+     * compared with <code>Graphics2D</code> drawing with the same interpolation.
+     *
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testRotateImage() throws Exception {
+        System.out.println("rotateImage");
+        BufferedImage source = ImageIO.read(new File(this.testResourcesDataPath, "eurotext.png"));
+        int[] imageTypes = { BufferedImage.TYPE_BYTE_BINARY, BufferedImage.TYPE_BYTE_GRAY, BufferedImage.TYPE_INT_RGB,
+                BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR };
+
+        for (int imageType : imageTypes) {
+            BufferedImage bi = convert(source, imageType).getSubimage(0, 0, 301, 203);
+            int w = bi.getWidth();
+            int h = bi.getHeight();
+
+            BufferedImage result = ImageHelper.rotateImage(bi, 90);
+            assertEquals(imageType, result.getType());
+            assertEquals(h, result.getWidth());
+            assertEquals(w, result.getHeight());
+            for (int y = 0; y < w; y++) {
+                for (int x = 0; x < h; x++) {
+                    assertEquals(bi.getRGB(y, h - 1 - x), result.getRGB(x, y));
+                }
+            }
+
+            result = ImageHelper.rotateImage(bi, 180);
+            BufferedImage result2 = ImageHelper.rotateImage(bi, -90);
+            BufferedImage result3 = ImageHelper.rotateImage(bi, 270);
+            for (int y = 0; y < h; y++) {
+                for (int x = 0; x < w; x++) {
+                    assertEquals(bi.getRGB(w - 1 - x, h - 1 - y), result.getRGB(x, y));
+                    assertEquals(bi.getRGB(x, y), result2.getRGB(y, w - 1 - x));
+                    assertEquals(bi.getRGB(x, y), result3.getRGB(y, w - 1 - x));
+                }
+            }
+        }
+
+        // nearest-neighbor and bilinear resampling
+        Object[][] cases = { { BufferedImage.TYPE_BYTE_BINARY, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR },
+                { BufferedImage.TYPE_INT_RGB, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR },
+                { BufferedImage.TYPE_3BYTE_BGR, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR },
+                { BufferedImage.TYPE_BYTE_GRAY, RenderingHints.VALUE_INTERPOLATION_BILINEAR } };
+        for (Object[] c : cases) {
+            BufferedImage bi = convert(source, (Integer) c[0]);
+            for (double angle : new double[] { -3.7, 1.2, 4.9 }) {
+                BufferedImage expResult = rotateImageGraphics(bi, angle, c[1]);
+                BufferedImage result = ImageHelper.rotateImage(bi, angle);
+                assertEquals((int) (Integer) c[0], result.getType());
+                assertEquals(expResult.getWidth(), result.getWidth());
+                assertEquals(expResult.getHeight(), result.getHeight());
+
+                double difference = 0;
+                for (int y = 0; y < result.getHeight(); y++) {
+                    for (int x = 0; x < result.getWidth(); x++) {
+                        difference += Math.abs((expResult.getRGB(x, y) & 0xff) - (result.getRGB(x, y) & 0xff));
+                    }
+                }
+                difference /= result.getWidth() * result.getHeight();
+                System.out.println(String.format("type %2d, %4.1f degrees: mean difference %.2f", c[0], angle,
+                        difference));
+                assertTrue(difference < 1);
+            }
+        }
+    }
+
+    /**
+     * Test of getInkDensity method, of class ImageHelper. On a 300 DPI Letter page, a single short line of text must
+     * score well above a blank page with scattered noise, dust and scanner borders.
+     *
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testGetInkDensity() throws Exception {
+        System.out.println("getInkDensity");
+        BufferedImage source = ImageIO.read(new File(this.testResourcesDataPath, "eurotext.png"));
+
+        BufferedImage blank = new BufferedImage(2550, 3300, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = blank.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, blank.getWidth(), blank.getHeight());
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, blank.getWidth(), 40);
+        g.fillRect(blank.getWidth() - 50, 0, 50, blank.getHeight());
+        Random random = new Random(1);
+        for (int i = 0; i < 50; i++) {
+            g.fillRect(50 + random.nextInt(2400), 50 + random.nextInt(3200), 3, 3);
+        }
+        g.dispose();
+        // one pixel in a hundred
+        for (int i = 0; i < 84000; i++) {
+            blank.getRaster().setSample(random.nextInt(blank.getWidth()), random.nextInt(blank.getHeight()), 0, 0);
+        }
+
+        BufferedImage line = new BufferedImage(2550, 3300, BufferedImage.TYPE_BYTE_GRAY);
+        g = line.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, line.getWidth(), line.getHeight());
+        g.drawImage(source, 300, 1500, 1500, 1600, 0, 0, 1200, 100, null);
+        g.dispose();
+
+        long start = System.nanoTime();
+        double blankDensity = ImageHelper.getInkDensity(blank);
+        long t1 = System.nanoTime();
+        double lineDensity = ImageHelper.getInkDensity(line);
+        System.out.println(String.format("blank %.6f in %d ms, single line %.6f, eurotext %.6f", blankDensity,
+                (t1 - start) / 1000000, lineDensity, ImageHelper.getInkDensity(source)));
+        assertTrue(blankDensity < 0.00001);
+        assertTrue(lineDensity > 0.0005);
+        assertEquals(ImageHelper.getInkDensity(source), ImageHelper.getInkDensity(convert(source,
+                BufferedImage.TYPE_BYTE_BINARY)), 0.01);
+    }
+
+    /**
+     * Benchmark of rotateImage method on a 300 DPI Letter page, of class ImageHelper, against the bicubic
+     * <code>Graphics2D</code> rotation.
+     */
+    @Test
+    public void testRotateImage_Benchmark() {
+        System.out.println("rotateImage benchmark");
+        int[] imageTypes = { BufferedImage.TYPE_BYTE_BINARY, BufferedImage.TYPE_BYTE_GRAY, BufferedImage.TYPE_INT_RGB };
+
+        for (int imageType : imageTypes) {
+            BufferedImage bi = new BufferedImage(2550, 3300, imageType);
+            Graphics2D g = bi.createGraphics();
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, bi.getWidth(), bi.getHeight());
+            g.setColor(Color.BLACK);
+            for (int y = 100; y < bi.getHeight() - 100; y += 50) {
+                g.drawString("The quick brown fox jumps over the lazy dog.", 100, y);
+            }
+            g.dispose();
+
+            for (double angle : new double[] { 90, 180, 1.5 }) {
+                int runs = 3;
+                long expTime = 0;
+                long time = 0;
+
+                // the first round warms up the JIT compiler and is not counted
+                for (int i = 0; i <= runs; i++) {
+                    long start = System.nanoTime();
+                    rotateImageGraphics(bi, angle, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+                    long t1 = System.nanoTime();
+                    ImageHelper.rotateImage(bi, angle);
+                    long t2 = System.nanoTime();
+                    if (i > 0) {
+                        expTime += t1 - start;
+                        time += t2 - t1;
+                    }
+                }
+
+                System.out.println(String.format("type %2d, %5.1f degrees: Graphics2D %4d ms, "
+                        + "rotateImage %3d ms (%.1fx)", imageType, angle, expTime / runs / 1000000, time / runs
+                        / 1000000, (double) expTime / time));
+            }
+        }
+    }
+
+    private static ByteBuffer getData(BufferedImage bi) {
+        byte[] data = ((DataBufferByte) bi.getRaster().getDataBuffer()).getData();
+        ByteBuffer buf = ByteBuffer.allocateDirect(data.length);
+        buf.put(data);
+        buf.flip();
+        return buf;
+    }
+
+    private static byte[] getBytes(ByteBuffer buf) {
+        byte[] bytes = new byte[buf.remaining()];
+        buf.duplicate().get(bytes);
+        return bytes;
+    }
+
+    private static BufferedImage convert(BufferedImage source, int imageType) {
+        BufferedImage bi = new BufferedImage(source.getWidth(), source.getHeight(), imageType);
+        Graphics2D g = bi.createGraphics();
+        g.drawImage(source, 0, 0, null);
+        g.dispose();
+        return bi;
+    }
+
+    /**
+     * Rotates an image by drawing it with the given interpolation, as the original rotateImage method did.
+     */
+    private static BufferedImage rotateImageGraphics(BufferedImage image, double angle, Object interpolation) {
+        double theta = Math.toRadians(angle);
+        double sin = Math.abs(Math.sin(theta));
+        double cos = Math.abs(Math.cos(theta));
+        int w = image.getWidth();
+        int h = image.getHeight();
+        int newW = (int) Math.floor(w * cos + h * sin);
+        int newH = (int) Math.floor(h * cos + w * sin);
+
+        BufferedImage tmp = new BufferedImage(newW, newH, image.getType());
+        Graphics2D g2d = tmp.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
+        g2d.translate((newW - w) / 2, (newH - h) / 2);
+        g2d.rotate(theta, w / 2, h / 2);
+        g2d.drawImage(image, 0, 0, null);
+        g2d.dispose();
+        return tmp;
+    }
+
+    /**
+     * Asserts that the color samples of an image are the inverse of those of the original, and the alpha samples
+     * equal.
+     */
+    private static void assertInverted(BufferedImage expected, BufferedImage actual) {
+        Raster src = expected.getRaster();
+        Raster dst = actual.getRaster();
+        int colorBands = expected.getColorModel().getNumColorComponents();
+        int max = (1 << expected.getSampleModel().getSampleSize(0)) - 1;
+        for (int y = 0; y < src.getHeight(); y++) {
+            for (int x = 0; x < src.getWidth(); x++) {
+                for (int b = 0; b < src.getNumBands(); b++) {
+                    int sample = src.getSample(x, y, b);
+                    assertEquals(b < colorBands ? max - sample : sample, dst.getSample(x, y, b));
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the bytes allocated by the current thread, or -1 if not supported.
+     */
+    private static long getAllocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /**
+     * Creates a page of text lit from the left side, with the text five times darker than the background, or its
+     * binary text mask.
+     */
+    private static BufferedImage createUnevenPage(boolean mask) {
+        BufferedImage text = new BufferedImage(1275, 825, BufferedImage.TYPE_BYTE_BINARY);
+        Graphics2D g = text.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, text.getWidth(), text.getHeight());
+        g.setColor(Color.BLACK);
+        g.setFont(new Font(Font.SERIF, Font.PLAIN, 36));
+        for (int y = 100; y < text.getHeight() - 50; y += 50) {
+            g.drawString("The quick brown fox jumps over the lazy dog.", 50, y);
+        }
+        g.dispose();
+        if (mask) {
+            return text;
+        }
+
+        BufferedImage bi = new BufferedImage(text.getWidth(), text.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        for (int y = 0; y < bi.getHeight(); y++) {
+            for (int x = 0; x < bi.getWidth(); x++) {
+                int background = 40 + 215 * x / bi.getWidth();
+                int value = text.getRaster().getSample(x, y, 0) == 0 ? background / 5 : background;
+                bi.getRaster().setSample(x, y, 0, value);
+            }
+        }
+        return bi;
+    }
+}
@@ -0,0 +1,280 @@
+/**
+ * Copyright @ 2014 Quan Nguyen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.vietocr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ImageIOHelperTest {
+
+    private File[] inputImages;
+
+    public ImageIOHelperTest() {
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        inputImages = new File[] { createImage(BufferedImage.TYPE_BYTE_BINARY),
+                createImage(BufferedImage.TYPE_BYTE_GRAY), createImage(BufferedImage.TYPE_BYTE_BINARY) };
+    }
+
+    @After
+    public void tearDown() {
+        for (File inputImage : inputImages) {
+            inputImage.delete();
+        }
+    }
+
+    /**
+     * Test of mergeTiff method, of class ImageIOHelper.
+     *
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testMergeTiff() throws Exception {
+        System.out.println("mergeTiff");
+        File uncompressed = File.createTempFile("merged", ".tif");
+        File compressed = File.createTempFile("merged", ".tif");
+
+        try {
+            ImageIOHelper.mergeTiff(inputImages, uncompressed);
+            ImageIOHelper.mergeTiff(inputImages, compressed, ImageIOHelper.TIFF_COMPRESSION_DEFLATE);
+            System.out.println(String.format("uncompressed: %d bytes, compressed: %d bytes", uncompressed.length(),
+                    compressed.length()));
+            assertTrue(compressed.length() * 4 < uncompressed.length());
+
+            List<IIOImage> expected = ImageIOHelper.getIIOImageList(uncompressed);
+            List<IIOImage> result = ImageIOHelper.getIIOImageList(compressed);
+            assertEquals(inputImages.length, result.size());
+
+            for (int i = 0; i < inputImages.length; i++) {
+                assertImageEquals(ImageIO.read(inputImages[i]), (BufferedImage) expected.get(i).getRenderedImage());
+                assertImageEquals(ImageIO.read(inputImages[i]), (BufferedImage) result.get(i).getRenderedImage());
+            }
+        } finally {
+            uncompressed.delete();
+            compressed.delete();
+        }
+    }
+
+    /**
+     * Test of mergeTiff method on a PDF input, of class ImageIOHelper.
+     *
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testMergeTiff_Pdf() throws Exception {
+        System.out.println("mergeTiff with a PDF input");
+        int[] shades = { 0x20, 0x80, 0xE0 };
+        File pdfFile = createScannedPdf(shades);
+        File merged = File.createTempFile("merged", ".tif");
+
+        try {
+            ImageIOHelper.mergeTiff(new File[] { inputImages[0], pdfFile }, merged,
+                    ImageIOHelper.TIFF_COMPRESSION_DEFLATE);
+            List<IIOImage> result = ImageIOHelper.getIIOImageList(merged);
+            assertEquals(1 + shades.length, result.size());
+            assertImageEquals(ImageIO.read(inputImages[0]), (BufferedImage) result.get(0).getRenderedImage());
+
+            // the pages in document order
+            for (int i = 0; i < shades.length; i++) {
+                BufferedImage page = (BufferedImage) result.get(i + 1).getRenderedImage();
+                assertEquals(600, page.getWidth());
+                assertEquals(shades[i], page.getRaster().getSample(10, 10, 0));
+            }
+        } finally {
+            pdfFile.delete();
+            merged.delete();
+        }
+    }
+
+    /**
+     * Test of mergeTiff method on an input without images, of class ImageIOHelper. No empty TIFF file is left.
+     *
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testMergeTiff_NoImage() throws Exception {
+        System.out.println("mergeTiff with a PDF input without pages");
+        File pdfFile = createScannedPdf(new int[0]);
+        File merged = File.createTempFile("merged", ".tif");
+
+        try {
+            ImageIOHelper.mergeTiff(new File[] { pdfFile }, merged);
+            assertFalse(merged.exists());
+        } finally {
+            pdfFile.delete();
+            merged.delete();
+        }
+    }
+
+    /**
+     * Test of createTiffFiles method, of class ImageIOHelper.
+     *
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testCreateTiffFiles() throws Exception {
+        System.out.println("createTiffFiles");
+        File merged = File.createTempFile("merged", ".tif");
+        List<File> tiffFiles = null;
+
+        try {
+            ImageIOHelper.mergeTiff(inputImages, merged, ImageIOHelper.TIFF_COMPRESSION_LZW);
+            tiffFiles = ImageIOHelper.createTiffFiles(merged, -1, ImageIOHelper.TIFF_COMPRESSION_LZW);
+            assertEquals(inputImages.length, tiffFiles.size());
+
+            for (int i = 0; i < inputImages.length; i++) {
+                assertImageEquals(ImageIO.read(inputImages[i]), ImageIO.read(tiffFiles.get(i)));
+            }
+        } finally {
+            merged.delete();
+            if (tiffFiles != null) {
+                for (File tiffFile : tiffFiles) {
+                    tiffFile.delete();
+                }
+            }
+        }
+    }
+
+    private static void assertImageEquals(BufferedImage expected, BufferedImage actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y));
+            }
+        }
+    }
+
+    /**
+     * Creates a PNG image of a page of text.
+     */
+    private static File createImage(int imageType) throws Exception {
+        BufferedImage bi = new BufferedImage(1275, 1650, imageType);
+        Graphics2D g = bi.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, bi.getWidth(), bi.getHeight());
+        g.setColor(Color.BLACK);
+        g.setFont(new Font(Font.SERIF, Font.PLAIN, 36));
+        for (int y = 100; y < bi.getHeight() - 100; y += 50) {
+            g.drawString("The quick brown fox jumps over the lazy dog.", 100, y);
+        }
+        g.dispose();
+
+        File imageFile = File.createTempFile("page", ".png");
+        ImageIO.write(bi, "png", imageFile);
+        return imageFile;
+    }
+
+    /**
+     * Builds a PDF document of Flate-encoded gray pages, one page per shade.
+     */
+    private static File createScannedPdf(int[] shades) throws IOException {
+        List<byte[]> objects = new ArrayList<byte[]>();
+        StringBuilder kids = new StringBuilder();
+        for (int i = 0; i < shades.length; i++) {
+            kids.append(3 + 3 * i).append(" 0 R ");
+        }
+        objects.add(ascii("<< /Type /Catalog /Pages 2 0 R >>"));
+        objects.add(ascii("<< /Type /Pages /Kids [" + kids.toString().trim() + "] /Count " + shades.length
+                + " /MediaBox [0 0 144 72] >>"));
+
+        for (int i = 0; i < shades.length; i++) {
+            byte[] samples = new byte[600 * 300];
+            Arrays.fill(samples, (byte) shades[i]);
+            Deflater deflater = new Deflater();
+            deflater.setInput(samples);
+            deflater.finish();
+            ByteArrayOutputStream flate = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                flate.write(buffer, 0, deflater.deflate(buffer));
+            }
+            deflater.end();
+
+            int page = 3 + 3 * i;
+            String content = "q 144 0 0 72 0 0 cm /Im0 Do Q";
+            objects.add(ascii("<< /Type /Page /Parent 2 0 R /Contents " + (page + 1) + " 0 R"
+                    + " /Resources << /XObject << /Im0 " + (page + 2) + " 0 R >> >> >>"));
+            objects.add(stream("<< /Length " + content.length() + " >>", ascii(content)));
+            objects.add(stream("<< /Type /XObject /Subtype /Image /Width 600 /Height 300 /ColorSpace /DeviceGray"
+                    + " /BitsPerComponent 8 /Filter /FlateDecode /Length " + flate.size() + " >>",
+                    flate.toByteArray()));
+        }
+
+        ByteArrayOutputStream pdf = new ByteArrayOutputStream();
+        pdf.write(ascii("%PDF-1.4\n"));
+        int[] offsets = new int[objects.size()];
+        for (int i = 0; i < objects.size(); i++) {
+            offsets[i] = pdf.size();
+            pdf.write(ascii((i + 1) + " 0 obj\n"));
+            pdf.write(objects.get(i));
+            pdf.write(ascii("\nendobj\n"));
+        }
+
+        int xref = pdf.size();
+        StringBuilder sb = new StringBuilder("xref\n0 " + (objects.size() + 1) + "\n0000000000 65535 f \n");
+        for (int offset : offsets) {
+            sb.append(String.format("%010d 00000 n \n", offset));
+        }
+        sb.append("trailer\n<< /Size ").append(objects.size() + 1).append(" /Root 1 0 R >>\n");
+        sb.append("startxref\n").append(xref).append("\n%%EOF\n");
+        pdf.write(ascii(sb.toString()));
+
+        File file = File.createTempFile("scanned", ".pdf");
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            pdf.writeTo(out);
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    private static byte[] stream(String dict, byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(ascii(dict + "\nstream\n"));
+        out.write(data);
+        out.write(ascii("\nendstream"));
+        return out.toByteArray();
+    }
+
+    private static byte[] ascii(String s) throws IOException {
+        return s.getBytes("US-ASCII");
+    }
+}
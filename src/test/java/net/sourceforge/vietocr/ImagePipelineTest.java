@@ -0,0 +1,307 @@
+/**
+ * Copyright @ 2014 Quan Nguyen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.vietocr;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Test;
+
+import com.recognition.software.jdeskew.ImageDeskew;
+import com.recognition.software.jdeskew.ImageUtil;
+
+public class ImagePipelineTest {
+
+    private final String testResourcesDataPath = "src/test/resources/test-data";
+
+    public ImagePipelineTest() {
+    }
+
+    /**
+     * Test of apply method with pointwise stages, of class ImagePipeline. A fused crop, inversion and threshold give
+     * the pixels of the luminance of the original image, and the result does not depend on the number of threads.
+     *
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testApply() throws Exception {
+        System.out.println("apply");
+        BufferedImage source = ImageIO.read(new File(this.testResourcesDataPath, "eurotext.png"));
+        Rectangle rect = new Rectangle(37, 21, source.getWidth() - 100, source.getHeight() - 50);
+
+        int[] imageTypes = { BufferedImage.TYPE_BYTE_BINARY, BufferedImage.TYPE_BYTE_GRAY,
+                BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_INT_RGB };
+        for (int imageType : imageTypes) {
+            BufferedImage bi = convert(source, imageType);
+            BufferedImage sub = bi.getSubimage(rect.x, rect.y, rect.width, rect.height);
+            byte[] luminance = ImageUtil.getLuminance(sub);
+
+            BufferedImage result = new ImagePipeline().setThreads(1).crop(rect).grayscale().invert().apply(bi);
+            assertEquals(BufferedImage.TYPE_BYTE_GRAY, result.getType());
+            byte[] data = ((DataBufferByte) result.getRaster().getDataBuffer()).getData();
+            for (int i = 0; i < luminance.length; i++) {
+                assertEquals(255 - (luminance[i] & 0xff), data[i] & 0xff);
+            }
+
+            ImagePipeline pipeline = new ImagePipeline().grayscale().invert().crop(new Rectangle(rect.width,
+                    rect.height)).threshold(100);
+            result = pipeline.setThreads(3).apply(sub);
+            assertEquals(BufferedImage.TYPE_BYTE_BINARY, result.getType());
+            for (int y = 0; y < sub.getHeight(); y++) {
+                for (int x = 0; x < sub.getWidth(); x++) {
+                    boolean black = 255 - (luminance[y * sub.getWidth() + x] & 0xff) < 100;
+                    assertEquals(black, result.getRaster().getSample(x, y, 0) == 0);
+                }
+            }
+            assertArrayEquals(getBytes(result), getBytes(pipeline.setThreads(1).apply(sub)));
+        }
+
+        // colors inverted before the conversion to gray
+        BufferedImage bi = convert(source, BufferedImage.TYPE_INT_RGB);
+        bi.setRGB(5, 5, 0x102030);
+        BufferedImage result = new ImagePipeline().invert().grayscale().apply(bi);
+        assertArrayEquals(ImageUtil.getLuminance(ImageHelper.invertImageColor(bi)), getBytes(result));
+        assertEquals(0xefdfcf, new ImagePipeline().invert().apply(bi).getRGB(5, 5) & 0xffffff);
+    }
+
+    /**
+     * Test of apply method with stages needing the whole image, of class ImagePipeline. The results are those of the
+     * corresponding methods of ImageHelper.
+     *
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testApply_WholeImage() throws Exception {
+        System.out.println("apply with whole-image stages");
+        BufferedImage source = ImageIO.read(new File(this.testResourcesDataPath, "eurotext.png"));
+        BufferedImage bi = convert(source, BufferedImage.TYPE_INT_RGB);
+        BufferedImage gray = new ImagePipeline().grayscale().apply(bi);
+        assertArrayEquals(ImageUtil.getLuminance(bi), getBytes(gray));
+
+        BufferedImage result = new ImagePipeline().grayscale().binarize(ImageHelper.BINARIZATION_OTSU).apply(bi);
+        assertArrayEquals(getBytes(ImageHelper.convertImageToBinaryOtsu(gray, 1)), getBytes(result));
+
+        result = new ImagePipeline().grayscale().binarize(ImageHelper.BINARIZATION_SAUVOLA).apply(bi);
+        assertArrayEquals(getBytes(ImageHelper.convertImageToBinarySauvola(gray, 31, 0.2, 1)), getBytes(result));
+
+        result = new ImagePipeline().grayscale().scale(gray.getWidth() / 3, gray.getHeight() / 3).apply(bi);
+        BufferedImage expResult = ImageHelper.getScaledInstance(gray, gray.getWidth() / 3, gray.getHeight() / 3);
+        assertArrayEquals(getBytes(expResult), getBytes(result));
+
+        // a page skewed by 3 degrees
+        BufferedImage skewed = createSkewedPage(3);
+        double angle = new ImageDeskew(skewed).getSkewAngle();
+        result = new ImagePipeline().deskew(0.05).threshold(128).apply(skewed);
+        double resultAngle = new ImageDeskew(result).getSkewAngle();
+        System.out.println(String.format("skew angle: %.2f, deskewed: %.2f", angle, resultAngle));
+        assertTrue(Math.abs(angle) > 2.5);
+        assertTrue(Math.abs(resultAngle) < 0.5);
+        // the input image is left untouched
+        assertEquals(angle, new ImageDeskew(skewed).getSkewAngle(), 0);
+    }
+
+    /**
+     * Test of applyToBuffer method, of class ImagePipeline. The buffer holds the pixel data of the image the pipeline
+     * applies, in the layout of <code>TessBaseAPISetImage</code>.
+     *
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testApplyToBuffer() throws Exception {
+        System.out.println("applyToBuffer");
+        BufferedImage source = ImageIO.read(new File(this.testResourcesDataPath, "eurotext.png"));
+        BufferedImage bi = convert(source, BufferedImage.TYPE_INT_RGB);
+        Rectangle rect = new Rectangle(3, 5, 333, 222);
+
+        ImagePipeline[] pipelines = { new ImagePipeline().crop(rect).grayscale(),
+                new ImagePipeline().crop(rect).binarize(ImageHelper.BINARIZATION_OTSU),
+                new ImagePipeline().binarize(ImageHelper.BINARIZATION_SAUVOLA).crop(rect) };
+        int[] bpps = { 8, 1, 1 };
+        for (int i = 0; i < pipelines.length; i++) {
+            ImagePipeline.ImageData data = pipelines[i].applyToBuffer(bi);
+            assertTrue(data.getBuffer().isDirect());
+            assertEquals(rect.width, data.getWidth());
+            assertEquals(rect.height, data.getHeight());
+            assertEquals(bpps[i], data.getBitsPerPixel());
+            assertPixelsEqual(pipelines[i].apply(bi), toImage(data));
+        }
+
+        // 24-bit RGB
+        ImagePipeline.ImageData data = new ImagePipeline().crop(rect).applyToBuffer(bi);
+        assertEquals(24, data.getBitsPerPixel());
+        byte[] rgb = getBytes(data.getBuffer());
+        for (int y = 0; y < rect.height; y++) {
+            for (int x = 0; x < rect.width; x++) {
+                int i = (y * rect.width + x) * 3;
+                int pixel = ((rgb[i] & 0xff) << 16) | ((rgb[i + 1] & 0xff) << 8) | (rgb[i + 2] & 0xff);
+                assertEquals(bi.getRGB(rect.x + x, rect.y + y) & 0xffffff, pixel);
+            }
+        }
+
+        // a final skew correction rotates the buffer as the image
+        BufferedImage skewed = createSkewedPage(3);
+        ImagePipeline pipeline = new ImagePipeline().binarize(ImageHelper.BINARIZATION_OTSU).deskew(0.05);
+        assertArrayEquals(getBytes(pipeline.apply(skewed)), getBytes(pipeline.applyToBuffer(skewed).getBuffer()));
+    }
+
+    /**
+     * Benchmark of applyToBuffer method on a 300 DPI Letter page, of class ImagePipeline, against the separate calls
+     * to ImageHelper and ImageIOHelper it replaces. Reports the time and the bytes allocated per page.
+     */
+    @Test
+    public void testApplyToBuffer_Benchmark() {
+        System.out.println("applyToBuffer benchmark");
+        BufferedImage bi = new BufferedImage(2550, 3300, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = bi.createGraphics();
+        g.drawImage(createSkewedPage(0), 0, 0, bi.getWidth(), bi.getHeight(), null);
+        g.dispose();
+        Rectangle rect = new Rectangle(100, 100, 2350, 3100);
+        ImagePipeline pipeline = new ImagePipeline().setThreads(1).crop(rect).grayscale().invert()
+                .binarize(ImageHelper.BINARIZATION_OTSU);
+
+        int runs = 3;
+        long[] times = new long[2];
+        long[] allocated = new long[2];
+
+        // the first round warms up the JIT compiler and is not counted
+        for (int i = 0; i <= runs; i++) {
+            long bytes = getAllocatedBytes();
+            long start = System.nanoTime();
+            BufferedImage tmp = ImageHelper.getSubImage(bi, rect.x, rect.y, rect.width, rect.height);
+            tmp = ImageHelper.convertImageToGrayscale(tmp);
+            tmp = ImageHelper.invertImageColor(tmp);
+            tmp = ImageHelper.convertImageToBinaryOtsu(tmp, 1);
+            ImageIOHelper.convertImageData(tmp);
+            long t1 = System.nanoTime();
+            long bytes1 = getAllocatedBytes();
+            pipeline.applyToBuffer(bi);
+            long t2 = System.nanoTime();
+            if (i > 0) {
+                times[0] += t1 - start;
+                times[1] += t2 - t1;
+                allocated[0] += bytes1 - bytes;
+                allocated[1] += getAllocatedBytes() - bytes1;
+            }
+        }
+
+        System.out.println(String.format("separate calls: %d ms, %d KB allocated; pipeline: %d ms, %d KB allocated",
+                times[0] / runs / 1000000, allocated[0] / runs / 1024, times[1] / runs / 1000000, allocated[1] / runs
+                        / 1024));
+    }
+
+    /**
+     * Test of toString method, of class ImagePipeline. Pipelines built alike have the same description, which changes
+     * with any stage parameter.
+     */
+    @Test
+    public void testToString() {
+        System.out.println("toString");
+        ImagePipeline pipeline = new ImagePipeline().setThreads(2).crop(new Rectangle(10, 20, 300, 400)).grayscale()
+                .binarize(ImageHelper.BINARIZATION_OTSU).deskew(0.05);
+        String expResult = new ImagePipeline().setThreads(2).crop(new Rectangle(10, 20, 300, 400)).grayscale()
+                .binarize(ImageHelper.BINARIZATION_OTSU).deskew(0.05).toString();
+        System.out.println(pipeline);
+        assertEquals(expResult, pipeline.toString());
+        assertFalse(expResult.equals(new ImagePipeline().setThreads(2).crop(new Rectangle(10, 20, 300, 401))
+                .grayscale().binarize(ImageHelper.BINARIZATION_OTSU).deskew(0.05).toString()));
+        assertFalse(expResult.equals(new ImagePipeline().setThreads(2).crop(new Rectangle(10, 20, 300, 400))
+                .grayscale().binarize(ImageHelper.BINARIZATION_SAUVOLA).deskew(0.05).toString()));
+        assertFalse(expResult.equals(pipeline.threshold(128).toString()));
+    }
+
+    private static BufferedImage convert(BufferedImage source, int imageType) {
+        BufferedImage bi = new BufferedImage(source.getWidth(), source.getHeight(), imageType);
+        Graphics2D g = bi.createGraphics();
+        g.drawImage(source, 0, 0, null);
+        g.dispose();
+        return bi;
+    }
+
+    private static byte[] getBytes(BufferedImage bi) {
+        return ((DataBufferByte) bi.getRaster().getDataBuffer()).getData();
+    }
+
+    /**
+     * Creates a gray or binary image of the pixel data.
+     */
+    private static BufferedImage toImage(ImagePipeline.ImageData data) {
+        BufferedImage bi = new BufferedImage(data.getWidth(), data.getHeight(), data.getBitsPerPixel() == 1
+                ? BufferedImage.TYPE_BYTE_BINARY : BufferedImage.TYPE_BYTE_GRAY);
+        byte[] bytes = getBytes(data.getBuffer());
+        System.arraycopy(bytes, 0, getBytes(bi), 0, bytes.length);
+        return bi;
+    }
+
+    private static void assertPixelsEqual(BufferedImage expected, BufferedImage actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(expected.getRaster().getSample(x, y, 0), actual.getRaster().getSample(x, y, 0));
+            }
+        }
+    }
+
+    private static byte[] getBytes(ByteBuffer buf) {
+        byte[] bytes = new byte[buf.remaining()];
+        buf.duplicate().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Gets the bytes allocated by the current thread, or -1 if not supported.
+     */
+    private static long getAllocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /**
+     * Creates a gray page of text rotated clockwise by the given angle.
+     */
+    private static BufferedImage createSkewedPage(double angle) {
+        BufferedImage bi = new BufferedImage(1275, 1650, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = bi.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, bi.getWidth(), bi.getHeight());
+        g.rotate(Math.toRadians(angle), bi.getWidth() / 2, bi.getHeight() / 2);
+        g.setColor(Color.BLACK);
+        g.setFont(new Font(Font.SERIF, Font.PLAIN, 36));
+        for (int y = 200; y < bi.getHeight() - 200; y += 50) {
+            g.drawString("The quick brown fox jumps over the lazy dog.", 200, y);
+        }
+        g.dispose();
+        return bi;
+    }
+}
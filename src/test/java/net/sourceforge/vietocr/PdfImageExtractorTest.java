@@ -0,0 +1,289 @@
+/**
+ * Copyright @ 2014 Quan Nguyen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.vietocr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PdfImageExtractorTest {
+
+    private final String testResourcesDataPath = "src/test/resources/test-data";
+    private File         pdfFile;
+
+    public PdfImageExtractorTest() {
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        pdfFile = createScannedPdf();
+    }
+
+    @After
+    public void tearDown() {
+        pdfFile.delete();
+    }
+
+    /**
+     * Test of getPageImage method, of class PdfImageExtractor.
+     * 
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testGetPageImage() throws Exception {
+        System.out.println("getPageImage");
+        PdfImageExtractor instance = new PdfImageExtractor(pdfFile);
+        assertEquals(4, instance.getPageCount());
+        assertEquals(792, instance.getPageSize(0)[1], 0.001);
+
+        // JPEG image at 100 dpi
+        IIOImage oimage = instance.getPageImage(0);
+        assertNotNull(oimage);
+        assertEquals(850, oimage.getRenderedImage().getWidth());
+        assertEquals(100, ImageIOHelper.getResolution(oimage));
+
+        // Flate-encoded gray image at 300 dpi
+        oimage = instance.getPageImage(1);
+        assertNotNull(oimage);
+        assertEquals(BufferedImage.TYPE_BYTE_GRAY, ((BufferedImage) oimage.getRenderedImage()).getType());
+        assertEquals(300, ImageIOHelper.getResolution(oimage));
+        assertEquals(0x80, ((BufferedImage) oimage.getRenderedImage()).getRaster().getSample(10, 10, 0));
+
+        // visible text over the image needs rendering
+        assertNull(instance.getPageImage(2));
+
+        // invisible OCR text does not
+        assertNotNull(instance.getPageImage(3));
+    }
+
+    /**
+     * Test of getPageImage method on a PDF with cross-reference and object streams, of class PdfImageExtractor.
+     * 
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testGetPageImage_Jbig2() throws Exception {
+        System.out.println("getPageImage on a JBIG2-encoded page");
+        PdfImageExtractor instance = new PdfImageExtractor(new File(testResourcesDataPath, "eurotext.pdf"));
+        assertEquals(1, instance.getPageCount());
+        // JBIG2 is not decoded; the page is left to be rendered
+        assertNull(instance.getPageImage(0));
+    }
+
+    /**
+     * Test of reading deeply nested objects, of class PdfImageExtractor.
+     * 
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testGetPageImage_Nested() throws Exception {
+        System.out.println("getPageImage with deeply nested objects");
+        StringBuilder nested = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            nested.append("[<< /A ");
+        }
+
+        // the recursion ends with a runtime exception rather than a stack overflow
+        PdfImageExtractor.Lexer lexer = new PdfImageExtractor.Lexer(ByteBuffer.wrap(ascii(nested.toString())));
+        try {
+            lexer.next();
+            fail("Expected an exception");
+        } catch (IllegalStateException ise) {
+            assertTrue(ise.getMessage().contains("nested"));
+        }
+
+        // which the extractor reports as a structure it does not understand
+        List<byte[]> objects = new ArrayList<byte[]>();
+        objects.add(ascii("<< /Type /Catalog /Pages 2 0 R /Extra " + nested + " >>"));
+        objects.add(ascii("<< /Type /Pages /Kids [] /Count 0 >>"));
+        File nestedPdf = writePdf(objects);
+        try {
+            new PdfImageExtractor(nestedPdf);
+            fail("Expected an IOException");
+        } catch (IOException ioe) {
+            assertTrue(ioe.getMessage().contains("nested"));
+        } finally {
+            nestedPdf.delete();
+        }
+    }
+
+    /**
+     * Test of getPageImage method on image data that inflates beyond the image dimensions, of class
+     * PdfImageExtractor.
+     * 
+     * @throws Exception while processing image.
+     */
+    @Test
+    public void testGetPageImage_Inflated() throws Exception {
+        System.out.println("getPageImage with oversized image data");
+        File inflatedPdf = createInflatedPdf();
+        try {
+            PdfImageExtractor instance = new PdfImageExtractor(inflatedPdf);
+            assertEquals(1, instance.getPageCount());
+            // decoding stops at the size of the image; the page is left to be rendered
+            assertNull(instance.getPageImage(0));
+        } finally {
+            inflatedPdf.delete();
+        }
+    }
+
+    /**
+     * Builds a four-page PDF document of scanned-like pages.
+     */
+    private File createScannedPdf() throws IOException {
+        BufferedImage gray = new BufferedImage(850, 1100, BufferedImage.TYPE_BYTE_GRAY);
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        ImageIO.write(gray, "jpeg", jpeg);
+
+        byte[] samples = new byte[600 * 300];
+        java.util.Arrays.fill(samples, (byte) 0x80);
+        Deflater deflater = new Deflater();
+        deflater.setInput(samples);
+        deflater.finish();
+        byte[] buffer = new byte[samples.length];
+        int flateLength = deflater.deflate(buffer);
+        byte[] flate = new byte[flateLength];
+        System.arraycopy(buffer, 0, flate, 0, flateLength);
+
+        String jpegDict = "<< /Type /XObject /Subtype /Image /Width 850 /Height 1100 /ColorSpace /DeviceGray"
+                + " /BitsPerComponent 8 /Filter /DCTDecode /Length " + jpeg.size() + " >>";
+        String flateDict = "<< /Type /XObject /Subtype /Image /Width 600 /Height 300 /ColorSpace /DeviceGray"
+                + " /BitsPerComponent 8 /Filter /FlateDecode /Length " + flate.length + " >>";
+        String letter = "q 612 0 0 792 0 0 cm /Im0 Do Q";
+
+        List<byte[]> objects = new ArrayList<byte[]>();
+        objects.add(ascii("<< /Type /Catalog /Pages 2 0 R >>"));
+        objects.add(ascii("<< /Type /Pages /Kids [3 0 R 4 0 R 5 0 R 6 0 R] /Count 4"
+                + " /MediaBox [0 0 612 792] /Resources << /XObject << /Im0 7 0 R >> >> >>"));
+        objects.add(ascii("<< /Type /Page /Parent 2 0 R /Contents 9 0 R >>"));
+        objects.add(ascii("<< /Type /Page /Parent 2 0 R /MediaBox [0 0 144 72] /Contents 10 0 R"
+                + " /Resources << /XObject << /Im0 8 0 R >> >> >>"));
+        objects.add(ascii("<< /Type /Page /Parent 2 0 R /Contents 11 0 R >>"));
+        objects.add(ascii("<< /Type /Page /Parent 2 0 R /Contents 12 0 R >>"));
+        objects.add(stream(jpegDict, jpeg.toByteArray()));
+        objects.add(stream(flateDict, flate));
+        objects.add(contentStream(letter));
+        objects.add(contentStream("q 144 0 0 72 0 0 cm /Im0 Do Q"));
+        objects.add(contentStream(letter + " BT /F1 12 Tf 72 72 Td (Hello) Tj ET"));
+        objects.add(contentStream(letter + " BT 3 Tr /F1 12 Tf 72 72 Td (Hello) Tj ET"));
+        return writePdf(objects);
+    }
+
+    /**
+     * Builds a one-page PDF document of a Flate-encoded gray image whose data decodes to more than its dimensions
+     * call for.
+     */
+    private File createInflatedPdf() throws IOException {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        deflater.setInput(new byte[1 << 20]);
+        ByteArrayOutputStream flate = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        // 64 MB of zeros for a 600 x 300 image
+        for (int i = 0; i < 64; i++) {
+            while (!deflater.needsInput()) {
+                flate.write(buffer, 0, deflater.deflate(buffer));
+            }
+            if (i < 63) {
+                deflater.setInput(new byte[1 << 20]);
+            }
+        }
+        deflater.finish();
+        while (!deflater.finished()) {
+            flate.write(buffer, 0, deflater.deflate(buffer));
+        }
+        deflater.end();
+
+        String flateDict = "<< /Type /XObject /Subtype /Image /Width 600 /Height 300 /ColorSpace /DeviceGray"
+                + " /BitsPerComponent 8 /Filter /FlateDecode /Length " + flate.size() + " >>";
+        List<byte[]> objects = new ArrayList<byte[]>();
+        objects.add(ascii("<< /Type /Catalog /Pages 2 0 R >>"));
+        objects.add(ascii("<< /Type /Pages /Kids [3 0 R] /Count 1 /MediaBox [0 0 144 72] >>"));
+        objects.add(ascii("<< /Type /Page /Parent 2 0 R /Contents 4 0 R"
+                + " /Resources << /XObject << /Im0 5 0 R >> >> >>"));
+        objects.add(contentStream("q 144 0 0 72 0 0 cm /Im0 Do Q"));
+        objects.add(stream(flateDict, flate.toByteArray()));
+        return writePdf(objects);
+    }
+
+    /**
+     * Writes the objects, numbered from 1 with the first as the catalog, into a PDF document.
+     */
+    private static File writePdf(List<byte[]> objects) throws IOException {
+        ByteArrayOutputStream pdf = new ByteArrayOutputStream();
+        pdf.write(ascii("%PDF-1.4\n"));
+        int[] offsets = new int[objects.size()];
+        for (int i = 0; i < objects.size(); i++) {
+            offsets[i] = pdf.size();
+            pdf.write(ascii((i + 1) + " 0 obj\n"));
+            pdf.write(objects.get(i));
+            pdf.write(ascii("\nendobj\n"));
+        }
+
+        int xref = pdf.size();
+        StringBuilder sb = new StringBuilder("xref\n0 " + (objects.size() + 1) + "\n0000000000 65535 f \n");
+        for (int offset : offsets) {
+            sb.append(String.format("%010d 00000 n \n", offset));
+        }
+        sb.append("trailer\n<< /Size ").append(objects.size() + 1).append(" /Root 1 0 R >>\n");
+        sb.append("startxref\n").append(xref).append("\n%%EOF\n");
+        pdf.write(ascii(sb.toString()));
+
+        File file = File.createTempFile("scanned", ".pdf");
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            pdf.writeTo(out);
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    private static byte[] contentStream(String content) throws IOException {
+        return stream("<< /Length " + content.length() + " >>", ascii(content));
+    }
+
+    private static byte[] stream(String dict, byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(ascii(dict + "\nstream\n"));
+        out.write(data);
+        out.write(ascii("\nendstream"));
+        return out.toByteArray();
+    }
+
+    private static byte[] ascii(String s) throws IOException {
+        return s.getBytes("US-ASCII");
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright @ 2014 Quan Nguyen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.vietocr;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class PdfRenderProfileTest {
+
+    public PdfRenderProfileTest() {
+    }
+
+    /**
+     * Test of getResolution method, of class PdfRenderProfile.
+     */
+    @Test
+    public void testGetResolution() {
+        System.out.println("getResolution");
+        PdfRenderProfile instance = new PdfRenderProfile();
+        assertEquals(300, instance.getResolution(2384, 3370));
+
+        instance.setResolution(PdfRenderProfile.AUTO_RESOLUTION);
+        assertEquals(300, instance.getResolution(612, 792)); // Letter
+        assertEquals(300, instance.getResolution(245.76, 192)); // small scan
+        assertEquals(194, instance.getResolution(792, 1224)); // Tabloid
+        assertEquals(150, instance.getResolution(2384, 3370)); // A0
+        assertEquals(300, instance.getResolution(0, 0)); // unknown size
+    }
+
+    /**
+     * Test of addGhostscriptArgs method, of class PdfRenderProfile.
+     */
+    @Test
+    public void testAddGhostscriptArgs() {
+        System.out.println("addGhostscriptArgs");
+        PdfRenderProfile instance = new PdfRenderProfile();
+        List<String> gsArgs = new ArrayList<String>();
+        instance.addGhostscriptArgs(gsArgs, 300);
+        // defaults match the historical settings
+        assertEquals(Arrays.asList("-sDEVICE=pnggray", "-r300", "-dGraphicsAlphaBits=4", "-dTextAlphaBits=4"), gsArgs);
+
+        instance.setMonochrome(true);
+        instance.setRenderingThreads(4);
+        instance.setBufferSpace(16000000);
+        gsArgs.clear();
+        instance.addGhostscriptArgs(gsArgs, 200);
+        assertEquals(Arrays.asList("-sDEVICE=pngmono", "-r200", "-dNumRenderingThreads=4", "-dBufferSpace=16000000"),
+                gsArgs);
+
+        instance.setMonochrome(false);
+        instance.setAntiAliasing(false);
+        instance.setRenderingThreads(0);
+        instance.setBufferSpace(0);
+        gsArgs.clear();
+        instance.addGhostscriptArgs(gsArgs, 150);
+        assertEquals(Arrays.asList("-sDEVICE=pnggray", "-r150", "-dGraphicsAlphaBits=1", "-dTextAlphaBits=1"), gsArgs);
+    }
+}
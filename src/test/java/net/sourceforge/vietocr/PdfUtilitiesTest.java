@@ -0,0 +1,51 @@
+/**
+ * Copyright @ 2014 Quan Nguyen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sourceforge.vietocr;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class PdfUtilitiesTest {
+
+    public PdfUtilitiesTest() {
+    }
+
+    /**
+     * Test of hasTextLayer method, of class PdfUtilities. Stray text added to a scan, such as a page or Bates number,
+     * is not taken as a text layer; a few lines of text are.
+     */
+    @Test
+    public void testHasTextLayer() {
+        System.out.println("hasTextLayer");
+        String text = "The (quick) [brown] {fox} jumps!\nOver the $43,456.78 <lazy> #90 dog\n"
+                + "& duck/goose, as 12.5% of E-mail\nfrom aspammer@website.com is spam.\n"
+                + "Der schnelle braune Fuchs springt\nueber den faulen Hund.";
+        assertFalse(PdfUtilities.hasTextLayer(null));
+        assertFalse(PdfUtilities.hasTextLayer(" \n\f "));
+        assertFalse(PdfUtilities.hasTextLayer("Page 3\n"));
+        assertFalse(PdfUtilities.hasTextLayer("         ABC-0001234\n"));
+        assertTrue(PdfUtilities.hasTextLayer(text));
+
+        // custom threshold
+        assertTrue(PdfUtilities.hasTextLayer("Page 3\n", 5));
+        assertFalse(PdfUtilities.hasTextLayer("Page 3\n", 6));
+        assertFalse(PdfUtilities.hasTextLayer(" \n", 0));
+        assertTrue(PdfUtilities.hasTextLayer("1", 0));
+        assertFalse(PdfUtilities.hasTextLayer(text, 1000));
+    }
+}